@@ -0,0 +1,109 @@
+package com.gmail.avenderov.benchmarks;
+
+import com.gmail.avenderov.mongo.convert.PropertyConfigReadConverter;
+import com.gmail.avenderov.mongo.convert.PropertyConfigWriteConverter;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of configs between documents and objects by the reflective mapping and by the hand-written converters
+ * registered in {@code mongo-context.xml}.
+ *
+ * @author Alexey Venderov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int propertyCount;
+
+    private MappingMongoConverter reflectiveConverter;
+
+    private MappingMongoConverter customConverter;
+
+    private PropertyConfig propertyConfig;
+
+    private DBObject dbObject;
+
+    @Setup
+    public void setUp() {
+        // Converters don't touch the database unless they resolve references
+        final MongoDbFactory dbFactory = new MongoDbFactory() {
+
+            @Override
+            public DB getDb() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public DB getDb(final String dbName) {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+        reflectiveConverter = new MappingMongoConverter(dbFactory, new MongoMappingContext());
+        reflectiveConverter.afterPropertiesSet();
+        customConverter = new MappingMongoConverter(dbFactory, new MongoMappingContext());
+        customConverter.setCustomConversions(new CustomConversions(Arrays.asList(new PropertyConfigReadConverter(),
+                new PropertyConfigWriteConverter())));
+        customConverter.afterPropertiesSet();
+
+        final Map<String, String> properties = new LinkedHashMap<String, String>();
+        for (int i = 0; i < propertyCount; i++) {
+            properties.put("some-property-key" + i, "some property value " + i);
+        }
+        final Date now = new Date();
+        propertyConfig = new PropertyConfig("config", 1, now, now, ImmutableSet.of("parent1", "parent2"),
+                ImmutableMap.copyOf(properties));
+        // Document as it is decoded by the driver
+        final DBObject written = new BasicDBObject();
+        reflectiveConverter.write(propertyConfig, written);
+        dbObject = (DBObject) JSON.parse(JSON.serialize(written));
+    }
+
+    @Benchmark
+    public PropertyConfig readReflective() {
+        return reflectiveConverter.read(PropertyConfig.class, dbObject);
+    }
+
+    @Benchmark
+    public PropertyConfig readCustom() {
+        return customConverter.read(PropertyConfig.class, dbObject);
+    }
+
+    @Benchmark
+    public DBObject writeReflective() {
+        final DBObject result = new BasicDBObject();
+        reflectiveConverter.write(propertyConfig, result);
+        return result;
+    }
+
+    @Benchmark
+    public DBObject writeCustom() {
+        final DBObject result = new BasicDBObject();
+        customConverter.write(propertyConfig, result);
+        return result;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.gmail.avenderov.benchmarks;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigResolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging of hierarchy properties depending on hierarchy depth and number of parents per level. Every config of the
+ * hierarchy overrides half of the keys of the configs above it.
+ *
+ * @author Alexey Venderov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyResolutionBenchmark {
+
+    private static final int PROPERTIES_PER_CONFIG = 20;
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    @Param({"1", "4"})
+    public int fanOut;
+
+    private Map<String, PropertyConfig> hierarchy;
+
+    @Setup
+    public void setUp() {
+        final Date now = new Date();
+        hierarchy = new LinkedHashMap<String, PropertyConfig>();
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < fanOut; i++) {
+                final Map<String, String> properties = new LinkedHashMap<String, String>();
+                for (int j = 0; j < PROPERTIES_PER_CONFIG; j++) {
+                    properties.put("key" + (level * PROPERTIES_PER_CONFIG / 2 + j), "value" + level + "_" + i);
+                }
+                final String name = "config" + level + "_" + i;
+                hierarchy.put(name, new PropertyConfig(name, 1, now, now, null, properties));
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> resolve() {
+        return PropertyConfigResolver.resolve(hierarchy);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.gmail.avenderov.benchmarks;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of config construction depending on the number of properties.
+ *
+ * @author Alexey Venderov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyConfigBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int propertyCount;
+
+    private Map<String, String> properties;
+
+    private Map<String, String> immutableProperties;
+
+    private Set<String> parents;
+
+    private Date now;
+
+    @Setup
+    public void setUp() {
+        properties = new LinkedHashMap<String, String>();
+        for (int i = 0; i < propertyCount; i++) {
+            properties.put("key" + i, "value" + i);
+        }
+        immutableProperties = ImmutableMap.copyOf(properties);
+        parents = ImmutableSet.of("parent1", "parent2");
+        now = new Date();
+    }
+
+    /**
+     * Goes through the filtering views of the factory, which are copied by the constructor.
+     */
+    @Benchmark
+    public PropertyConfig newPropertyConfig() {
+        return PropertyConfigFactory.newPropertyConfig("config", parents, properties);
+    }
+
+    /**
+     * Constructor with already immutable properties, as configs are read from the database.
+     */
+    @Benchmark
+    public PropertyConfig constructor() {
+        return new PropertyConfig("config", 1, now, now, parents, immutableProperties);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.gmail.avenderov.benchmarks;
+
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.cache.CachingPropertyConfigRepository;
+import com.gmail.avenderov.memory.InMemoryPropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.gmail.avenderov.mongo.repository.MongoPropertyConfigRepository;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.MongoClient;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Config lookups through the repository implementations. {@code memory} backend needs nothing, {@code mongo}
+ * backend needs a local Mongo, host and port can be set with {@code mongo.host} and {@code mongo.port} system
+ * properties. Mongo benchmarks use their own database, which is dropped afterwards. Run them with
+ * {@code -p backend=memory,cached,mongo}.
+ *
+ * @author Alexey Venderov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final String DATABASE_NAME = "banjo_benchmarks";
+
+    private static final int CONFIG_COUNT = 1000;
+
+    @Param({"memory", "cached"})
+    public String backend;
+
+    @Param({"1", "4", "8"})
+    public int depth;
+
+    private MongoClient mongoClient;
+
+    private PropertyConfigRepository propertyConfigRepository;
+
+    private String[] leafNames;
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        if ("mongo".equals(backend)) {
+            mongoClient = new MongoClient(System.getProperty("mongo.host", "localhost"),
+                    Integer.getInteger("mongo.port", 27017));
+            final MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, DATABASE_NAME);
+            mongoTemplate.getDb().dropDatabase();
+            propertyConfigRepository = new MongoPropertyConfigRepository(mongoTemplate);
+        } else if ("cached".equals(backend)) {
+            propertyConfigRepository = new CachingPropertyConfigRepository(new InMemoryPropertyConfigRepository());
+        } else if ("memory".equals(backend)) {
+            propertyConfigRepository = new InMemoryPropertyConfigRepository();
+        } else {
+            throw new IllegalArgumentException("Unknown backend " + backend);
+        }
+
+        // Chains of configs, every chain is as deep as requested
+        final List<PropertyConfig> propertyConfigs = new ArrayList<PropertyConfig>();
+        final List<String> leaves = new ArrayList<String>();
+        for (int chain = 0; chain < CONFIG_COUNT / depth; chain++) {
+            String parent = null;
+            for (int level = 0; level < depth; level++) {
+                final String name = "config" + chain + "_" + level;
+                final Map<String, String> properties = new HashMap<String, String>();
+                for (int i = 0; i < 10; i++) {
+                    properties.put("key" + level + "_" + i, "value" + i);
+                }
+                propertyConfigs.add(PropertyConfigFactory.newPropertyConfig(name,
+                        parent != null ? ImmutableSet.of(parent) : null, properties));
+                parent = name;
+            }
+            leaves.add(parent);
+        }
+        propertyConfigRepository.insertAll(propertyConfigs);
+        leafNames = leaves.toArray(new String[leaves.size()]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mongoClient != null) {
+            mongoClient.getDB(DATABASE_NAME).dropDatabase();
+            mongoClient.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        String nextName(final String[] names) {
+            next = next + 1 < names.length ? next + 1 : 0;
+            return names[next];
+        }
+
+    }
+
+    @Benchmark
+    public Optional<PropertyConfig> findConfig(final Cursor cursor) {
+        return propertyConfigRepository.findConfig(cursor.nextName(leafNames));
+    }
+
+    @Benchmark
+    public Map<String, PropertyConfig> findConfigWithParents(final Cursor cursor) {
+        return propertyConfigRepository.findConfigWithParents(cursor.nextName(leafNames));
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.gmail.avenderov.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmail.avenderov.client.model.ResolvedConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of resolved configs as they are sent by the REST API and read by the client.
+ *
+ * @author Alexey Venderov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int propertyCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ResolvedConfig config;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Map<String, String> properties = new LinkedHashMap<String, String>();
+        for (int i = 0; i < propertyCount; i++) {
+            properties.put("some.property.key" + i, "some property value " + i);
+        }
+        config = new ResolvedConfig("config", Collections.singletonMap("config", 1), properties);
+        json = objectMapper.writeValueAsBytes(config);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(config);
+    }
+
+    @Benchmark
+    public ResolvedConfig deserialize() throws IOException {
+        return objectMapper.readValue(json, ResolvedConfig.class);
+    }
+
+}
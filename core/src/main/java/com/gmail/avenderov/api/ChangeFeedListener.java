@@ -0,0 +1,25 @@
+package com.gmail.avenderov.api;
+
+/**
+ * Listener that relies on receiving every change, for example to keep a set of existing configs, and therefore needs
+ * to know when changes may be late or missing.
+ *
+ * @author Alexey Venderov
+ */
+public interface ChangeFeedListener extends ChangeListener {
+
+    /**
+     * Called when every change recorded so far has been passed to the listener. Called repeatedly while nothing
+     * changes.
+     */
+    void onCaughtUp();
+
+    /**
+     * Called when changes stop being delivered.
+     *
+     * @param changesLost whether some of the changes will never be delivered, otherwise changes are delivered once
+     *                    the feed is restored
+     */
+    void onInterrupted(boolean changesLost);
+
+}
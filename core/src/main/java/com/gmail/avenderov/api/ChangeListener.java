@@ -0,0 +1,16 @@
+package com.gmail.avenderov.api;
+
+/**
+ * @author Alexey Venderov
+ */
+public interface ChangeListener {
+
+    /**
+     * Called when config has been inserted or its revision has changed.
+     *
+     * @param name     config name
+     * @param revision new revision of the config
+     */
+    void onChange(String name, int revision);
+
+}
@@ -21,7 +21,17 @@ public interface Config<T> {
 
     public enum Type {
 
-        TEXT("text/plain");
+        TEXT("text/plain"),
+
+        /**
+         * Large text that is stored compressed apart from property configs.
+         */
+        LARGE_TEXT("text/plain"),
+
+        /**
+         * Large binary content that is stored compressed apart from property configs.
+         */
+        BINARY("application/octet-stream");
 
         private final String description;
 
@@ -0,0 +1,28 @@
+package com.gmail.avenderov.api.repository;
+
+import com.gmail.avenderov.mongo.data.EffectiveConfig;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Non-blocking variant of the lookups of {@link EffectiveConfigRepository}. Futures fail with
+ * {@link java.util.concurrent.RejectedExecutionException} when repository is overloaded.
+ *
+ * @author Alexey Venderov
+ */
+public interface AsyncEffectiveConfigRepository {
+
+    /**
+     * @see EffectiveConfigRepository#findEffectiveConfig(String)
+     */
+    ListenableFuture<Optional<EffectiveConfig>> findEffectiveConfig(String name);
+
+    /**
+     * @see EffectiveConfigRepository#findEffectiveConfigs(Collection)
+     */
+    ListenableFuture<Map<String, EffectiveConfig>> findEffectiveConfigs(Collection<String> names);
+
+}
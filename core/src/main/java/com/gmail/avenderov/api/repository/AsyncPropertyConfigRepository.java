@@ -0,0 +1,62 @@
+package com.gmail.avenderov.api.repository;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-blocking variant of {@link PropertyConfigRepository}. Every method returns immediately, result or failure is
+ * delivered through the returned future. Futures fail with
+ * {@link java.util.concurrent.RejectedExecutionException} when repository is overloaded.
+ *
+ * @author Alexey Venderov
+ */
+public interface AsyncPropertyConfigRepository {
+
+    /**
+     * @see PropertyConfigRepository#insert(PropertyConfig)
+     */
+    ListenableFuture<PropertyConfig> insert(PropertyConfig propertyConfig);
+
+    /**
+     * @see PropertyConfigRepository#insertAll(List)
+     */
+    ListenableFuture<List<PropertyConfig>> insertAll(List<PropertyConfig> propertyConfigs);
+
+    /**
+     * @see PropertyConfigRepository#update(String, int, PropertyDelta)
+     */
+    ListenableFuture<PropertyConfig> update(String name, int expectedRevision, PropertyDelta delta);
+
+    /**
+     * @see PropertyConfigRepository#checkConfigExist(String)
+     */
+    ListenableFuture<Boolean> checkConfigExist(String name);
+
+    /**
+     * @see PropertyConfigRepository#checkConfigsExist(Collection)
+     */
+    ListenableFuture<Set<String>> checkConfigsExist(Collection<String> names);
+
+    /**
+     * @see PropertyConfigRepository#findConfig(String)
+     */
+    ListenableFuture<Optional<PropertyConfig>> findConfig(String name);
+
+    /**
+     * @see PropertyConfigRepository#findConfigs(Collection)
+     */
+    ListenableFuture<Map<String, PropertyConfig>> findConfigs(Collection<String> names);
+
+    /**
+     * @see PropertyConfigRepository#findConfigWithParents(String)
+     */
+    ListenableFuture<Map<String, PropertyConfig>> findConfigWithParents(String name);
+
+}
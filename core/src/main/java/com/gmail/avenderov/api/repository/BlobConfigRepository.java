@@ -0,0 +1,50 @@
+package com.gmail.avenderov.api.repository;
+
+import com.gmail.avenderov.api.Config;
+import com.gmail.avenderov.mongo.data.BlobConfig;
+import com.google.common.base.Optional;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Repository of configs with large text or binary content. Content is streamed in both directions, so it doesn't have
+ * to fit into memory.
+ *
+ * @author Alexey Venderov
+ */
+public interface BlobConfigRepository {
+
+    /**
+     * Stores content of a config, creating the config if it doesn't exist or replacing its content and incrementing
+     * its revision otherwise. Content of the replaced revision is removed right away, so reads of it that are in
+     * progress fail, see {@link #findConfig(String)}.
+     *
+     * @param name    config name
+     * @param type    either {@link Config.Type#LARGE_TEXT} or {@link Config.Type#BINARY}
+     * @param content content to store, it is read to the end but not closed
+     * @return stored config
+     * @throws IOException if content can't be read
+     */
+    BlobConfig save(String name, Config.Type type, InputStream content) throws IOException;
+
+    /**
+     * Returns config by its name. Content that is stored in GridFS is read from database when stream of the returned
+     * config is opened, reading fails with {@link IOException} if the config has been replaced or removed in the
+     * meantime. Content is not kept for reads that are in progress: stream that is already open fails part way,
+     * readers have to look the config up again and start over with the new revision.
+     *
+     * @param name config name to find
+     * @return config or {@link Optional#absent()} if it doesn't exist
+     */
+    Optional<BlobConfig> findConfig(String name);
+
+    /**
+     * Removes config with its content.
+     *
+     * @param name config name to remove
+     * @return {@code true} if config existed, {@code false} otherwise
+     */
+    boolean remove(String name);
+
+}
@@ -0,0 +1,26 @@
+package com.gmail.avenderov.api.repository;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+
+import java.util.List;
+
+/**
+ * @author Alexey Venderov
+ */
+public interface ChangeLogRepository {
+
+    /**
+     * Records that config has been inserted or its revision has changed.
+     *
+     * @param propertyConfig saved config
+     */
+    void record(PropertyConfig propertyConfig);
+
+    /**
+     * Records configs inserted in one batch with a single write.
+     *
+     * @param propertyConfigs inserted configs
+     */
+    void recordAll(List<PropertyConfig> propertyConfigs);
+
+}
@@ -0,0 +1,70 @@
+package com.gmail.avenderov.api.repository;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps previous revisions of configs. Revisions are stored as deltas against the previous revision with a full
+ * checkpoint every few revisions, so restoring any revision takes a bounded number of delta applications.
+ *
+ * @author Alexey Venderov
+ */
+public interface ConfigHistoryRepository {
+
+    /**
+     * Records saved revision of the config. Recording the same revision twice has no effect.
+     *
+     * @param propertyConfig saved config
+     */
+    void record(PropertyConfig propertyConfig);
+
+    /**
+     * Records first revisions of configs inserted in one batch. Configs have no history yet, so every revision is
+     * recorded as a checkpoint and the whole batch is written at once. Revisions that are already recorded are
+     * left as they are.
+     *
+     * @param propertyConfigs inserted configs
+     */
+    void recordInserted(List<PropertyConfig> propertyConfigs);
+
+    /**
+     * Restores properties of the config revision.
+     *
+     * @param name config name
+     * @param revision config revision
+     * @return properties of the revision or absent if the revision is not in history
+     */
+    Optional<Map<String, String>> findProperties(String name, int revision);
+
+    /**
+     * Computes changes of config properties between two revisions.
+     *
+     * @param name config name
+     * @param fromRevision revision to compute changes from
+     * @param toRevision revision to compute changes to
+     * @return possibly empty delta or absent if any of the revisions is not in history
+     */
+    Optional<PropertyDelta> findDelta(String name, int fromRevision, int toRevision);
+
+    /**
+     * Reduces size of config history. Checkpoints that are not needed to keep the number of delta applications bounded
+     * are merged into deltas. If history retention is limited, entries older than retained revisions are removed as
+     * well and the oldest retained revision becomes a checkpoint.
+     *
+     * @param name config name
+     * @return number of merged and removed history entries
+     */
+    int compact(String name);
+
+    /**
+     * Compacts history of all configs.
+     *
+     * @return number of merged and removed history entries
+     */
+    int compactAll();
+
+}
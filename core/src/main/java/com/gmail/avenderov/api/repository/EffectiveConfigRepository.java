@@ -0,0 +1,61 @@
+package com.gmail.avenderov.api.repository;
+
+import com.gmail.avenderov.mongo.data.EffectiveConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.google.common.base.Optional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Alexey Venderov
+ */
+public interface EffectiveConfigRepository {
+
+    /**
+     * Returns precomputed effective config by its name.
+     *
+     * @param name config name to find
+     * @return effective config, absent if config doesn't exist or has not been computed yet
+     */
+    Optional<EffectiveConfig> findEffectiveConfig(String name);
+
+    /**
+     * Returns precomputed effective configs by their names in one lookup.
+     *
+     * @param names config names to find
+     * @return map with config names used as keys, configs that don't exist or have not been computed yet are missing
+     * in the map. Returned map is immutable
+     */
+    Map<String, EffectiveConfig> findEffectiveConfigs(Collection<String> names);
+
+    /**
+     * Recomputes effective config after config with specified name has changed. All descendants of the config are
+     * recomputed as well, other effective configs are left untouched.
+     *
+     * @param name name of changed config
+     * @return names of recomputed configs
+     */
+    Set<String> recompute(String name);
+
+    /**
+     * Computes effective configs of configs inserted in one batch. Existing configs can't descend from the inserted
+     * ones, so no other effective configs are affected. Ancestors outside of the batch are read once for the whole
+     * batch and computed configs are written at once.
+     *
+     * @param propertyConfigs inserted configs, every config follows its parents that are inserted along with it
+     * @return number of computed configs
+     */
+    int computeInserted(List<PropertyConfig> propertyConfigs);
+
+    /**
+     * Computes effective configs of configs that don't have one, e.g. configs that were saved before effective
+     * configs were materialized. Existing effective configs are left untouched.
+     *
+     * @return number of computed configs
+     */
+    int computeMissing();
+
+}
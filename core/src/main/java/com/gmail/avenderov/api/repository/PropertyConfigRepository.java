@@ -1,10 +1,14 @@
 package com.gmail.avenderov.api.repository;
 
 import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
 import com.google.common.base.Optional;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Alexey Venderov
@@ -26,6 +30,29 @@ public interface PropertyConfigRepository {
      */
     PropertyConfig insert(PropertyConfig propertyConfig);
 
+    /**
+     * Inserts new configs into database in one batch. Parents of every config must either exist in database or
+     * precede the config in the list.
+     *
+     * @param propertyConfigs configs to insert into database
+     * @return The same list that was passed to it
+     */
+    List<PropertyConfig> insertAll(List<PropertyConfig> propertyConfigs);
+
+    /**
+     * Applies delta to properties of existing config, increments its revision and updates its last modification
+     * date. Config is changed only if its current revision is the expected one.
+     *
+     * @param name             config name
+     * @param expectedRevision revision the delta was computed against
+     * @param delta            properties to set and remove
+     * @return config after the update
+     * @throws org.springframework.dao.EmptyResultDataAccessException    if config doesn't exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException if config has different revision
+     * @throws org.springframework.dao.DataIntegrityViolationException  if delta removes all properties of the config
+     */
+    PropertyConfig update(String name, int expectedRevision, PropertyDelta delta);
+
     /**
      * Checks if config with specified name checkConfigExist in database.
      *
@@ -34,6 +61,14 @@ public interface PropertyConfigRepository {
      */
     boolean checkConfigExist(String name);
 
+    /**
+     * Checks which of the configs with specified names exist in database.
+     *
+     * @param names config names to check
+     * @return names of existing configs. Returned set is immutable
+     */
+    Set<String> checkConfigsExist(Collection<String> names);
+
     /**
      * Returns config by its name.
      *
@@ -43,10 +78,22 @@ public interface PropertyConfigRepository {
     Optional<PropertyConfig> findConfig(String name);
 
     /**
-     * Queries for config and all its parents. Result is returned in form of map with config names used as keys.
+     * Returns configs by their names.
+     *
+     * @param names config names to find
+     * @return map with config names used as keys, configs that don't exist are missing in the map. Returned map is
+     * immutable
+     */
+    Map<String, PropertyConfig> findConfigs(Collection<String> names);
+
+    /**
+     * Queries for config and all its ancestors. Result is returned in form of map with config names used as keys.
+     * Iteration order of the map starts with the requested config and continues breadth first through the
+     * ancestors, parents of every config are visited in the order they are declared.
      *
      * @param name config name to find
      * @return empty map if config with specified name doesn't exist. Returned map is immutable
+     * @throws IllegalStateException if ancestors form a cycle or hierarchy is deeper than allowed
      */
     Map<String, PropertyConfig> findConfigWithParents(String name);
 
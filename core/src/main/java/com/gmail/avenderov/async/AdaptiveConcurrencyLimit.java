@@ -0,0 +1,72 @@
+package com.gmail.avenderov.async;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limit of concurrent calls that follows their latency by additive increase and multiplicative decrease. Every call
+ * that completes within the latency threshold while the limit is in use raises the limit by one per limit-worth of
+ * calls. Call that is slower or fails cuts the limit by a fixed ratio, at most once per limit-worth of calls, so that
+ * calls that were started under the old limit don't cut it again.
+ *
+ * @author Alexey Venderov
+ */
+public class AdaptiveConcurrencyLimit {
+
+    static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    // Guarded by this
+    private double limit;
+
+    private int samplesSinceDecrease = Integer.MAX_VALUE;
+
+    public AdaptiveConcurrencyLimit(final int initialLimit, final int minLimit, final int maxLimit,
+                                    final long latencyThreshold, final TimeUnit timeUnit) {
+        checkArgument(minLimit > 0, "minLimit must be greater than zero");
+        checkArgument(maxLimit >= minLimit, "maxLimit must not be less than minLimit");
+        checkArgument(initialLimit >= minLimit && initialLimit <= maxLimit,
+                "initialLimit must be between minLimit and maxLimit");
+        checkArgument(latencyThreshold > 0, "latencyThreshold must be greater than zero");
+        checkNotNull(timeUnit, "timeUnit must not be null");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = timeUnit.toNanos(latencyThreshold);
+        this.limit = initialLimit;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Records completed call.
+     *
+     * @param latencyNanos latency of the call
+     * @param failed       whether the call has failed
+     * @param inFlight     number of calls that were in flight when the call completed, including it
+     */
+    public synchronized void onSample(final long latencyNanos, final boolean failed, final int inFlight) {
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            if (samplesSinceDecrease >= (int) limit) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                samplesSinceDecrease = 0;
+            }
+        } else if (inFlight * 2 >= (int) limit) {
+            // Limit that is not in use says nothing about the capacity
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        if (samplesSinceDecrease < Integer.MAX_VALUE) {
+            samplesSinceDecrease++;
+        }
+    }
+
+}
@@ -0,0 +1,322 @@
+package com.gmail.avenderov.async;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+/**
+ * Admits asynchronous calls up to the {@link AdaptiveConcurrencyLimit}, so that the database is not flooded when
+ * all clients come at once. Calls over the limit wait in per-client queues that are served round-robin, so that a
+ * client that sends many requests doesn't delay the others. Calls are rejected with
+ * {@link AdmissionRejectedException} right away when the queue budget, total or per client, is spent, and when they
+ * have waited longer than allowed. Nothing blocks, waiting calls are started by the threads that complete calls.
+ * Once the controller is started, calls that have waited too long are rejected by a timer as well, so they don't
+ * wait for calls that never complete, e.g. when the database hangs.
+ * <p/>
+ * State is reported by the {@code limit}, {@code inFlight} and {@code queued} gauges and the {@code rejected} meter
+ * named after this class.
+ *
+ * @author Alexey Venderov
+ */
+public class AdmissionController {
+
+    private static final long MIN_TIMER_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AdaptiveConcurrencyLimit limit;
+
+    private final int maxQueued;
+
+    private final int maxQueuedPerClient;
+
+    private final long maxWaitNanos;
+
+    private final long retryAfterSeconds;
+
+    private final Meter rejected;
+
+    private ScheduledExecutorService timer;
+
+    // Guarded by this
+    private int inFlight;
+
+    private int queued;
+
+    private final Map<String, Queue<Waiter<?>>> queues = new HashMap<String, Queue<Waiter<?>>>();
+
+    // Clients with waiting calls in the order they are served
+    private final Queue<String> clients = new ArrayDeque<String>();
+
+    public AdmissionController(final AdaptiveConcurrencyLimit limit, final int maxQueued,
+                               final int maxQueuedPerClient, final long maxWait, final TimeUnit timeUnit,
+                               final MetricRegistry registry) {
+        checkNotNull(limit, "limit must not be null");
+        checkArgument(maxQueued >= 0, "maxQueued must not be negative");
+        checkArgument(maxQueuedPerClient >= 0, "maxQueuedPerClient must not be negative");
+        checkArgument(maxWait > 0, "maxWait must be greater than zero");
+        checkNotNull(timeUnit, "timeUnit must not be null");
+        checkNotNull(registry, "registry must not be null");
+
+        this.limit = limit;
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerClient = maxQueuedPerClient;
+        this.maxWaitNanos = timeUnit.toNanos(maxWait);
+        // Queue drains in about the maximum wait time
+        this.retryAfterSeconds = Math.max(1L, timeUnit.toSeconds(maxWait));
+        this.rejected = registry.meter(name(AdmissionController.class, "rejected"));
+        registry.register(name(AdmissionController.class, "limit"), new Gauge<Integer>() {
+
+            @Override
+            public Integer getValue() {
+                return limit.getLimit();
+            }
+
+        });
+        registry.register(name(AdmissionController.class, "inFlight"), new Gauge<Integer>() {
+
+            @Override
+            public Integer getValue() {
+                return getInFlight();
+            }
+
+        });
+        registry.register(name(AdmissionController.class, "queued"), new Gauge<Integer>() {
+
+            @Override
+            public Integer getValue() {
+                return getQueued();
+            }
+
+        });
+    }
+
+    /**
+     * Starts the timer that rejects calls which have waited too long. Waiting calls are checked a few times per
+     * maximum wait time, so a call waits at most a quarter longer than allowed.
+     */
+    public synchronized void start() {
+        checkState(timer == null, "admission controller has already been started");
+
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("admission-timer").setDaemon(true).build());
+        final long periodNanos = Math.max(maxWaitNanos / 4, MIN_TIMER_PERIOD_NANOS);
+        timer.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                expireWaiting();
+            }
+
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void stop() {
+        if (timer == null) {
+            return;
+        }
+        timer.shutdownNow();
+        timer = null;
+    }
+
+    /**
+     * Starts the call right away if the limit allows, otherwise queues it.
+     *
+     * @param client identifier of the client the call is made for
+     * @param call   call that starts asynchronous operation
+     * @return result of the operation or {@link AdmissionRejectedException} if the call was not admitted
+     */
+    public <T> ListenableFuture<T> submit(final String client, final Callable<ListenableFuture<T>> call) {
+        checkNotNull(client, "client must not be null");
+        checkNotNull(call, "call must not be null");
+
+        final Waiter<T> waiter = new Waiter<T>(call, System.nanoTime());
+        final List<Waiter<?>> expired = new ArrayList<Waiter<?>>();
+        boolean admitted = false;
+        boolean accepted = true;
+        synchronized (this) {
+            if (queued == 0 && inFlight < limit.getLimit()) {
+                inFlight++;
+                admitted = true;
+            } else {
+                if (!hasRoom(client)) {
+                    removeExpired(waiter.enqueuedAt, expired);
+                }
+                if (hasRoom(client)) {
+                    Queue<Waiter<?>> queue = queues.get(client);
+                    if (queue == null) {
+                        queue = new ArrayDeque<Waiter<?>>();
+                        queues.put(client, queue);
+                        clients.add(client);
+                    }
+                    queue.add(waiter);
+                    queued++;
+                } else {
+                    accepted = false;
+                }
+            }
+        }
+
+        for (final Waiter<?> expiredWaiter : expired) {
+            reject(expiredWaiter, "Call has waited too long");
+        }
+        if (admitted) {
+            start(waiter);
+        } else if (!accepted) {
+            reject(waiter, format("Too many calls are waiting, client '%1$s' has to retry later", client));
+        }
+
+        return waiter.result;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    private <T> void start(final Waiter<T> waiter) {
+        final long start = System.nanoTime();
+        ListenableFuture<T> future;
+        try {
+            future = waiter.call.call();
+        } catch (final Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+        Futures.addCallback(future, new FutureCallback<T>() {
+
+            @Override
+            public void onSuccess(final T result) {
+                release(System.nanoTime() - start, false);
+                waiter.result.set(result);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                release(System.nanoTime() - start, true);
+                waiter.result.setException(t);
+            }
+
+        });
+    }
+
+    private void release(final long latencyNanos, final boolean failed) {
+        final List<Waiter<?>> admitted = new ArrayList<Waiter<?>>();
+        final List<Waiter<?>> expired = new ArrayList<Waiter<?>>();
+        synchronized (this) {
+            limit.onSample(latencyNanos, failed, inFlight);
+            inFlight--;
+            final long now = System.nanoTime();
+            while (queued > 0 && inFlight < limit.getLimit()) {
+                final Waiter<?> waiter = poll();
+                if (now - waiter.enqueuedAt > maxWaitNanos) {
+                    expired.add(waiter);
+                } else {
+                    inFlight++;
+                    admitted.add(waiter);
+                }
+            }
+        }
+
+        for (final Waiter<?> waiter : expired) {
+            reject(waiter, "Call has waited too long");
+        }
+        for (final Waiter<?> waiter : admitted) {
+            start(waiter);
+        }
+    }
+
+    private void expireWaiting() {
+        final List<Waiter<?>> expired = new ArrayList<Waiter<?>>();
+        synchronized (this) {
+            removeExpired(System.nanoTime(), expired);
+        }
+
+        for (final Waiter<?> waiter : expired) {
+            reject(waiter, "Call has waited too long");
+        }
+    }
+
+    private boolean hasRoom(final String client) {
+        final Queue<Waiter<?>> queue = queues.get(client);
+        return queued < maxQueued && (queue != null ? queue.size() : 0) < maxQueuedPerClient;
+    }
+
+    /**
+     * Takes the next call of the next client in turn.
+     */
+    private Waiter<?> poll() {
+        final String client = clients.remove();
+        final Queue<Waiter<?>> queue = queues.get(client);
+        final Waiter<?> waiter = queue.remove();
+        queued--;
+        if (queue.isEmpty()) {
+            queues.remove(client);
+        } else {
+            clients.add(client);
+        }
+
+        return waiter;
+    }
+
+    private void removeExpired(final long now, final List<Waiter<?>> expired) {
+        final Iterator<String> clientIterator = clients.iterator();
+        while (clientIterator.hasNext()) {
+            final String client = clientIterator.next();
+            final Queue<Waiter<?>> queue = queues.get(client);
+            // Calls of a client are queued in arrival order
+            while (!queue.isEmpty() && now - queue.peek().enqueuedAt > maxWaitNanos) {
+                expired.add(queue.remove());
+                queued--;
+            }
+            if (queue.isEmpty()) {
+                queues.remove(client);
+                clientIterator.remove();
+            }
+        }
+    }
+
+    private void reject(final Waiter<?> waiter, final String message) {
+        rejected.mark();
+        waiter.result.setException(new AdmissionRejectedException(message, retryAfterSeconds));
+    }
+
+    private static final class Waiter<T> {
+
+        private final Callable<ListenableFuture<T>> call;
+
+        private final long enqueuedAt;
+
+        private final SettableFuture<T> result = SettableFuture.create();
+
+        private Waiter(final Callable<ListenableFuture<T>> call, final long enqueuedAt) {
+            this.call = call;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+    }
+
+}
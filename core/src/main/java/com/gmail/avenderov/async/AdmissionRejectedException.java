@@ -0,0 +1,26 @@
+package com.gmail.avenderov.async;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a call is not admitted because the service is overloaded. Callers are expected to retry after the
+ * given delay.
+ *
+ * @author Alexey Venderov
+ */
+public class AdmissionRejectedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(final String message, final long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
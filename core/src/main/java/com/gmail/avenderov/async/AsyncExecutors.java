@@ -0,0 +1,64 @@
+package com.gmail.avenderov.async;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * @author Alexey Venderov
+ */
+public final class AsyncExecutors {
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private AsyncExecutors() {
+    }
+
+    /**
+     * Creates executor with fixed number of daemon threads and bounded queue. Tasks submitted when the queue is full
+     * are rejected instead of piling up.
+     *
+     * @param name prefix of thread names
+     * @param threads number of threads
+     * @param queueCapacity maximum number of waiting tasks
+     * @return new executor
+     */
+    public static ListeningExecutorService newBoundedExecutor(final String name, final int threads,
+                                                              final int queueCapacity) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkArgument(threads > 0, "threads must be greater than zero");
+        checkArgument(queueCapacity > 0, "queueCapacity must be greater than zero");
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        return MoreExecutors.listeningDecorator(executor);
+    }
+
+    /**
+     * Submits task to the executor. Rejection is reported through the returned future, so callers handle it like
+     * any other failure.
+     */
+    public static <T> ListenableFuture<T> submit(final ListeningExecutorService executor, final Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (final RejectedExecutionException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+}
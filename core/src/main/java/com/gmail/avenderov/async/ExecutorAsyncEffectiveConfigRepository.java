@@ -0,0 +1,59 @@
+package com.gmail.avenderov.async;
+
+import com.gmail.avenderov.api.repository.AsyncEffectiveConfigRepository;
+import com.gmail.avenderov.api.repository.EffectiveConfigRepository;
+import com.gmail.avenderov.mongo.data.EffectiveConfig;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs blocking {@link EffectiveConfigRepository} lookups on a separate executor.
+ *
+ * @author Alexey Venderov
+ */
+public class ExecutorAsyncEffectiveConfigRepository implements AsyncEffectiveConfigRepository {
+
+    private final EffectiveConfigRepository delegate;
+
+    private final ListeningExecutorService executor;
+
+    public ExecutorAsyncEffectiveConfigRepository(final EffectiveConfigRepository delegate,
+                                                  final ListeningExecutorService executor) {
+        checkNotNull(delegate, "delegate must not be null");
+        checkNotNull(executor, "executor must not be null");
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public ListenableFuture<Optional<EffectiveConfig>> findEffectiveConfig(final String name) {
+        return AsyncExecutors.submit(executor, new Callable<Optional<EffectiveConfig>>() {
+
+            @Override
+            public Optional<EffectiveConfig> call() {
+                return delegate.findEffectiveConfig(name);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<Map<String, EffectiveConfig>> findEffectiveConfigs(final Collection<String> names) {
+        return AsyncExecutors.submit(executor, new Callable<Map<String, EffectiveConfig>>() {
+
+            @Override
+            public Map<String, EffectiveConfig> call() {
+                return delegate.findEffectiveConfigs(names);
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.gmail.avenderov.async;
+
+import com.gmail.avenderov.api.repository.AsyncPropertyConfigRepository;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs blocking {@link PropertyConfigRepository} calls on a separate executor, so that callers don't wait for
+ * database round trips. Mongo driver has no asynchronous API, so the executor size bounds the number of concurrent
+ * database calls, not the number of callers waiting for them.
+ *
+ * @author Alexey Venderov
+ */
+public class ExecutorAsyncPropertyConfigRepository implements AsyncPropertyConfigRepository {
+
+    private final PropertyConfigRepository delegate;
+
+    private final ListeningExecutorService executor;
+
+    public ExecutorAsyncPropertyConfigRepository(final PropertyConfigRepository delegate,
+                                                 final ListeningExecutorService executor) {
+        checkNotNull(delegate, "delegate must not be null");
+        checkNotNull(executor, "executor must not be null");
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public ListenableFuture<PropertyConfig> insert(final PropertyConfig propertyConfig) {
+        return AsyncExecutors.submit(executor, new Callable<PropertyConfig>() {
+
+            @Override
+            public PropertyConfig call() {
+                return delegate.insert(propertyConfig);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<List<PropertyConfig>> insertAll(final List<PropertyConfig> propertyConfigs) {
+        return AsyncExecutors.submit(executor, new Callable<List<PropertyConfig>>() {
+
+            @Override
+            public List<PropertyConfig> call() {
+                return delegate.insertAll(propertyConfigs);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<PropertyConfig> update(final String name, final int expectedRevision,
+                                                   final PropertyDelta delta) {
+        return AsyncExecutors.submit(executor, new Callable<PropertyConfig>() {
+
+            @Override
+            public PropertyConfig call() {
+                return delegate.update(name, expectedRevision, delta);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<Boolean> checkConfigExist(final String name) {
+        return AsyncExecutors.submit(executor, new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return delegate.checkConfigExist(name);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<Set<String>> checkConfigsExist(final Collection<String> names) {
+        return AsyncExecutors.submit(executor, new Callable<Set<String>>() {
+
+            @Override
+            public Set<String> call() {
+                return delegate.checkConfigsExist(names);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<Optional<PropertyConfig>> findConfig(final String name) {
+        return AsyncExecutors.submit(executor, new Callable<Optional<PropertyConfig>>() {
+
+            @Override
+            public Optional<PropertyConfig> call() {
+                return delegate.findConfig(name);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<Map<String, PropertyConfig>> findConfigs(final Collection<String> names) {
+        return AsyncExecutors.submit(executor, new Callable<Map<String, PropertyConfig>>() {
+
+            @Override
+            public Map<String, PropertyConfig> call() {
+                return delegate.findConfigs(names);
+            }
+
+        });
+    }
+
+    @Override
+    public ListenableFuture<Map<String, PropertyConfig>> findConfigWithParents(final String name) {
+        return AsyncExecutors.submit(executor, new Callable<Map<String, PropertyConfig>>() {
+
+            @Override
+            public Map<String, PropertyConfig> call() {
+                return delegate.findConfigWithParents(name);
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,322 @@
+package com.gmail.avenderov.cache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.gmail.avenderov.metrics.Metrics;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fills {@link CachingPropertyConfigRepository} with all configs and their hierarchies once the application context
+ * is refreshed, so that the first requests after a deploy don't go to the database. The collection is read with one
+ * batched cursor, batches are decoded and hierarchies are resolved in parallel. Reading thread decodes batches itself
+ * when all workers are busy, so at most a few batches wait in memory. Reading stops once as many configs are decoded as
+ * the cache can hold, more configs would only evict each other, and hierarchies with ancestors that were not read are
+ * not cached. Warm-up gives up when its time budget is spent, configs that are not cached by then are loaded on demand
+ * as usual.
+ * <p/>
+ * Progress is reported by the {@code decoded} and {@code cached} counters and the {@code duration} timer named after
+ * this class.
+ *
+ * @author Alexey Venderov
+ */
+public class CacheWarmer implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    public static final long DEFAULT_TIME_BUDGET_SECONDS = 60L;
+
+    public enum State {
+
+        NOT_STARTED, RUNNING, COMPLETED, TIMED_OUT, FAILED
+
+    }
+
+    private final MongoTemplate mongoTemplate;
+
+    private final CachingPropertyConfigRepository cache;
+
+    private final int threads;
+
+    private final int batchSize;
+
+    private final long timeBudgetNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<State>(State.NOT_STARTED);
+
+    private final Counter decoded;
+
+    private final Counter cached;
+
+    private final Timer duration;
+
+    public CacheWarmer(final MongoTemplate mongoTemplate, final CachingPropertyConfigRepository cache,
+                       final MetricRegistry registry) {
+        this(mongoTemplate, cache, registry, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE,
+                DEFAULT_TIME_BUDGET_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public CacheWarmer(final MongoTemplate mongoTemplate, final CachingPropertyConfigRepository cache,
+                       final MetricRegistry registry, final int threads, final int batchSize,
+                       final long timeBudget, final TimeUnit timeUnit) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        checkNotNull(cache, "cache must not be null");
+        checkNotNull(registry, "registry must not be null");
+        checkArgument(threads > 0, "threads must be greater than zero");
+        checkArgument(batchSize > 0, "batchSize must be greater than zero");
+        checkArgument(timeBudget > 0, "timeBudget must be greater than zero");
+        checkNotNull(timeUnit, "timeUnit must not be null");
+
+        this.mongoTemplate = mongoTemplate;
+        this.cache = cache;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.timeBudgetNanos = timeUnit.toNanos(timeBudget);
+        this.decoded = registry.counter(name(CacheWarmer.class, "decoded"));
+        this.cached = registry.counter(name(CacheWarmer.class, "cached"));
+        this.duration = Metrics.timer(registry, name(CacheWarmer.class, "duration"));
+    }
+
+    /**
+     * Starts warm-up in a background thread on the first refresh of the context.
+     */
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        if (!state.compareAndSet(State.NOT_STARTED, State.RUNNING)) {
+            return;
+        }
+        new ThreadFactoryBuilder().setNameFormat("cache-warmer").setDaemon(true).build().newThread(new Runnable() {
+
+            @Override
+            public void run() {
+                warmUp();
+            }
+
+        }).start();
+    }
+
+    /**
+     * Warms the cache up in the calling thread, unless warm-up has already finished.
+     *
+     * @return state warm-up has finished in
+     */
+    public State warmUp() {
+        state.compareAndSet(State.NOT_STARTED, State.RUNNING);
+        if (state.get() != State.RUNNING) {
+            return state.get();
+        }
+
+        final long start = System.nanoTime();
+        final long deadline = start + timeBudgetNanos;
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads), new ThreadFactoryBuilder()
+                .setNameFormat("cache-warmer-%d").setDaemon(true).build(), new ThreadPoolExecutor.CallerRunsPolicy());
+        State result;
+        try {
+            final ConcurrentMap<String, PropertyConfig> configs = new ConcurrentHashMap<String, PropertyConfig>();
+            result = decode(configs, executor, deadline) && resolve(configs, executor, deadline) ?
+                    State.COMPLETED : State.TIMED_OUT;
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Cache warm-up failed, configs will be loaded on demand", e);
+            result = State.FAILED;
+        } finally {
+            executor.shutdownNow();
+        }
+        duration.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        LOGGER.info("Cache warm-up finished as {} in {} ms, {} configs were decoded, {} hierarchies were cached",
+                result, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), decoded.getCount(),
+                cached.getCount());
+        state.set(result);
+
+        return result;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Returns whether warm-up has finished. Cache is not necessarily full, if warm-up has timed out or failed.
+     */
+    public boolean isFinished() {
+        final State current = state.get();
+        return current != State.NOT_STARTED && current != State.RUNNING;
+    }
+
+    private boolean decode(final ConcurrentMap<String, PropertyConfig> configs, final ThreadPoolExecutor executor,
+                           final long deadline) {
+        final MongoConverter converter = mongoTemplate.getConverter();
+        final List<Future<?>> tasks = mongoTemplate.execute(PropertyConfig.class,
+                new CollectionCallback<List<Future<?>>>() {
+
+                    @Override
+                    public List<Future<?>> doInCollection(final DBCollection collection) throws MongoException,
+                            DataAccessException {
+                        final List<Future<?>> tasks = new ArrayList<Future<?>>();
+                        final int limit = (int) Math.min(cache.getMaximumSize(), Integer.MAX_VALUE);
+                        if (collection.count() > limit) {
+                            LOGGER.info("Collection has more configs than the cache can hold, only {} configs are "
+                                    + "read", limit);
+                        }
+                        final DBCursor cursor = collection.find().batchSize(batchSize).limit(limit);
+                        try {
+                            List<DBObject> batch = new ArrayList<DBObject>(batchSize);
+                            while (cursor.hasNext() && System.nanoTime() < deadline) {
+                                batch.add(cursor.next());
+                                if (batch.size() == batchSize) {
+                                    tasks.add(executor.submit(decodeTask(converter, batch, configs)));
+                                    batch = new ArrayList<DBObject>(batchSize);
+                                }
+                            }
+                            if (!batch.isEmpty()) {
+                                tasks.add(executor.submit(decodeTask(converter, batch, configs)));
+                            }
+                        } finally {
+                            cursor.close();
+                        }
+                        return tasks;
+                    }
+
+                });
+
+        return System.nanoTime() < deadline && await(tasks, deadline);
+    }
+
+    private Callable<Void> decodeTask(final MongoConverter converter, final List<DBObject> batch,
+                                      final ConcurrentMap<String, PropertyConfig> configs) {
+        return new Callable<Void>() {
+
+            @Override
+            public Void call() {
+                for (final DBObject dbObject : batch) {
+                    final PropertyConfig propertyConfig = converter.read(PropertyConfig.class, dbObject);
+                    configs.put(propertyConfig.getName(), propertyConfig);
+                    decoded.inc();
+                }
+                return null;
+            }
+
+        };
+    }
+
+    private boolean resolve(final Map<String, PropertyConfig> configs, final ThreadPoolExecutor executor,
+                            final long deadline) {
+        final List<Future<?>> tasks = new ArrayList<Future<?>>();
+        List<String> batch = new ArrayList<String>(batchSize);
+        for (final String name : configs.keySet()) {
+            batch.add(name);
+            if (batch.size() == batchSize) {
+                tasks.add(executor.submit(resolveTask(batch, configs, deadline)));
+                batch = new ArrayList<String>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            tasks.add(executor.submit(resolveTask(batch, configs, deadline)));
+        }
+
+        return await(tasks, deadline);
+    }
+
+    private Callable<Void> resolveTask(final List<String> names, final Map<String, PropertyConfig> configs,
+                                       final long deadline) {
+        return new Callable<Void>() {
+
+            @Override
+            public Void call() {
+                for (final String name : names) {
+                    if (System.nanoTime() >= deadline) {
+                        return null;
+                    }
+                    final Map<String, PropertyConfig> hierarchy = hierarchy(configs.get(name), configs);
+                    if (hierarchy != null) {
+                        cache.warm(hierarchy);
+                        cached.inc();
+                    }
+                }
+                return null;
+            }
+
+        };
+    }
+
+    /**
+     * Orders hierarchy the same way as the repository does.
+     *
+     * @return hierarchy or {@code null} if some ancestor was inserted after it was read
+     */
+    private static Map<String, PropertyConfig> hierarchy(final PropertyConfig propertyConfig,
+                                                         final Map<String, PropertyConfig> configs) {
+        final Map<String, PropertyConfig> result = new LinkedHashMap<String, PropertyConfig>();
+        result.put(propertyConfig.getName(), propertyConfig);
+        final Queue<PropertyConfig> queue = new LinkedList<PropertyConfig>();
+        queue.add(propertyConfig);
+        while (!queue.isEmpty()) {
+            for (final String parentName : queue.remove().getParents()) {
+                if (!result.containsKey(parentName)) {
+                    final PropertyConfig parent = configs.get(parentName);
+                    if (parent == null) {
+                        return null;
+                    }
+                    result.put(parentName, parent);
+                    queue.add(parent);
+                }
+            }
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static boolean await(final List<Future<?>> tasks, final long deadline) {
+        try {
+            for (final Future<?> task : tasks) {
+                task.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return System.nanoTime() < deadline;
+        } catch (final TimeoutException e) {
+            return false;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cache warm-up was interrupted", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Cache warm-up task failed", e.getCause());
+        }
+    }
+
+}
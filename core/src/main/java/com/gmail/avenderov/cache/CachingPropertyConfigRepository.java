@@ -0,0 +1,378 @@
+package com.gmail.avenderov.cache;
+
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Read-through near-cache in front of another {@link PropertyConfigRepository}. Configs are kept in a bounded LRU
+ * cache with time based expiration, missing names are cached as well. A cached config is replaced only by a config
+ * with greater revision, any cached hierarchy that contains replaced config is invalidated. Cached hierarchies are
+ * indexed by their members, so invalidation doesn't scan the cache. Hierarchies that expire or are invalidated are
+ * kept aside as last known ones, see {@link #findLastKnownConfigWithParents(String)}.
+ *
+ * @author Alexey Venderov
+ */
+public class CachingPropertyConfigRepository implements PropertyConfigRepository {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000L;
+
+    public static final long DEFAULT_EXPIRE_AFTER_WRITE_SECONDS = 60L;
+
+    private final PropertyConfigRepository delegate;
+
+    private final long maximumSize;
+
+    private final Cache<String, Optional<PropertyConfig>> configs;
+
+    private final Cache<String, Map<String, PropertyConfig>> hierarchies;
+
+    private final Cache<String, Map<String, PropertyConfig>> lastKnownHierarchies;
+
+    // Names of cached hierarchies by names of their members, guarded by itself
+    private final SetMultimap<String, String> hierarchiesByMember = HashMultimap.create();
+
+    public CachingPropertyConfigRepository(final PropertyConfigRepository delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public CachingPropertyConfigRepository(final PropertyConfigRepository delegate, final long maximumSize,
+                                           final long expireAfterWrite, final TimeUnit timeUnit) {
+        checkNotNull(delegate, "delegate must not be null");
+        checkArgument(maximumSize > 0, "maximumSize must be greater than zero");
+        checkArgument(expireAfterWrite > 0, "expireAfterWrite must be greater than zero");
+        checkNotNull(timeUnit, "timeUnit must not be null");
+
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.configs = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite, timeUnit)
+                .recordStats().build();
+        this.lastKnownHierarchies = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.hierarchies = CacheBuilder.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, timeUnit).recordStats()
+                .removalListener(new RemovalListener<String, Map<String, PropertyConfig>>() {
+
+                    @Override
+                    public void onRemoval(final RemovalNotification<String, Map<String, PropertyConfig>> removal) {
+                        onHierarchyRemoval(removal);
+                    }
+
+                }).build();
+    }
+
+    @Override
+    public MongoTemplate getMongoTemplate() {
+        return delegate.getMongoTemplate();
+    }
+
+    @Override
+    public PropertyConfig insert(final PropertyConfig propertyConfig) {
+        final PropertyConfig inserted = delegate.insert(propertyConfig);
+        // Drop cached negative hierarchy lookup for the new name
+        hierarchies.invalidate(inserted.getName());
+        cacheConfig(inserted);
+
+        return inserted;
+    }
+
+    @Override
+    public List<PropertyConfig> insertAll(final List<PropertyConfig> propertyConfigs) {
+        final List<PropertyConfig> inserted = delegate.insertAll(propertyConfigs);
+        for (final PropertyConfig propertyConfig : inserted) {
+            hierarchies.invalidate(propertyConfig.getName());
+            cacheConfig(propertyConfig);
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public PropertyConfig update(final String name, final int expectedRevision, final PropertyDelta delta) {
+        final PropertyConfig updated = delegate.update(name, expectedRevision, delta);
+        // Updated config is returned by the delegate, so there is no need to read it again
+        cacheConfig(updated);
+
+        return updated;
+    }
+
+    @Override
+    public boolean checkConfigExist(final String name) {
+        return findConfig(name).isPresent();
+    }
+
+    @Override
+    public Set<String> checkConfigsExist(final Collection<String> names) {
+        return findConfigs(names).keySet();
+    }
+
+    @Override
+    public Optional<PropertyConfig> findConfig(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        final Optional<PropertyConfig> cached = configs.getIfPresent(name);
+        if (cached != null) {
+            return cached;
+        }
+        final Optional<PropertyConfig> loaded = delegate.findConfig(name);
+        if (loaded.isPresent()) {
+            cacheConfig(loaded.get());
+        } else {
+            configs.put(name, loaded);
+        }
+
+        return loaded;
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigs(final Collection<String> names) {
+        checkNotNull(names, "names must not be null");
+
+        final Map<String, PropertyConfig> result = new HashMap<String, PropertyConfig>();
+        final Set<String> missingNames = new HashSet<String>();
+        for (final String name : names) {
+            final Optional<PropertyConfig> cached = configs.getIfPresent(name);
+            if (cached == null) {
+                missingNames.add(name);
+            } else if (cached.isPresent()) {
+                result.put(name, cached.get());
+            }
+        }
+        if (!missingNames.isEmpty()) {
+            final Map<String, PropertyConfig> loaded = delegate.findConfigs(missingNames);
+            for (final String name : missingNames) {
+                final PropertyConfig propertyConfig = loaded.get(name);
+                if (propertyConfig != null) {
+                    cacheConfig(propertyConfig);
+                    result.put(name, propertyConfig);
+                } else {
+                    configs.put(name, Optional.<PropertyConfig>absent());
+                }
+            }
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigWithParents(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        final Map<String, PropertyConfig> cached = hierarchies.getIfPresent(name);
+        if (cached != null) {
+            return cached;
+        }
+        final Map<String, PropertyConfig> loaded = delegate.findConfigWithParents(name);
+        if (loaded.isEmpty()) {
+            configs.put(name, Optional.<PropertyConfig>absent());
+            hierarchies.put(name, Collections.<String, PropertyConfig>emptyMap());
+        } else {
+            for (final PropertyConfig propertyConfig : loaded.values()) {
+                cacheConfig(propertyConfig);
+            }
+            hierarchies.put(name, loaded);
+            indexHierarchy(name, loaded);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Returns cached hierarchy, or the last hierarchy that was cached if it has expired or has been invalidated since.
+     * Never calls the delegate, so it can be used to serve stale configs when the delegate is overloaded.
+     *
+     * @param name config name
+     * @return hierarchy in the order returned by {@link #findConfigWithParents(String)}, empty if the config has not
+     * been cached recently
+     */
+    public Map<String, PropertyConfig> findLastKnownConfigWithParents(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        // Map view doesn't record hits and misses
+        final Map<String, PropertyConfig> cached = hierarchies.asMap().get(name);
+        if (cached != null && !cached.isEmpty()) {
+            return cached;
+        }
+        // Expired hierarchies are handed to the removal listener on clean up only
+        hierarchies.cleanUp();
+        final Map<String, PropertyConfig> lastKnown = lastKnownHierarchies.getIfPresent(name);
+
+        return lastKnown != null ? lastKnown : Collections.<String, PropertyConfig>emptyMap();
+    }
+
+    /**
+     * Caches hierarchy that was loaded by other means, e.g. on startup, as if it was looked up. Hierarchy is not
+     * cached, if a hierarchy of the config is already cached or some member has been replaced by a newer revision.
+     *
+     * @param hierarchy config with its ancestors in the order returned by {@link #findConfigWithParents(String)}
+     */
+    public void warm(final Map<String, PropertyConfig> hierarchy) {
+        checkNotNull(hierarchy, "hierarchy must not be null");
+        checkArgument(!hierarchy.isEmpty(), "hierarchy must not be empty");
+
+        for (final PropertyConfig propertyConfig : hierarchy.values()) {
+            cacheConfig(propertyConfig);
+        }
+        if (!isCurrent(hierarchy)) {
+            return;
+        }
+        final String name = hierarchy.keySet().iterator().next();
+        if (hierarchies.asMap().putIfAbsent(name, hierarchy) == null) {
+            indexHierarchy(name, hierarchy);
+        }
+    }
+
+    /**
+     * Indexes cached hierarchy by its members and invalidates it, if some member has been replaced in the meantime.
+     * Member replaced after the hierarchy is indexed invalidates it by itself, so a stale hierarchy is never left in
+     * the cache.
+     */
+    private void indexHierarchy(final String name, final Map<String, PropertyConfig> hierarchy) {
+        synchronized (hierarchiesByMember) {
+            for (final String member : hierarchy.keySet()) {
+                hierarchiesByMember.put(member, name);
+            }
+        }
+        if (!isCurrent(hierarchy)) {
+            hierarchies.asMap().remove(name, hierarchy);
+        }
+    }
+
+    /**
+     * Checks that every member of the hierarchy is cached with the same revision.
+     */
+    private boolean isCurrent(final Map<String, PropertyConfig> hierarchy) {
+        for (final PropertyConfig propertyConfig : hierarchy.values()) {
+            // Map view doesn't record hits and misses
+            final Optional<PropertyConfig> cached = configs.asMap().get(propertyConfig.getName());
+            if (cached == null || !cached.isPresent() ||
+                    cached.get().getRevision() != propertyConfig.getRevision()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void onHierarchyRemoval(final RemovalNotification<String, Map<String, PropertyConfig>> removal) {
+        final String name = removal.getKey();
+        final Map<String, PropertyConfig> hierarchy = removal.getValue();
+        if (name == null || hierarchy == null || hierarchy.isEmpty()) {
+            return;
+        }
+        // Replaced hierarchy is superseded by the cached one, missing configs are not worth keeping
+        if (removal.getCause() != RemovalCause.REPLACED) {
+            lastKnownHierarchies.put(name, hierarchy);
+        }
+        synchronized (hierarchiesByMember) {
+            // Hierarchy that is cached under the same name now may still contain some of the members
+            final Map<String, PropertyConfig> cached = hierarchies.asMap().get(name);
+            for (final String member : hierarchy.keySet()) {
+                if (cached == null || !cached.containsKey(member)) {
+                    hierarchiesByMember.remove(member, name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts config into the cache unless a config with the same or greater revision is already cached. Cached
+     * hierarchies that contain an older revision of the config are invalidated.
+     */
+    private void cacheConfig(final PropertyConfig propertyConfig) {
+        final String name = propertyConfig.getName();
+        final Optional<PropertyConfig> candidate = Optional.of(propertyConfig);
+        final ConcurrentMap<String, Optional<PropertyConfig>> cachedConfigs = configs.asMap();
+        while (true) {
+            final Optional<PropertyConfig> cached = cachedConfigs.get(name);
+            if (cached == null) {
+                // Previous revision may have been evicted or expired while hierarchies containing it are still cached
+                if (cachedConfigs.putIfAbsent(name, candidate) == null) {
+                    invalidateHierarchiesContaining(propertyConfig);
+                    return;
+                }
+            } else if (cached.isPresent() && cached.get().getRevision() >= propertyConfig.getRevision()) {
+                return;
+            } else if (cachedConfigs.replace(name, cached, candidate)) {
+                invalidateHierarchiesContaining(propertyConfig);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Invalidates cached hierarchies that contain an older revision of the config.
+     */
+    private void invalidateHierarchiesContaining(final PropertyConfig propertyConfig) {
+        final String name = propertyConfig.getName();
+        final Set<String> hierarchyNames;
+        synchronized (hierarchiesByMember) {
+            hierarchyNames = ImmutableSet.copyOf(hierarchiesByMember.get(name));
+        }
+        final ConcurrentMap<String, Map<String, PropertyConfig>> cachedHierarchies = hierarchies.asMap();
+        for (final String hierarchyName : hierarchyNames) {
+            final Map<String, PropertyConfig> hierarchy = cachedHierarchies.get(hierarchyName);
+            final PropertyConfig member = hierarchy != null ? hierarchy.get(name) : null;
+            if (member != null && member.getRevision() < propertyConfig.getRevision()) {
+                cachedHierarchies.remove(hierarchyName, hierarchy);
+            }
+        }
+    }
+
+    /**
+     * Discards all cached configs and hierarchies, including last known ones.
+     */
+    public void invalidateAll() {
+        configs.invalidateAll();
+        hierarchies.invalidateAll();
+        lastKnownHierarchies.invalidateAll();
+        synchronized (hierarchiesByMember) {
+            hierarchiesByMember.clear();
+        }
+    }
+
+    /**
+     * Returns maximum number of configs, as well as of hierarchies, that are kept in the cache.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns hit, miss and eviction statistics of the single config cache. Lookups made by
+     * {@link #checkConfigExist(String)} are counted here as well.
+     *
+     * @return snapshot of the cache statistics
+     */
+    public CacheStats getConfigCacheStats() {
+        return configs.stats();
+    }
+
+    /**
+     * Returns hit, miss and eviction statistics of the cache used by {@link #findConfigWithParents(String)}.
+     *
+     * @return snapshot of the cache statistics
+     */
+    public CacheStats getHierarchyCacheStats() {
+        return hierarchies.stats();
+    }
+
+}
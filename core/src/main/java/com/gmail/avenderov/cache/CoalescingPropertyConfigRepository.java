@@ -0,0 +1,116 @@
+package com.gmail.avenderov.cache;
+
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.gmail.avenderov.utils.SingleFlight;
+import com.google.common.base.Optional;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Lets concurrent lookups of the same config share one call to another {@link PropertyConfigRepository}. Lookups
+ * that arrive while the call is in flight wait for it and get its result, so they may not see a write that completed
+ * after the call had started. Nothing is kept after the call completes. Batch lookups and writes are passed through.
+ *
+ * @author Alexey Venderov
+ */
+public class CoalescingPropertyConfigRepository implements PropertyConfigRepository {
+
+    private final PropertyConfigRepository delegate;
+
+    private final SingleFlight<String, Boolean> existenceChecks = new SingleFlight<String, Boolean>();
+
+    private final SingleFlight<String, Optional<PropertyConfig>> configLookups =
+            new SingleFlight<String, Optional<PropertyConfig>>();
+
+    private final SingleFlight<String, Map<String, PropertyConfig>> hierarchyLookups =
+            new SingleFlight<String, Map<String, PropertyConfig>>();
+
+    public CoalescingPropertyConfigRepository(final PropertyConfigRepository delegate) {
+        checkNotNull(delegate, "delegate must not be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public MongoTemplate getMongoTemplate() {
+        return delegate.getMongoTemplate();
+    }
+
+    @Override
+    public PropertyConfig insert(final PropertyConfig propertyConfig) {
+        return delegate.insert(propertyConfig);
+    }
+
+    @Override
+    public List<PropertyConfig> insertAll(final List<PropertyConfig> propertyConfigs) {
+        return delegate.insertAll(propertyConfigs);
+    }
+
+    @Override
+    public PropertyConfig update(final String name, final int expectedRevision, final PropertyDelta delta) {
+        return delegate.update(name, expectedRevision, delta);
+    }
+
+    @Override
+    public boolean checkConfigExist(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        return existenceChecks.execute(name, new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return delegate.checkConfigExist(name);
+            }
+
+        });
+    }
+
+    @Override
+    public Set<String> checkConfigsExist(final Collection<String> names) {
+        return delegate.checkConfigsExist(names);
+    }
+
+    @Override
+    public Optional<PropertyConfig> findConfig(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        return configLookups.execute(name, new Callable<Optional<PropertyConfig>>() {
+
+            @Override
+            public Optional<PropertyConfig> call() {
+                return delegate.findConfig(name);
+            }
+
+        });
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigs(final Collection<String> names) {
+        return delegate.findConfigs(names);
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigWithParents(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        return hierarchyLookups.execute(name, new Callable<Map<String, PropertyConfig>>() {
+
+            @Override
+            public Map<String, PropertyConfig> call() {
+                return delegate.findConfigWithParents(name);
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.gmail.avenderov.memory;
+
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.gmail.avenderov.mongo.repository.MongoPropertyConfigRepository;
+import com.google.common.base.Optional;
+import org.springframework.dao.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * {@link PropertyConfigRepository} that keeps configs in memory, for tests and embedded deployments. It follows the
+ * semantics of {@link MongoPropertyConfigRepository}: duplicate names and missing parents are rejected, hierarchies
+ * are ordered breadth first and limited in depth.
+ * <p/>
+ * Reads never lock. Writes are serialized, so that a batch is checked and published as a whole. Configs can be
+ * persisted into an append-only journal, which is replayed when the repository is created, the latest revision of
+ * a config wins. A batch becomes visible only after it is synced to the journal. Save events are not published, so
+ * effective configs and change log are not maintained for this repository.
+ *
+ * @author Alexey Venderov
+ */
+public class InMemoryPropertyConfigRepository implements PropertyConfigRepository, Closeable {
+
+    private final ConcurrentMap<String, PropertyConfig> configs = new ConcurrentHashMap<String, PropertyConfig>();
+
+    private final Lock writeLock = new ReentrantLock();
+
+    private final int maxHierarchyDepth;
+
+    private final PropertyConfigJournal journal;
+
+    public InMemoryPropertyConfigRepository() {
+        this(null, MongoPropertyConfigRepository.DEFAULT_MAX_HIERARCHY_DEPTH);
+    }
+
+    /**
+     * Creates repository persisted into the journal file. Configs already in the journal are loaded.
+     *
+     * @param journalFile append-only journal, created if missing
+     */
+    public InMemoryPropertyConfigRepository(final File journalFile) {
+        this(checkNotNull(journalFile, "journalFile must not be null"),
+                MongoPropertyConfigRepository.DEFAULT_MAX_HIERARCHY_DEPTH);
+    }
+
+    public InMemoryPropertyConfigRepository(final File journalFile, final int maxHierarchyDepth) {
+        checkArgument(maxHierarchyDepth > 0, "maxHierarchyDepth must be greater than zero");
+        this.maxHierarchyDepth = maxHierarchyDepth;
+        if (journalFile == null) {
+            this.journal = null;
+        } else {
+            this.journal = new PropertyConfigJournal(journalFile);
+            try {
+                for (final PropertyConfig propertyConfig : journal.replay()) {
+                    configs.put(propertyConfig.getName(), propertyConfig);
+                }
+            } catch (final IOException e) {
+                throw new DataAccessResourceFailureException(format("Failed to replay journal '%1$s'",
+                        journalFile), e);
+            }
+        }
+    }
+
+    @Override
+    public MongoTemplate getMongoTemplate() {
+        throw new UnsupportedOperationException("In-memory repository is not backed by Mongo");
+    }
+
+    @Override
+    public PropertyConfig insert(final PropertyConfig propertyConfig) {
+        checkNotNull(propertyConfig, "propertyConfig must not be null");
+
+        insertAll(Collections.singletonList(propertyConfig));
+
+        return propertyConfig;
+    }
+
+    @Override
+    public List<PropertyConfig> insertAll(final List<PropertyConfig> propertyConfigs) {
+        checkNotNull(propertyConfigs, "propertyConfigs must not be null");
+        if (propertyConfigs.isEmpty()) {
+            return propertyConfigs;
+        }
+
+        writeLock.lock();
+        try {
+            final Set<String> names = new HashSet<String>();
+            for (final PropertyConfig propertyConfig : propertyConfigs) {
+                checkNotNull(propertyConfig, "propertyConfigs must not contain null elements");
+                for (final String parent : propertyConfig.getParents()) {
+                    // Parents that precede the config in the batch will be inserted before it
+                    if (!names.contains(parent) && !configs.containsKey(parent)) {
+                        throw new DataIntegrityViolationException(format("Can't insert new config '%1$s', " +
+                                "because parent '%2$s' is missing", propertyConfig.getName(), parent));
+                    }
+                }
+                if (!names.add(propertyConfig.getName()) || configs.containsKey(propertyConfig.getName())) {
+                    throw new DuplicateKeyException(format("Config '%1$s' already exists",
+                            propertyConfig.getName()));
+                }
+            }
+            publish(propertyConfigs);
+        } finally {
+            writeLock.unlock();
+        }
+
+        return propertyConfigs;
+    }
+
+    @Override
+    public PropertyConfig update(final String name, final int expectedRevision, final PropertyDelta delta) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkNotNull(delta, "delta must not be null");
+
+        writeLock.lock();
+        try {
+            final PropertyConfig current = configs.get(name);
+            if (current == null) {
+                throw new EmptyResultDataAccessException(format("Config '%1$s' doesn't exist", name), 1);
+            }
+            if (current.getRevision() != expectedRevision) {
+                throw new OptimisticLockingFailureException(format("Can't update config '%1$s', because its " +
+                        "revision is not %2$d", name, expectedRevision));
+            }
+            final Map<String, String> properties = delta.applyTo(current.getContent());
+            if (properties.isEmpty()) {
+                throw new DataIntegrityViolationException(format("Can't update config '%1$s', because all its " +
+                        "properties would be removed", name));
+            }
+            final PropertyConfig updated = new PropertyConfig(name, current.getRevision() + 1,
+                    current.getCreatedAt(), Calendar.getInstance().getTime(), current.getParents(), properties);
+            publish(Collections.singletonList(updated));
+
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Makes configs visible to readers, must be called under the write lock.
+     */
+    private void publish(final List<PropertyConfig> propertyConfigs) {
+        if (journal != null) {
+            try {
+                journal.append(propertyConfigs);
+            } catch (final IOException e) {
+                throw new DataAccessResourceFailureException("Failed to append configs to journal", e);
+            }
+        }
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            configs.put(propertyConfig.getName(), propertyConfig);
+        }
+    }
+
+    @Override
+    public boolean checkConfigExist(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        return configs.containsKey(name);
+    }
+
+    @Override
+    public Set<String> checkConfigsExist(final Collection<String> names) {
+        return findConfigs(names).keySet();
+    }
+
+    @Override
+    public Optional<PropertyConfig> findConfig(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        return Optional.fromNullable(configs.get(name));
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigs(final Collection<String> names) {
+        checkNotNull(names, "names must not be null");
+
+        final Map<String, PropertyConfig> result = new HashMap<String, PropertyConfig>();
+        for (final String name : names) {
+            final PropertyConfig propertyConfig = configs.get(name);
+            if (propertyConfig != null) {
+                result.put(name, propertyConfig);
+            }
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigWithParents(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        final PropertyConfig propertyConfig = configs.get(name);
+        if (propertyConfig == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, PropertyConfig> result = new LinkedHashMap<String, PropertyConfig>();
+        result.put(name, propertyConfig);
+        List<PropertyConfig> level = Collections.singletonList(propertyConfig);
+        for (int depth = 1; !level.isEmpty(); depth++) {
+            final List<PropertyConfig> nextLevel = new ArrayList<PropertyConfig>();
+            for (final PropertyConfig current : level) {
+                for (final String parentName : current.getParents()) {
+                    if (!result.containsKey(parentName)) {
+                        checkState(depth <= maxHierarchyDepth, "Hierarchy of '%s' config is deeper than %s levels",
+                                name, maxHierarchyDepth);
+                        final PropertyConfig parent = configs.get(parentName);
+                        // Configs are never deleted, so parents can't go missing
+                        checkState(parent != null, "Parent '%s' of '%s' config is missing", parentName,
+                                current.getName());
+                        result.put(parentName, parent);
+                        nextLevel.add(parent);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Closes the journal, if there is one. Configs stay readable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            writeLock.lock();
+            try {
+                journal.close();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+}
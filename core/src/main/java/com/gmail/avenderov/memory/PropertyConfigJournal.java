@@ -0,0 +1,192 @@
+package com.gmail.avenderov.memory;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.google.common.base.Charsets;
+import com.google.common.io.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Append-only file of inserted configs. Every batch is synced to disk before it becomes visible to readers. A record
+ * that was not written completely, e.g. because of a crash, is cut off on replay. A batch that fails to be written is
+ * cut off right away, if even that fails, the journal rejects all further batches.
+ *
+ * @author Alexey Venderov
+ */
+class PropertyConfigJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyConfigJournal.class);
+
+    private static final int RECORD_MARKER = 0x50524F50;
+
+    private final File file;
+
+    private FileOutputStream fileOutputStream;
+
+    private DataOutputStream outputStream;
+
+    // Length of the file up to the end of the last complete record
+    private long validLength;
+
+    private IOException failure;
+
+    PropertyConfigJournal(final File file) {
+        checkNotNull(file, "file must not be null");
+        this.file = file;
+    }
+
+    /**
+     * Reads all complete records and opens the journal for appending after the last of them.
+     *
+     * @return configs in the order they were appended
+     * @throws IOException if journal can't be read or opened
+     */
+    List<PropertyConfig> replay() throws IOException {
+        final List<PropertyConfig> propertyConfigs = new ArrayList<PropertyConfig>();
+        long validLength = 0;
+        if (file.isFile()) {
+            final CountingInputStream countingInputStream = new CountingInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+            final DataInputStream inputStream = new DataInputStream(countingInputStream);
+            try {
+                while (true) {
+                    propertyConfigs.add(readRecord(inputStream));
+                    validLength = countingInputStream.getCount();
+                }
+            } catch (final EOFException e) {
+                if (countingInputStream.getCount() != validLength) {
+                    LOGGER.warn("Incomplete record at the end of journal '{}' is discarded", file);
+                }
+            } finally {
+                inputStream.close();
+            }
+            truncate(validLength);
+        }
+        this.validLength = validLength;
+        open();
+
+        return propertyConfigs;
+    }
+
+    /**
+     * Appends configs and syncs them to disk.
+     *
+     * @param propertyConfigs configs to append
+     * @throws IOException if configs can't be written, none of them is in the journal then
+     */
+    void append(final List<PropertyConfig> propertyConfigs) throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal is unusable after a failed write " + file, failure);
+        }
+        try {
+            for (final PropertyConfig propertyConfig : propertyConfigs) {
+                writeRecord(propertyConfig);
+            }
+            outputStream.flush();
+            fileOutputStream.getFD().sync();
+            validLength = fileOutputStream.getChannel().position();
+        } catch (final IOException e) {
+            discardIncompleteBatch(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Cuts off records of the failed batch, that could be partially written or still buffered, and reopens the
+     * journal after the last complete record.
+     */
+    private void discardIncompleteBatch(final IOException cause) {
+        try {
+            // Buffered stream is not closed, it would write the rest of the batch
+            fileOutputStream.close();
+            truncate(validLength);
+            open();
+        } catch (final IOException e) {
+            LOGGER.error("Failed to cut off incomplete batch in journal " + file + ", journal is unusable", e);
+            failure = cause;
+        }
+    }
+
+    private void open() throws IOException {
+        fileOutputStream = new FileOutputStream(file, true);
+        outputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+    }
+
+    private void truncate(final long length) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (outputStream != null) {
+            outputStream.close();
+        }
+    }
+
+    private void writeRecord(final PropertyConfig propertyConfig) throws IOException {
+        outputStream.writeInt(RECORD_MARKER);
+        writeString(propertyConfig.getName());
+        outputStream.writeInt(propertyConfig.getRevision());
+        outputStream.writeLong(propertyConfig.getCreatedAt().getTime());
+        outputStream.writeLong(propertyConfig.getLastModifiedAt().getTime());
+        outputStream.writeInt(propertyConfig.getParents().size());
+        for (final String parent : propertyConfig.getParents()) {
+            writeString(parent);
+        }
+        outputStream.writeInt(propertyConfig.getContent().size());
+        for (final Map.Entry<String, String> property : propertyConfig.getContent().entrySet()) {
+            writeString(property.getKey());
+            writeString(property.getValue());
+        }
+    }
+
+    private void writeString(final String value) throws IOException {
+        // DataOutput.writeUTF is limited to 64KB
+        final byte[] bytes = value.getBytes(Charsets.UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    private PropertyConfig readRecord(final DataInputStream inputStream) throws IOException {
+        if (inputStream.readInt() != RECORD_MARKER) {
+            throw new IOException("Journal is corrupted " + file);
+        }
+        final String name = readString(inputStream);
+        final int revision = inputStream.readInt();
+        final Date createdAt = new Date(inputStream.readLong());
+        final Date lastModifiedAt = new Date(inputStream.readLong());
+        final int parentCount = inputStream.readInt();
+        final Set<String> parents = new LinkedHashSet<String>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            parents.add(readString(inputStream));
+        }
+        final int propertyCount = inputStream.readInt();
+        final Map<String, String> properties = new LinkedHashMap<String, String>(propertyCount);
+        for (int i = 0; i < propertyCount; i++) {
+            properties.put(readString(inputStream), readString(inputStream));
+        }
+
+        return new PropertyConfig(name, revision, createdAt, lastModifiedAt, parents, properties);
+    }
+
+    private String readString(final DataInputStream inputStream) throws IOException {
+        final int length = inputStream.readInt();
+        if (length < 0 || length > file.length()) {
+            throw new IOException("Journal is corrupted " + file);
+        }
+        final byte[] bytes = new byte[length];
+        inputStream.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+}
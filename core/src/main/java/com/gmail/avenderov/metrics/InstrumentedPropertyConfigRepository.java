@@ -0,0 +1,192 @@
+package com.gmail.avenderov.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.metrics.Metrics.OperationMetrics;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigResolver;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records latency, number of calls and failures of every operation of another {@link PropertyConfigRepository}.
+ * Number of properties of found configs, number of configs in found hierarchies and their depth, the number of
+ * ancestor levels above the config, are recorded as well. Metrics are named after {@link PropertyConfigRepository}
+ * and the operation, e.g.
+ * {@code com.gmail.avenderov.api.repository.PropertyConfigRepository.findConfig}.
+ *
+ * @author Alexey Venderov
+ */
+public class InstrumentedPropertyConfigRepository implements PropertyConfigRepository {
+
+    private final PropertyConfigRepository delegate;
+
+    private final OperationMetrics insert;
+
+    private final OperationMetrics insertAll;
+
+    private final OperationMetrics update;
+
+    private final OperationMetrics checkConfigExist;
+
+    private final OperationMetrics checkConfigsExist;
+
+    private final OperationMetrics findConfig;
+
+    private final OperationMetrics findConfigs;
+
+    private final OperationMetrics findConfigWithParents;
+
+    private final Histogram propertyCount;
+
+    private final Histogram hierarchySize;
+
+    private final Histogram hierarchyDepth;
+
+    public InstrumentedPropertyConfigRepository(final PropertyConfigRepository delegate,
+                                                final MetricRegistry registry) {
+        checkNotNull(delegate, "delegate must not be null");
+        checkNotNull(registry, "registry must not be null");
+
+        this.delegate = delegate;
+        final String prefix = PropertyConfigRepository.class.getName();
+        this.insert = new OperationMetrics(registry, name(prefix, "insert"));
+        this.insertAll = new OperationMetrics(registry, name(prefix, "insertAll"));
+        this.update = new OperationMetrics(registry, name(prefix, "update"));
+        this.checkConfigExist = new OperationMetrics(registry, name(prefix, "checkConfigExist"));
+        this.checkConfigsExist = new OperationMetrics(registry, name(prefix, "checkConfigsExist"));
+        this.findConfig = new OperationMetrics(registry, name(prefix, "findConfig"));
+        this.findConfigs = new OperationMetrics(registry, name(prefix, "findConfigs"));
+        this.findConfigWithParents = new OperationMetrics(registry, name(prefix, "findConfigWithParents"));
+        this.propertyCount = Metrics.histogram(registry, name(prefix, "propertyCount"));
+        this.hierarchySize = Metrics.histogram(registry, name(prefix, "hierarchySize"));
+        this.hierarchyDepth = Metrics.histogram(registry, name(prefix, "hierarchyDepth"));
+    }
+
+    @Override
+    public MongoTemplate getMongoTemplate() {
+        return delegate.getMongoTemplate();
+    }
+
+    @Override
+    public PropertyConfig insert(final PropertyConfig propertyConfig) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final PropertyConfig inserted = delegate.insert(propertyConfig);
+            failed = false;
+            return inserted;
+        } finally {
+            insert.update(start, failed);
+        }
+    }
+
+    @Override
+    public List<PropertyConfig> insertAll(final List<PropertyConfig> propertyConfigs) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final List<PropertyConfig> inserted = delegate.insertAll(propertyConfigs);
+            failed = false;
+            return inserted;
+        } finally {
+            insertAll.update(start, failed);
+        }
+    }
+
+    @Override
+    public PropertyConfig update(final String name, final int expectedRevision, final PropertyDelta delta) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final PropertyConfig updated = delegate.update(name, expectedRevision, delta);
+            failed = false;
+            return updated;
+        } finally {
+            update.update(start, failed);
+        }
+    }
+
+    @Override
+    public boolean checkConfigExist(final String name) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final boolean exists = delegate.checkConfigExist(name);
+            failed = false;
+            return exists;
+        } finally {
+            checkConfigExist.update(start, failed);
+        }
+    }
+
+    @Override
+    public Set<String> checkConfigsExist(final Collection<String> names) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Set<String> existingNames = delegate.checkConfigsExist(names);
+            failed = false;
+            return existingNames;
+        } finally {
+            checkConfigsExist.update(start, failed);
+        }
+    }
+
+    @Override
+    public Optional<PropertyConfig> findConfig(final String name) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Optional<PropertyConfig> propertyConfig = delegate.findConfig(name);
+            failed = false;
+            if (propertyConfig.isPresent()) {
+                propertyCount.update(propertyConfig.get().getContent().size());
+            }
+            return propertyConfig;
+        } finally {
+            findConfig.update(start, failed);
+        }
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigs(final Collection<String> names) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Map<String, PropertyConfig> propertyConfigs = delegate.findConfigs(names);
+            failed = false;
+            return propertyConfigs;
+        } finally {
+            findConfigs.update(start, failed);
+        }
+    }
+
+    @Override
+    public Map<String, PropertyConfig> findConfigWithParents(final String name) {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Map<String, PropertyConfig> hierarchy = delegate.findConfigWithParents(name);
+            failed = false;
+            if (!hierarchy.isEmpty()) {
+                hierarchySize.update(hierarchy.size());
+                hierarchyDepth.update(PropertyConfigResolver.depth(hierarchy));
+            }
+            return hierarchy;
+        } finally {
+            findConfigWithParents.update(start, failed);
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.gmail.avenderov.metrics;
+
+import com.codahale.metrics.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Factory of timers and histograms that keep all measurements of a time window. Updates don't lock, so that hot
+ * paths don't contend on the metrics, and percentiles are computed from every measurement of the window, so that
+ * even {@code p999} is meaningful under load. Default reservoirs of the registry lock on update and keep a sample
+ * of about a thousand measurements.
+ *
+ * @author Alexey Venderov
+ */
+public final class Metrics {
+
+    /**
+     * Length of the window that percentiles are computed from.
+     */
+    public static final long WINDOW_SECONDS = 60L;
+
+    private Metrics() {
+    }
+
+    public static Timer timer(final MetricRegistry registry, final String name) {
+        checkNotNull(registry, "registry must not be null");
+
+        try {
+            return registry.register(name, new Timer(newReservoir()));
+        } catch (final IllegalArgumentException e) {
+            // Already registered by another instance
+            return registry.timer(name);
+        }
+    }
+
+    public static Histogram histogram(final MetricRegistry registry, final String name) {
+        checkNotNull(registry, "registry must not be null");
+
+        try {
+            return registry.register(name, new Histogram(newReservoir()));
+        } catch (final IllegalArgumentException e) {
+            return registry.histogram(name);
+        }
+    }
+
+    private static Reservoir newReservoir() {
+        return new SlidingTimeWindowReservoir(WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Latency, number of calls and number of failed calls of a single operation. Failed calls are included in
+     * latency and number of calls.
+     */
+    public static final class OperationMetrics {
+
+        private final Timer timer;
+
+        private final Meter errors;
+
+        public OperationMetrics(final MetricRegistry registry, final String name) {
+            this.timer = timer(registry, name);
+            this.errors = registry.meter(MetricRegistry.name(name, "errors"));
+        }
+
+        /**
+         * Records call that started at the given {@link System#nanoTime()}.
+         */
+        public void update(final long startNanos, final boolean failed) {
+            timer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (failed) {
+                errors.mark();
+            }
+        }
+
+    }
+
+}
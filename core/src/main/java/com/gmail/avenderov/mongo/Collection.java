@@ -7,6 +7,19 @@ public final class Collection {
 
     public static final String PROPERTIES = "props";
 
+    public static final String EFFECTIVE_PROPERTIES = "effective_props";
+
+    public static final String CHANGES = "props_changes";
+
+    public static final String HISTORY = "props_history";
+
+    public static final String BLOBS = "blobs";
+
+    /**
+     * GridFS bucket of blob contents that are too large to be kept in {@link #BLOBS} documents.
+     */
+    public static final String BLOB_FILES = "blob_files";
+
     private Collection() {
     }
 
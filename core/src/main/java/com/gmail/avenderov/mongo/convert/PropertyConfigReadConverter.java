@@ -0,0 +1,69 @@
+package com.gmail.avenderov.mongo.convert;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.DBObject;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reads {@link PropertyConfig} from the document decoded by the driver without reflection. Parents and properties
+ * are validated in place, properties are passed to the constructor as they are, so that they are copied only once
+ * into the compact map. Reads documents written by the reflective mapping as well.
+ *
+ * @author Alexey Venderov
+ */
+@ReadingConverter
+public class PropertyConfigReadConverter implements Converter<DBObject, PropertyConfig> {
+
+    @Override
+    public PropertyConfig convert(final DBObject source) {
+        final Object revision = source.get(PropertyConfigWriteConverter.REVISION_FIELD);
+        checkArgument(revision instanceof Number, "revision must be a number");
+
+        return new PropertyConfig((String) source.get(PropertyConfigWriteConverter.ID_FIELD),
+                ((Number) revision).intValue(),
+                (Date) source.get(PropertyConfigWriteConverter.CREATED_AT_FIELD),
+                (Date) source.get(PropertyConfigWriteConverter.LAST_MODIFIED_AT_FIELD),
+                readParents(source.get(PropertyConfigWriteConverter.PARENTS_FIELD)),
+                readProperties(source.get(PropertyConfigWriteConverter.PROPERTIES_FIELD)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ImmutableSet<String> readParents(final Object value) {
+        if (value == null) {
+            return ImmutableSet.of();
+        }
+        checkArgument(value instanceof Collection, "parents must be an array");
+        final Collection<?> parents = (Collection<?>) value;
+        for (final Object parent : parents) {
+            checkArgument(parent instanceof String, "parents must be strings");
+        }
+
+        return ImmutableSet.copyOf((Collection<String>) parents);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> readProperties(final Object value) {
+        if (value == null) {
+            return ImmutableMap.of();
+        }
+        // BasicDBObject is a map itself, DBObject.toMap() would copy it
+        checkArgument(value instanceof Map, "properties must be a document");
+        final Map<String, ?> properties = (Map<String, ?>) value;
+        for (final Map.Entry<String, ?> property : properties.entrySet()) {
+            checkArgument(property.getValue() instanceof String, "value of property '%s' must be a string",
+                    property.getKey());
+        }
+
+        return (Map<String, String>) properties;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.gmail.avenderov.mongo.convert;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mapping.model.MappingException;
+
+import static java.lang.String.format;
+
+/**
+ * Writes {@link PropertyConfig} into the same document as the reflective mapping does, without the type hint. Parents
+ * and properties are put as they are, the driver encodes any map and iterable, so they are not copied. Keys with
+ * dots are rejected the same way as by the reflective mapping.
+ *
+ * @author Alexey Venderov
+ */
+@WritingConverter
+public class PropertyConfigWriteConverter implements Converter<PropertyConfig, DBObject> {
+
+    static final String ID_FIELD = "_id";
+
+    static final String REVISION_FIELD = "revision";
+
+    static final String CREATED_AT_FIELD = "createdAt";
+
+    static final String LAST_MODIFIED_AT_FIELD = "lastModifiedAt";
+
+    static final String PARENTS_FIELD = "parents";
+
+    static final String PROPERTIES_FIELD = "properties";
+
+    @Override
+    public DBObject convert(final PropertyConfig source) {
+        for (final String key : source.getContent().keySet()) {
+            if (key.indexOf('.') >= 0) {
+                throw new MappingException(format("Property key '%1$s' of '%2$s' config contains dots", key,
+                        source.getName()));
+            }
+        }
+
+        return new BasicDBObject(ID_FIELD, source.getName())
+                .append(REVISION_FIELD, source.getRevision())
+                .append(CREATED_AT_FIELD, source.getCreatedAt())
+                .append(LAST_MODIFIED_AT_FIELD, source.getLastModifiedAt())
+                .append(PARENTS_FIELD, source.getParents())
+                .append(PROPERTIES_FIELD, source.getContent());
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.gmail.avenderov.api.Config;
+import com.google.common.io.ByteSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Config of {@link Config.Type#LARGE_TEXT} or {@link Config.Type#BINARY} type. Content is stored gzip-compressed and
+ * is never loaded into memory as a whole, it is decompressed as the stream returned by {@link #getContent()} is read.
+ *
+ * @author Alexey Venderov
+ */
+public class BlobConfig implements Config<ByteSource> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String name;
+
+    private final int revision;
+
+    private final Date createdAt;
+
+    private final Date lastModifiedAt;
+
+    private final Type type;
+
+    private final long length;
+
+    private final long compressedLength;
+
+    private final String md5;
+
+    private final ByteSource compressedContent;
+
+    private final ByteSource content;
+
+    /**
+     * @param length            length of the content
+     * @param compressedLength  length of the compressed content
+     * @param md5               hex encoded MD5 digest of the content
+     * @param compressedContent gzip-compressed content
+     */
+    public BlobConfig(final String name, final int revision, final Date createdAt, final Date lastModifiedAt,
+                      final Type type, final long length, final long compressedLength, final String md5,
+                      final ByteSource compressedContent) {
+        checkArgument(isNotBlank(name), "name must not be null");
+        checkArgument(revision > 0, "revision must be greater than zero");
+        checkNotNull(createdAt, "createdAt must not be null");
+        checkNotNull(lastModifiedAt, "lastModifiedAt must not be null");
+        checkArgument(isBlobType(type), "type must be either LARGE_TEXT or BINARY");
+        checkArgument(length >= 0, "length must not be negative");
+        checkArgument(compressedLength >= 0, "compressedLength must not be negative");
+        checkArgument(isNotBlank(md5), "md5 must not be null");
+        checkNotNull(compressedContent, "compressedContent must not be null");
+
+        this.name = name;
+        this.revision = revision;
+        this.createdAt = createdAt;
+        this.lastModifiedAt = lastModifiedAt;
+        this.type = type;
+        this.length = length;
+        this.compressedLength = compressedLength;
+        this.md5 = md5;
+        this.compressedContent = compressedContent;
+        this.content = new DecompressingByteSource(compressedContent, length);
+    }
+
+    public static boolean isBlobType(final Type type) {
+        return type == Type.LARGE_TEXT || type == Type.BINARY;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getRevision() {
+        return revision;
+    }
+
+    @Override
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public Date getLastModifiedAt() {
+        return lastModifiedAt;
+    }
+
+    @Override
+    public Type getConfigType() {
+        return type;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getCompressedLength() {
+        return compressedLength;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    /**
+     * Returns content as it was stored. Slices of the content are read by decompressing and skipping the preceding
+     * bytes, the compression format doesn't allow to seek.
+     *
+     * @return content, its {@link ByteSource#size()} is known without reading it
+     */
+    @Override
+    public ByteSource getContent() {
+        return content;
+    }
+
+    /**
+     * Returns gzip-compressed content, that can be sent to clients that accept gzip encoding as it is.
+     *
+     * @return compressed content
+     */
+    public ByteSource getCompressedContent() {
+        return compressedContent;
+    }
+
+    private static final class DecompressingByteSource extends ByteSource {
+
+        private final ByteSource compressedContent;
+
+        private final long length;
+
+        private DecompressingByteSource(final ByteSource compressedContent, final long length) {
+            this.compressedContent = compressedContent;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            final InputStream inputStream = compressedContent.openStream();
+            try {
+                return new GZIPInputStream(inputStream, BUFFER_SIZE);
+            } catch (final IOException e) {
+                inputStream.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public long size() {
+            return length;
+        }
+
+    }
+
+}
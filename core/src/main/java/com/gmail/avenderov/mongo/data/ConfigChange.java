@@ -0,0 +1,64 @@
+package com.gmail.avenderov.mongo.data;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Entry of the change log. Change log is kept in capped collection, so it can be followed with tailable cursor.
+ *
+ * @author Alexey Venderov
+ */
+@Document(collection = "props_changes")
+public class ConfigChange {
+
+    @Id
+    private final ObjectId id;
+
+    private final String name;
+
+    private final int revision;
+
+    private final Date changedAt;
+
+    public ConfigChange(final String name, final int revision, final Date changedAt) {
+        this(new ObjectId(), name, revision, changedAt);
+    }
+
+    @PersistenceConstructor
+    public ConfigChange(final ObjectId id, final String name, final int revision, final Date changedAt) {
+        checkNotNull(id, "id must not be null");
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkArgument(revision > 0, "revision must be greater than zero");
+        checkNotNull(changedAt, "changedAt must not be null");
+
+        this.id = id;
+        this.name = name;
+        this.revision = revision;
+        this.changedAt = changedAt;
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+
+}
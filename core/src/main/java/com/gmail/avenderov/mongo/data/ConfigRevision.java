@@ -0,0 +1,179 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Entry of config history. An entry is either a checkpoint that holds all properties of the revision or a key level
+ * delta against the previous revision.
+ *
+ * @author Alexey Venderov
+ */
+@Document(collection = "props_history")
+@CompoundIndexes(@CompoundIndex(name = "name_revision", def = "{'name': 1, 'revision': 1}", unique = true))
+public class ConfigRevision {
+
+    @Id
+    private final ObjectId id;
+
+    private final String name;
+
+    private final int revision;
+
+    private final Date recordedAt;
+
+    private final Map<String, String> properties;
+
+    private final Map<String, String> set;
+
+    private final Set<String> unset;
+
+    @PersistenceConstructor
+    public ConfigRevision(final ObjectId id, final String name, final int revision, final Date recordedAt,
+                          final Map<String, String> properties, final Map<String, String> set,
+                          final Set<String> unset) {
+        checkNotNull(id, "id must not be null");
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkArgument(revision > 0, "revision must be greater than zero");
+        checkNotNull(recordedAt, "recordedAt must not be null");
+        checkArgument(properties != null || (set != null && unset != null),
+                "either properties or delta must be specified");
+
+        this.id = id;
+        this.name = name;
+        this.revision = revision;
+        this.recordedAt = recordedAt;
+        this.properties = properties == null ? null : ImmutableMap.copyOf(properties);
+        this.set = set == null ? null : ImmutableMap.copyOf(set);
+        this.unset = unset == null ? null : ImmutableSet.copyOf(unset);
+    }
+
+    public static ConfigRevision checkpoint(final String name, final int revision, final Date recordedAt,
+                                            final Map<String, String> properties) {
+        checkNotNull(properties, "properties must not be null");
+        return new ConfigRevision(new ObjectId(), name, revision, recordedAt, properties, null, null);
+    }
+
+    public static ConfigRevision delta(final String name, final int revision, final Date recordedAt,
+                                       final PropertyDelta delta) {
+        checkNotNull(delta, "delta must not be null");
+        return new ConfigRevision(new ObjectId(), name, revision, recordedAt, null, delta.getSet(),
+                delta.getUnset());
+    }
+
+    /**
+     * Restores properties of a revision from history entries. Entries have to be sorted by revision, the closest
+     * checkpoint not after the requested revision is taken and all following deltas up to the requested revision are
+     * applied to it.
+     *
+     * @param revisions history entries of a single config sorted by revision
+     * @param revision revision to restore
+     * @return properties of the revision or absent if entries don't cover it without gaps
+     */
+    public static Optional<Map<String, String>> replay(final List<ConfigRevision> revisions, final int revision) {
+        checkNotNull(revisions, "revisions must not be null");
+
+        int start = -1;
+        for (int i = revisions.size() - 1; i >= 0; i--) {
+            final ConfigRevision configRevision = revisions.get(i);
+            if (configRevision.isCheckpoint() && configRevision.getRevision() <= revision) {
+                start = i;
+                break;
+            }
+        }
+        if (start < 0) {
+            return Optional.absent();
+        }
+
+        Map<String, String> properties = revisions.get(start).getProperties();
+        int current = revisions.get(start).getRevision();
+        for (int i = start + 1; i < revisions.size() && current < revision; i++) {
+            final ConfigRevision configRevision = revisions.get(i);
+            if (configRevision.getRevision() != current + 1) {
+                return Optional.absent();
+            }
+            properties = configRevision.applyTo(properties);
+            current = configRevision.getRevision();
+        }
+
+        return current == revision ? Optional.of(properties) : Optional.<Map<String, String>>absent();
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public Date getRecordedAt() {
+        return recordedAt;
+    }
+
+    public boolean isCheckpoint() {
+        return properties != null;
+    }
+
+    /**
+     * Returns all properties of the revision if entry is a checkpoint or {@code null} otherwise.
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns properties added or replaced by the revision if entry is a delta or {@code null} otherwise.
+     */
+    public Map<String, String> getSet() {
+        return set;
+    }
+
+    /**
+     * Returns keys of properties removed by the revision if entry is a delta or {@code null} otherwise.
+     */
+    public Set<String> getUnset() {
+        return unset;
+    }
+
+    /**
+     * Computes properties of this revision from properties of the previous one. Previous properties are ignored if
+     * entry is a checkpoint.
+     *
+     * @param previous properties of the previous revision
+     * @return properties of this revision
+     */
+    public Map<String, String> applyTo(final Map<String, String> previous) {
+        if (isCheckpoint()) {
+            return properties;
+        }
+        checkNotNull(previous, "previous must not be null");
+
+        final Map<String, String> result = new LinkedHashMap<String, String>(previous);
+        result.keySet().removeAll(unset);
+        result.putAll(set);
+        return result;
+    }
+
+}
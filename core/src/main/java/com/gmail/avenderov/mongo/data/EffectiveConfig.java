@@ -0,0 +1,72 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.collections.MapUtils.isNotEmpty;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Properties of a config merged with properties of all its ancestors.
+ *
+ * @author Alexey Venderov
+ */
+@Document(collection = "effective_props")
+public class EffectiveConfig {
+
+    @Id
+    private final String name;
+
+    private final Map<String, Integer> revisions;
+
+    private final Date computedAt;
+
+    private final Map<String, String> properties;
+
+    public EffectiveConfig(final String name, final Map<String, Integer> revisions, final Date computedAt,
+                           final Map<String, String> properties) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkArgument(isNotEmpty(revisions), "revisions must not be empty");
+        checkArgument(revisions.containsKey(name), "revisions must contain revision of the config itself");
+        checkNotNull(computedAt, "computedAt must not be null");
+        checkArgument(isNotEmpty(properties), "properties must not be empty");
+
+        this.name = name;
+        this.revisions = ImmutableMap.copyOf(revisions);
+        this.computedAt = computedAt;
+        this.properties = ImmutableMap.copyOf(properties);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns revision of the config itself.
+     */
+    public int getRevision() {
+        return revisions.get(name);
+    }
+
+    /**
+     * Returns revisions of the config and its ancestors that effective properties were computed from.
+     */
+    public Map<String, Integer> getRevisions() {
+        return revisions;
+    }
+
+    public Date getComputedAt() {
+        return computedAt;
+    }
+
+    public Map<String, String> getContent() {
+        return properties;
+    }
+
+}
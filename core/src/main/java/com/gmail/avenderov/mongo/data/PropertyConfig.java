@@ -1,10 +1,11 @@
 package com.gmail.avenderov.mongo.data;
 
 import com.gmail.avenderov.api.Config;
-import com.google.common.collect.ImmutableMap;
+import com.gmail.avenderov.utils.CompactMaps;
 import com.google.common.collect.ImmutableSet;
 import org.apache.commons.collections.CollectionUtils;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -31,6 +32,8 @@ public class PropertyConfig {
 
     private final Date lastModifiedAt;
 
+    // Index is used to find children of a config
+    @Indexed
     private final Set<String> parents;
 
     private final Map<String, String> properties;
@@ -47,8 +50,9 @@ public class PropertyConfig {
         this.revision = revision;
         this.createdAt = createdAt;
         this.lastModifiedAt = lastModifiedAt;
-        this.parents = CollectionUtils.isNotEmpty(parents) ? ImmutableSet.copyOf(parents) : ImmutableSet.<String>of();
-        this.properties = ImmutableMap.copyOf(properties);
+        // Thousands of configs repeat the same parents, keys and values
+        this.parents = CollectionUtils.isNotEmpty(parents) ? CompactMaps.copyOf(parents) : ImmutableSet.<String>of();
+        this.properties = CompactMaps.copyOf(properties);
     }
 
     public String getName() {
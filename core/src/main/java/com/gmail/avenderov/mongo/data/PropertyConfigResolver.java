@@ -0,0 +1,147 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * @author Alexey Venderov
+ */
+public class PropertyConfigResolver {
+
+    private PropertyConfigResolver() {
+    }
+
+    /**
+     * Orders the config and its ancestors breadth first, parents of every config in the order they are declared.
+     * This is the order {@link #resolve(Map)} expects.
+     *
+     * @param propertyConfig config to build hierarchy of
+     * @param ancestors configs that include all ancestors of the config, other configs are ignored
+     * @return immutable hierarchy of the config, starting with the config itself
+     */
+    public static Map<String, PropertyConfig> orderHierarchy(final PropertyConfig propertyConfig,
+                                                             final Map<String, PropertyConfig> ancestors) {
+        checkNotNull(propertyConfig, "propertyConfig must not be null");
+        checkNotNull(ancestors, "ancestors must not be null");
+
+        final Map<String, PropertyConfig> result = new LinkedHashMap<String, PropertyConfig>();
+        result.put(propertyConfig.getName(), propertyConfig);
+        final Queue<PropertyConfig> queue = new LinkedList<PropertyConfig>();
+        queue.add(propertyConfig);
+        while (!queue.isEmpty()) {
+            final PropertyConfig current = queue.remove();
+            for (final String parentName : current.getParents()) {
+                if (!result.containsKey(parentName)) {
+                    final PropertyConfig parent = ancestors.get(parentName);
+                    // This check should always be true, because we are not going to delete config files
+                    checkState(parent != null, "Parent '%s' of '%s' config is missing in database", parentName,
+                            current.getName());
+                    result.put(parentName, parent);
+                    queue.add(parent);
+                }
+            }
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Computes the number of ancestor levels above the config, the same way as the hierarchy depth is limited: level
+     * of an ancestor is the length of the shortest path to it.
+     *
+     * @param hierarchy config with its ancestors in the order returned by {@link #orderHierarchy(PropertyConfig, Map)}
+     * @return depth of the hierarchy, zero if the config has no parents or hierarchy is empty
+     */
+    public static int depth(final Map<String, PropertyConfig> hierarchy) {
+        checkNotNull(hierarchy, "hierarchy must not be null");
+
+        final Map<String, Integer> levels = new HashMap<String, Integer>();
+        int depth = 0;
+        for (final PropertyConfig propertyConfig : hierarchy.values()) {
+            // Configs come breadth first, so the level of every config is known before it is reached
+            final Integer level = levels.get(propertyConfig.getName());
+            final int current = level != null ? level : 0;
+            depth = Math.max(depth, current);
+            for (final String parentName : propertyConfig.getParents()) {
+                if (!levels.containsKey(parentName)) {
+                    levels.put(parentName, current + 1);
+                }
+            }
+        }
+
+        return depth;
+    }
+
+    /**
+     * Merges properties of the config hierarchy into one map. Hierarchy is expected in the order returned by
+     * {@link com.gmail.avenderov.api.repository.PropertyConfigRepository#findConfigWithParents(String)}, value of
+     * the config that comes first wins, so the config overrides its parents and parent declared first overrides
+     * parents declared after it.
+     *
+     * @param hierarchy config with its ancestors
+     * @return immutable map of effective properties, empty if hierarchy is empty
+     */
+    public static Map<String, String> resolve(final Map<String, PropertyConfig> hierarchy) {
+        checkNotNull(hierarchy, "hierarchy must not be null");
+
+        final Map<String, String> properties = new LinkedHashMap<String, String>();
+        for (final PropertyConfig propertyConfig : hierarchy.values()) {
+            for (final Map.Entry<String, String> property : propertyConfig.getContent().entrySet()) {
+                if (!properties.containsKey(property.getKey())) {
+                    properties.put(property.getKey(), property.getValue());
+                }
+            }
+        }
+
+        return ImmutableMap.copyOf(properties);
+    }
+
+    /**
+     * Resolves single property of the config hierarchy, the same way as {@link #resolve(Map)} does.
+     *
+     * @param hierarchy config with its ancestors
+     * @param key property key
+     * @return value of the property from the first config in hierarchy that has it, absent if none has
+     */
+    public static Optional<String> resolve(final Map<String, PropertyConfig> hierarchy, final String key) {
+        checkNotNull(hierarchy, "hierarchy must not be null");
+        checkNotNull(key, "key must not be null");
+
+        for (final PropertyConfig propertyConfig : hierarchy.values()) {
+            final String value = propertyConfig.getContent().get(key);
+            if (value != null) {
+                return Optional.of(value);
+            }
+        }
+
+        return Optional.absent();
+    }
+
+    /**
+     * Collects revisions of all configs in the hierarchy.
+     *
+     * @param hierarchy config with its ancestors
+     * @return immutable map of config names to revisions that keeps iteration order of the hierarchy
+     */
+    public static Map<String, Integer> revisions(final Map<String, PropertyConfig> hierarchy) {
+        checkNotNull(hierarchy, "hierarchy must not be null");
+
+        final ImmutableMap.Builder<String, Integer> revisions = ImmutableMap.builder();
+        for (final PropertyConfig propertyConfig : hierarchy.values()) {
+            revisions.put(propertyConfig.getName(), propertyConfig.getRevision());
+        }
+
+        return revisions.build();
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Key level change of config properties: properties to add or replace and properties to remove. A key can't be set
+ * and removed by the same delta.
+ *
+ * @author Alexey Venderov
+ */
+public class PropertyDelta {
+
+    private final Map<String, String> set;
+
+    private final Set<String> unset;
+
+    private PropertyDelta(final Map<String, String> set, final Set<String> unset) {
+        this.set = ImmutableMap.copyOf(set);
+        this.unset = ImmutableSet.copyOf(unset);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Computes delta that turns one set of properties into another. Unlike deltas created by {@link Builder} the
+     * result is empty when properties are equal.
+     *
+     * @param from original properties
+     * @param to changed properties
+     * @return delta between properties
+     */
+    public static PropertyDelta between(final Map<String, String> from, final Map<String, String> to) {
+        checkNotNull(from, "from must not be null");
+        checkNotNull(to, "to must not be null");
+
+        final Map<String, String> set = new LinkedHashMap<String, String>();
+        for (final Map.Entry<String, String> property : to.entrySet()) {
+            if (!property.getValue().equals(from.get(property.getKey()))) {
+                set.put(property.getKey(), property.getValue());
+            }
+        }
+        final Set<String> unset = new LinkedHashSet<String>(from.keySet());
+        unset.removeAll(to.keySet());
+
+        return new PropertyDelta(set, unset);
+    }
+
+    /**
+     * Returns properties to add or replace.
+     */
+    public Map<String, String> getSet() {
+        return set;
+    }
+
+    /**
+     * Returns keys of properties to remove.
+     */
+    public Set<String> getUnset() {
+        return unset;
+    }
+
+    public boolean isEmpty() {
+        return set.isEmpty() && unset.isEmpty();
+    }
+
+    /**
+     * Applies delta to the properties.
+     *
+     * @param properties properties to change
+     * @return new map with changed properties
+     */
+    public Map<String, String> applyTo(final Map<String, String> properties) {
+        final Map<String, String> result = new LinkedHashMap<String, String>(properties);
+        result.keySet().removeAll(unset);
+        result.putAll(set);
+        return result;
+    }
+
+    public static class Builder implements com.gmail.avenderov.utils.Builder<PropertyDelta> {
+
+        private final Map<String, String> set = new LinkedHashMap<String, String>();
+
+        private final Set<String> unset = new LinkedHashSet<String>();
+
+        private Builder() {
+        }
+
+        public Builder set(final String key, final String value) {
+            checkKey(key);
+            checkArgument(isNotBlank(value), "value must not be blank");
+            checkArgument(!unset.contains(key), "key '%s' is already removed by this delta", key);
+            set.put(key, value);
+            return this;
+        }
+
+        public Builder setAll(final Map<String, String> properties) {
+            for (final Map.Entry<String, String> property : properties.entrySet()) {
+                set(property.getKey(), property.getValue());
+            }
+            return this;
+        }
+
+        public Builder unset(final String key) {
+            checkKey(key);
+            checkArgument(!set.containsKey(key), "key '%s' is already set by this delta", key);
+            unset.add(key);
+            return this;
+        }
+
+        private static void checkKey(final String key) {
+            checkArgument(isNotBlank(key), "key must not be blank");
+            // Keys become part of field paths in database updates
+            checkArgument(!key.contains(".") && !key.startsWith("$"), "key '%s' must not contain dots or start " +
+                    "with dollar sign", key);
+        }
+
+        @Override
+        public PropertyDelta build() {
+            checkState(!set.isEmpty() || !unset.isEmpty(), "delta must not be empty");
+            return new PropertyDelta(set, unset);
+        }
+
+    }
+
+}
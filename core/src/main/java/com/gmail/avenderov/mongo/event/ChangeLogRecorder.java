@@ -0,0 +1,43 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.api.repository.ChangeLogRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.mongodb.DBObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
+import org.springframework.stereotype.Component;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records every saved config in the change log. Configs inserted in one batch are recorded with a single write.
+ *
+ * @author Alexey Venderov
+ */
+@Component
+public class ChangeLogRecorder extends AbstractMongoEventListener<PropertyConfig> {
+
+    private final ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    public ChangeLogRecorder(final ChangeLogRepository changeLogRepository) {
+        checkNotNull(changeLogRepository, "changeLogRepository must not be null");
+        this.changeLogRepository = changeLogRepository;
+    }
+
+    @Override
+    public void onAfterSave(final PropertyConfig source, final DBObject dbo) {
+        changeLogRepository.record(source);
+    }
+
+    @Override
+    public void onApplicationEvent(final MongoMappingEvent<?> event) {
+        if (event instanceof ConfigsInsertedEvent) {
+            changeLogRepository.recordAll(((ConfigsInsertedEvent) event).getSource());
+        } else {
+            super.onApplicationEvent(event);
+        }
+    }
+
+}
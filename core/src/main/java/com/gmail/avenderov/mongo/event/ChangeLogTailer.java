@@ -0,0 +1,224 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.api.ChangeFeedListener;
+import com.gmail.avenderov.api.ChangeListener;
+import com.gmail.avenderov.mongo.data.ConfigChange;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Follows the change log with a tailable cursor in a single background thread and passes every change recorded
+ * after {@link #start()} to registered listeners. Listeners are called from the tailing thread, so they must not
+ * block. {@link ChangeFeedListener}s are told in addition when the tailer has caught up with the log and when it has
+ * stopped following it.
+ *
+ * @author Alexey Venderov
+ */
+public class ChangeLogTailer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeLogTailer.class);
+
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private static final long POLL_INTERVAL_MILLIS = 100L;
+
+    private static final String ID_FIELD = "_id";
+
+    private static final String NAME_FIELD = "name";
+
+    private static final String REVISION_FIELD = "revision";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<ChangeListener>();
+
+    private volatile boolean running;
+
+    private volatile DBCursor cursor;
+
+    // Id of the last delivered change, accessed by the tailing thread only
+    private ObjectId lastId;
+
+    private Thread thread;
+
+    public ChangeLogTailer(final MongoTemplate mongoTemplate) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void setListeners(final List<ChangeListener> listeners) {
+        checkNotNull(listeners, "listeners must not be null");
+        this.listeners.clear();
+        this.listeners.addAll(listeners);
+    }
+
+    public void addListener(final ChangeListener listener) {
+        checkNotNull(listener, "listener must not be null");
+        listeners.add(listener);
+    }
+
+    public void removeListener(final ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized void start() {
+        checkState(thread == null, "tailer has already been started");
+
+        running = true;
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                tail();
+            }
+
+        }, "change-log-tailer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        notifyInterrupted(false);
+        final DBCursor currentCursor = cursor;
+        if (currentCursor != null) {
+            // Unblocks the tailing thread waiting for more data
+            currentCursor.close();
+        }
+        thread = null;
+    }
+
+    private void tail() {
+        boolean positioned = false;
+        while (running) {
+            try {
+                final DBCollection collection = mongoTemplate.getCollection(
+                        mongoTemplate.getCollectionName(ConfigChange.class));
+                if (!positioned) {
+                    // Only changes recorded after start are delivered
+                    lastId = findLastId(collection);
+                    positioned = true;
+                }
+                follow(collection);
+            } catch (final RuntimeException e) {
+                if (running) {
+                    LOGGER.warn("Failed to follow change log", e);
+                }
+            }
+            notifyInterrupted(false);
+            // Cursor is dead when collection is empty or doesn't exist yet
+            pause(RETRY_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Reads the change log in natural order, which is the order changes were recorded in. Ids are generated by
+     * writers and are not ordered across hosts, so the log is not queried by id. Instead, the cursor is opened at the
+     * beginning of the log and skips changes up to the last delivered one. Returns when the cursor dies.
+     */
+    private void follow(final DBCollection collection) {
+        // Cursor doesn't wait for data on the server, so that reaching the end of the log can be detected
+        cursor = collection.find().sort(new BasicDBObject("$natural", 1)).addOption(Bytes.QUERYOPTION_TAILABLE);
+        boolean skipping = lastId != null;
+        try {
+            while (running) {
+                if (!cursor.hasNext()) {
+                    if (cursor.getCursorId() == 0) {
+                        return;
+                    }
+                    if (skipping) {
+                        // Change log is capped, the last delivered change has been overwritten
+                        LOGGER.warn("Change log has been overwritten since change {}, changes could be lost", lastId);
+                        skipping = false;
+                        notifyInterrupted(true);
+                    }
+                    notifyCaughtUp();
+                    pause(POLL_INTERVAL_MILLIS);
+                    continue;
+                }
+                final DBObject change = cursor.next();
+                final ObjectId id = (ObjectId) change.get(ID_FIELD);
+                if (skipping) {
+                    skipping = !id.equals(lastId);
+                    continue;
+                }
+                lastId = id;
+                notifyListeners((String) change.get(NAME_FIELD), ((Number) change.get(REVISION_FIELD)).intValue());
+            }
+        } finally {
+            cursor.close();
+            cursor = null;
+        }
+    }
+
+    private static ObjectId findLastId(final DBCollection collection) {
+        final DBCursor lastChange = collection.find().sort(new BasicDBObject("$natural", -1)).limit(1);
+        try {
+            return lastChange.hasNext() ? (ObjectId) lastChange.next().get(ID_FIELD) : null;
+        } finally {
+            lastChange.close();
+        }
+    }
+
+    private void notifyListeners(final String name, final int revision) {
+        for (final ChangeListener listener : listeners) {
+            try {
+                listener.onChange(name, revision);
+            } catch (final RuntimeException e) {
+                LOGGER.error("Change listener failed", e);
+            }
+        }
+    }
+
+    private void notifyCaughtUp() {
+        for (final ChangeListener listener : listeners) {
+            if (listener instanceof ChangeFeedListener) {
+                try {
+                    ((ChangeFeedListener) listener).onCaughtUp();
+                } catch (final RuntimeException e) {
+                    LOGGER.error("Change listener failed", e);
+                }
+            }
+        }
+    }
+
+    private void notifyInterrupted(final boolean changesLost) {
+        for (final ChangeListener listener : listeners) {
+            if (listener instanceof ChangeFeedListener) {
+                try {
+                    ((ChangeFeedListener) listener).onInterrupted(changesLost);
+                } catch (final RuntimeException e) {
+                    LOGGER.error("Change listener failed", e);
+                }
+            }
+        }
+    }
+
+    private void pause(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+}
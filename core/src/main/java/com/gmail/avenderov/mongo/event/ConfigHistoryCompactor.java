@@ -0,0 +1,79 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.api.repository.ConfigHistoryRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Periodically compacts config history in a single background thread.
+ *
+ * @author Alexey Venderov
+ */
+public class ConfigHistoryCompactor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigHistoryCompactor.class);
+
+    public static final long DEFAULT_INTERVAL_MINUTES = 60L;
+
+    private final ConfigHistoryRepository configHistoryRepository;
+
+    private final long intervalMinutes;
+
+    private ScheduledExecutorService executor;
+
+    public ConfigHistoryCompactor(final ConfigHistoryRepository configHistoryRepository) {
+        this(configHistoryRepository, DEFAULT_INTERVAL_MINUTES);
+    }
+
+    public ConfigHistoryCompactor(final ConfigHistoryRepository configHistoryRepository,
+                                  final long intervalMinutes) {
+        checkNotNull(configHistoryRepository, "configHistoryRepository must not be null");
+        checkArgument(intervalMinutes > 0, "intervalMinutes must be greater than zero");
+
+        this.configHistoryRepository = configHistoryRepository;
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    public synchronized void start() {
+        checkState(executor == null, "compactor has already been started");
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("config-history-compactor").setDaemon(true).build());
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                compact();
+            }
+
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    private void compact() {
+        try {
+            final int compacted = configHistoryRepository.compactAll();
+            LOGGER.info("Config history has been compacted, {} entries were merged or removed", compacted);
+        } catch (final RuntimeException e) {
+            // Exception would cancel further executions
+            LOGGER.warn("Failed to compact config history", e);
+        }
+    }
+
+}
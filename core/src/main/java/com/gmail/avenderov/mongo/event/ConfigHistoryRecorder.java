@@ -0,0 +1,61 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.api.repository.ConfigHistoryRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records every saved revision of a config in the config history. Configs inserted in one batch are recorded with a
+ * single write.
+ *
+ * @author Alexey Venderov
+ */
+@Component
+public class ConfigHistoryRecorder extends AbstractMongoEventListener<PropertyConfig> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigHistoryRecorder.class);
+
+    private final ConfigHistoryRepository configHistoryRepository;
+
+    @Autowired
+    public ConfigHistoryRecorder(final ConfigHistoryRepository configHistoryRepository) {
+        checkNotNull(configHistoryRepository, "configHistoryRepository must not be null");
+        this.configHistoryRepository = configHistoryRepository;
+    }
+
+    @Override
+    public void onAfterSave(final PropertyConfig source, final DBObject dbo) {
+        try {
+            configHistoryRepository.record(source);
+        } catch (final RuntimeException e) {
+            // Config is already saved, the next revision will be recorded as a checkpoint
+            LOGGER.warn("Failed to record revision " + source.getRevision() + " of '" + source.getName() +
+                    "' config in history", e);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(final MongoMappingEvent<?> event) {
+        if (event instanceof ConfigsInsertedEvent) {
+            final List<PropertyConfig> propertyConfigs = ((ConfigsInsertedEvent) event).getSource();
+            try {
+                configHistoryRepository.recordInserted(propertyConfigs);
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Failed to record " + propertyConfigs.size() + " inserted configs in history", e);
+            }
+        } else {
+            super.onApplicationEvent(event);
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
+
+import java.util.List;
+
+/**
+ * Published once for configs inserted in one batch, which don't get an
+ * {@link org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent} each. Listeners of saved configs handle
+ * the whole batch at once.
+ *
+ * @author Alexey Venderov
+ */
+public class ConfigsInsertedEvent extends MongoMappingEvent<List<PropertyConfig>> {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConfigsInsertedEvent(final List<PropertyConfig> propertyConfigs) {
+        super(propertyConfigs, null);
+    }
+
+}
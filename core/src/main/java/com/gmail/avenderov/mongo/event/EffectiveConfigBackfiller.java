@@ -0,0 +1,64 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.api.repository.EffectiveConfigRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Computes missing effective configs once on startup in a background thread, so that configs saved before effective
+ * configs were materialized become visible to the lookups that read effective configs only.
+ *
+ * @author Alexey Venderov
+ */
+public class EffectiveConfigBackfiller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EffectiveConfigBackfiller.class);
+
+    private final EffectiveConfigRepository effectiveConfigRepository;
+
+    private ExecutorService executor;
+
+    public EffectiveConfigBackfiller(final EffectiveConfigRepository effectiveConfigRepository) {
+        checkNotNull(effectiveConfigRepository, "effectiveConfigRepository must not be null");
+        this.effectiveConfigRepository = effectiveConfigRepository;
+    }
+
+    public synchronized void start() {
+        checkState(executor == null, "backfiller has already been started");
+
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("effective-config-backfiller").setDaemon(true).build());
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                backfill();
+            }
+
+        });
+    }
+
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    private void backfill() {
+        try {
+            effectiveConfigRepository.computeMissing();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Failed to compute missing effective configs", e);
+        }
+    }
+
+}
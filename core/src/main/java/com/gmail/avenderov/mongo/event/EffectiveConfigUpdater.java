@@ -0,0 +1,43 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.api.repository.EffectiveConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.mongodb.DBObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
+import org.springframework.stereotype.Component;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Recomputes effective configs every time a config is saved. Configs inserted in one batch are computed at once.
+ *
+ * @author Alexey Venderov
+ */
+@Component
+public class EffectiveConfigUpdater extends AbstractMongoEventListener<PropertyConfig> {
+
+    private final EffectiveConfigRepository effectiveConfigRepository;
+
+    @Autowired
+    public EffectiveConfigUpdater(final EffectiveConfigRepository effectiveConfigRepository) {
+        checkNotNull(effectiveConfigRepository, "effectiveConfigRepository must not be null");
+        this.effectiveConfigRepository = effectiveConfigRepository;
+    }
+
+    @Override
+    public void onAfterSave(final PropertyConfig source, final DBObject dbo) {
+        effectiveConfigRepository.recompute(source.getName());
+    }
+
+    @Override
+    public void onApplicationEvent(final MongoMappingEvent<?> event) {
+        if (event instanceof ConfigsInsertedEvent) {
+            effectiveConfigRepository.computeInserted(((ConfigsInsertedEvent) event).getSource());
+        } else {
+            super.onApplicationEvent(event);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.gmail.avenderov.mongo.export;
+
+import com.gmail.avenderov.client.BinarySnapshotWriter;
+import com.gmail.avenderov.mongo.data.EffectiveConfig;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes all effective configs into a binary snapshot that clients can memory-map, see
+ * {@link com.gmail.avenderov.client.BinarySnapshot}.
+ *
+ * @author Alexey Venderov
+ */
+@Component
+public class BinarySnapshotExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinarySnapshotExporter.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public BinarySnapshotExporter(final MongoTemplate mongoTemplate) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Exports effective configs into the file replacing existing one.
+     *
+     * @param file snapshot file
+     * @return number of exported configs
+     * @throws IOException if snapshot can't be written
+     */
+    public int export(final File file) throws IOException {
+        checkNotNull(file, "file must not be null");
+
+        final BinarySnapshotWriter writer = new BinarySnapshotWriter();
+        mongoTemplate.executeQuery(new Query(), mongoTemplate.getCollectionName(EffectiveConfig.class),
+                new DocumentCallbackHandler() {
+
+                    @Override
+                    public void processDocument(final DBObject dbObject) throws MongoException, DataAccessException {
+                        final EffectiveConfig effectiveConfig = mongoTemplate.getConverter()
+                                .read(EffectiveConfig.class, dbObject);
+                        writer.add(effectiveConfig.getName(), effectiveConfig.getRevision(),
+                                effectiveConfig.getContent());
+                    }
+
+                });
+        writer.write(file);
+        LOGGER.info("Exported {} configs into '{}'", writer.size(), file);
+
+        return writer.size();
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.gmail.avenderov.mongo.export;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Command line entry point for moving configs between environments. Database is taken from
+ * {@code mongo.properties}, {@code -} stands for standard input or output.
+ * <pre>
+ *     export &lt;file&gt;
+ *     import &lt;file&gt;
+ * </pre>
+ *
+ * @author Alexey Venderov
+ */
+public final class ConfigTransferTool {
+
+    private static final String STANDARD_STREAM = "-";
+
+    private ConfigTransferTool() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2 || !("export".equals(args[0]) || "import".equals(args[0]))) {
+            System.err.println("Usage: ConfigTransferTool export|import <file>");
+            System.exit(2);
+        }
+
+        final ConfigurableApplicationContext applicationContext =
+                new ClassPathXmlApplicationContext("META-INF/spring/banjo-context.xml");
+        try {
+            if ("export".equals(args[0])) {
+                final OutputStream outputStream = STANDARD_STREAM.equals(args[1]) ? System.out :
+                        new BufferedOutputStream(new FileOutputStream(args[1]));
+                try {
+                    final int count = applicationContext.getBean(PropertyConfigExporter.class).export(outputStream);
+                    System.err.println("Exported " + count + " configs");
+                } finally {
+                    outputStream.close();
+                }
+            } else {
+                final InputStream inputStream = STANDARD_STREAM.equals(args[1]) ? System.in :
+                        new BufferedInputStream(new FileInputStream(args[1]));
+                try {
+                    final PropertyConfigImporter.Result result =
+                            applicationContext.getBean(PropertyConfigImporter.class).importConfigs(inputStream);
+                    System.err.println("Imported " + result.getImported() + " configs, skipped " +
+                            result.getSkipped() + " existing configs");
+                } finally {
+                    inputStream.close();
+                }
+            }
+        } finally {
+            applicationContext.close();
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.gmail.avenderov.mongo.export;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.util.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes all configs as gzip-compressed NDJSON, one config document per line. Configs are ordered by their level in
+ * hierarchy, so every config follows all its ancestors and the output can be imported as it is read, see
+ * {@link PropertyConfigImporter}. Order is computed in memory from names and parents of all configs, that are read
+ * with a plain cursor, documents themselves are then read batch by batch, so neither the server nor the exporter
+ * holds more than a batch of them.
+ *
+ * @author Alexey Venderov
+ */
+@Component
+public class PropertyConfigExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyConfigExporter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String ID_FIELD = "_id";
+
+    private static final String CLASS_FIELD = "_class";
+
+    private static final String PARENTS_FIELD = "parents";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final int batchSize;
+
+    @Autowired
+    public PropertyConfigExporter(final MongoTemplate mongoTemplate) {
+        this(mongoTemplate, DEFAULT_BATCH_SIZE);
+    }
+
+    public PropertyConfigExporter(final MongoTemplate mongoTemplate, final int batchSize) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        checkArgument(batchSize > 0, "batchSize must be greater than zero");
+
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Exports all configs into the stream. Stream is not closed. Configs inserted while export is running may be
+     * left out.
+     *
+     * @param outputStream stream to write compressed configs to
+     * @return number of exported configs
+     * @throws IOException if configs can't be written
+     */
+    public int export(final OutputStream outputStream) throws IOException {
+        checkNotNull(outputStream, "outputStream must not be null");
+
+        final List<String> names = orderByLevel(findParents());
+        final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(gzipOutputStream, UTF_8));
+        int count = 0;
+        for (int from = 0; from < names.size(); from += batchSize) {
+            count += writeBatch(writer, names.subList(from, Math.min(from + batchSize, names.size())));
+        }
+        writer.flush();
+        gzipOutputStream.finish();
+        LOGGER.info("Exported {} configs", count);
+
+        return count;
+    }
+
+    /**
+     * Reads names and parents of all configs, documents are not loaded.
+     */
+    private Map<String, List<String>> findParents() {
+        return mongoTemplate.execute(PropertyConfig.class, new CollectionCallback<Map<String, List<String>>>() {
+
+            @Override
+            public Map<String, List<String>> doInCollection(final DBCollection collection) throws MongoException,
+                    DataAccessException {
+                final Map<String, List<String>> parents = new HashMap<String, List<String>>();
+                final DBCursor cursor = collection.find(new BasicDBObject(), new BasicDBObject(PARENTS_FIELD, 1))
+                        .batchSize(batchSize);
+                try {
+                    while (cursor.hasNext()) {
+                        final DBObject dbObject = cursor.next();
+                        final Collection<?> parentNames = (Collection<?>) dbObject.get(PARENTS_FIELD);
+                        final List<String> configParents = new ArrayList<String>(parentNames == null ? 0 :
+                                parentNames.size());
+                        if (parentNames != null) {
+                            for (final Object parentName : parentNames) {
+                                configParents.add((String) parentName);
+                            }
+                        }
+                        parents.put((String) dbObject.get(ID_FIELD), configParents);
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                return parents;
+            }
+
+        });
+    }
+
+    /**
+     * Orders configs by level, that is the length of the longest path to their root ancestors. Configs of the same
+     * level are ordered by name. Configs with parents that have not been read are left out, those were inserted
+     * during the read.
+     */
+    private static List<String> orderByLevel(final Map<String, List<String>> parents) {
+        final Map<String, List<String>> children = new HashMap<String, List<String>>();
+        final Map<String, Integer> pendingParents = new HashMap<String, Integer>();
+        List<String> level = new ArrayList<String>();
+        for (final Map.Entry<String, List<String>> entry : parents.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                level.add(entry.getKey());
+            } else {
+                pendingParents.put(entry.getKey(), entry.getValue().size());
+                for (final String parent : entry.getValue()) {
+                    List<String> parentChildren = children.get(parent);
+                    if (parentChildren == null) {
+                        parentChildren = new ArrayList<String>();
+                        children.put(parent, parentChildren);
+                    }
+                    parentChildren.add(entry.getKey());
+                }
+            }
+        }
+
+        final List<String> ordered = new ArrayList<String>(parents.size());
+        while (!level.isEmpty()) {
+            Collections.sort(level);
+            ordered.addAll(level);
+            final List<String> nextLevel = new ArrayList<String>();
+            for (final String name : level) {
+                final List<String> nameChildren = children.get(name);
+                if (nameChildren != null) {
+                    for (final String child : nameChildren) {
+                        final int pending = pendingParents.get(child) - 1;
+                        pendingParents.put(child, pending);
+                        if (pending == 0) {
+                            nextLevel.add(child);
+                        }
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        if (ordered.size() < parents.size()) {
+            LOGGER.warn("{} configs with parents inserted during export are left out", parents.size() - ordered.size());
+        }
+
+        return ordered;
+    }
+
+    private int writeBatch(final Writer writer, final List<String> names) throws IOException {
+        final Map<String, DBObject> dbObjects = mongoTemplate.execute(PropertyConfig.class,
+                new CollectionCallback<Map<String, DBObject>>() {
+
+                    @Override
+                    public Map<String, DBObject> doInCollection(final DBCollection collection) throws MongoException,
+                            DataAccessException {
+                        final Map<String, DBObject> result = new HashMap<String, DBObject>();
+                        final DBCursor cursor = collection.find(new BasicDBObject(ID_FIELD,
+                                new BasicDBObject("$in", names)), new BasicDBObject(CLASS_FIELD, 0))
+                                .batchSize(names.size());
+                        try {
+                            while (cursor.hasNext()) {
+                                final DBObject dbObject = cursor.next();
+                                result.put((String) dbObject.get(ID_FIELD), dbObject);
+                            }
+                        } finally {
+                            cursor.close();
+                        }
+
+                        return result;
+                    }
+
+                });
+        // Documents come in no particular order, they are written in the order of the names
+        int count = 0;
+        for (final String name : names) {
+            final DBObject dbObject = dbObjects.get(name);
+            if (dbObject != null) {
+                writer.write(JSON.serialize(dbObject));
+                writer.write('\n');
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+}
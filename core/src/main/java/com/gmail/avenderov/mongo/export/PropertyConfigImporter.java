@@ -0,0 +1,145 @@
+package com.gmail.avenderov.mongo.export;
+
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.convert.PropertyConfigReadConverter;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Reads configs written by {@link PropertyConfigExporter} and inserts them in batches. Input is read only as fast as
+ * batches are written, so at most one batch is kept in memory. Every config has to follow its parents, unless they
+ * already exist in database. Configs that already exist are skipped, so an interrupted import can be repeated.
+ *
+ * @author Alexey Venderov
+ */
+@Component
+public class PropertyConfigImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyConfigImporter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final PropertyConfigRepository propertyConfigRepository;
+
+    private final int batchSize;
+
+    // Configs are read the same way as from database, without depending on Mongo backed repository
+    private final PropertyConfigReadConverter readConverter = new PropertyConfigReadConverter();
+
+    @Autowired
+    public PropertyConfigImporter(final PropertyConfigRepository propertyConfigRepository) {
+        this(propertyConfigRepository, DEFAULT_BATCH_SIZE);
+    }
+
+    public PropertyConfigImporter(final PropertyConfigRepository propertyConfigRepository, final int batchSize) {
+        checkNotNull(propertyConfigRepository, "propertyConfigRepository must not be null");
+        checkArgument(batchSize > 0, "batchSize must be greater than zero");
+
+        this.propertyConfigRepository = propertyConfigRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports configs from the stream. Stream is not closed. Batches inserted before a failure are kept.
+     *
+     * @param inputStream stream of compressed configs
+     * @return numbers of imported and skipped configs
+     * @throws IOException if configs can't be read
+     * @throws IllegalArgumentException if some line is not a valid config
+     * @throws org.springframework.dao.DataIntegrityViolationException if parents of some config are neither in
+     * database nor before it in the stream
+     */
+    public Result importConfigs(final InputStream inputStream) throws IOException {
+        checkNotNull(inputStream, "inputStream must not be null");
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream),
+                PropertyConfigExporter.UTF_8));
+        final Result result = new Result();
+        final List<PropertyConfig> batch = new ArrayList<PropertyConfig>(batchSize);
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (isBlank(line)) {
+                continue;
+            }
+            batch.add(readConfig(line, lineNumber));
+            if (batch.size() == batchSize) {
+                insertBatch(batch, result);
+            }
+        }
+        insertBatch(batch, result);
+        LOGGER.info("Imported {} configs, {} existing configs were skipped", result.imported, result.skipped);
+
+        return result;
+    }
+
+    private PropertyConfig readConfig(final String line, final int lineNumber) {
+        try {
+            return readConverter.convert((DBObject) JSON.parse(line));
+        } catch (final RuntimeException e) {
+            throw new IllegalArgumentException(format("Line %1$d is not a valid config: %2$s", lineNumber,
+                    e.getMessage()), e);
+        }
+    }
+
+    private void insertBatch(final List<PropertyConfig> batch, final Result result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<String> names = new ArrayList<String>(batch.size());
+        for (final PropertyConfig propertyConfig : batch) {
+            names.add(propertyConfig.getName());
+        }
+        final Set<String> existing = propertyConfigRepository.checkConfigsExist(names);
+        final List<PropertyConfig> newConfigs = new ArrayList<PropertyConfig>(batch.size());
+        for (final PropertyConfig propertyConfig : batch) {
+            if (!existing.contains(propertyConfig.getName())) {
+                newConfigs.add(propertyConfig);
+            }
+        }
+        propertyConfigRepository.insertAll(newConfigs);
+        result.imported += newConfigs.size();
+        result.skipped += existing.size();
+        batch.clear();
+    }
+
+    public static class Result {
+
+        private int imported;
+
+        private int skipped;
+
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * Returns number of configs that were not imported, because they already exist.
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+    }
+
+}
@@ -0,0 +1,357 @@
+package com.gmail.avenderov.mongo.repository;
+
+import com.gmail.avenderov.api.Config;
+import com.gmail.avenderov.api.repository.BlobConfigRepository;
+import com.gmail.avenderov.mongo.Collection;
+import com.gmail.avenderov.mongo.data.BlobConfig;
+import com.google.common.base.Optional;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.gridfs.GridFS;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.mongodb.gridfs.GridFSInputFile;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Content is gzip-compressed as it is read. Compressed content that fits into the inline threshold is kept in the
+ * config document, larger content is written to GridFS in chunks as soon as it outgrows the threshold, so that
+ * neither documents come close to the size limit nor content is buffered in memory. GridFS file of the replaced
+ * revision is removed as soon as the new revision is saved, a delayed removal would leave orphaned files behind
+ * whenever the instance stops before it runs.
+ *
+ * @author Alexey Venderov
+ */
+@Repository
+public class MongoBlobConfigRepository implements BlobConfigRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoBlobConfigRepository.class);
+
+    /**
+     * Default maximum size of compressed content that is kept in the config document.
+     */
+    public static final int DEFAULT_INLINE_THRESHOLD = 256 * 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String ID_FIELD = "_id";
+
+    private static final String REVISION_FIELD = "revision";
+
+    private static final String CREATED_AT_FIELD = "createdAt";
+
+    private static final String LAST_MODIFIED_AT_FIELD = "lastModifiedAt";
+
+    private static final String TYPE_FIELD = "type";
+
+    private static final String LENGTH_FIELD = "length";
+
+    private static final String COMPRESSED_LENGTH_FIELD = "compressedLength";
+
+    private static final String MD5_FIELD = "md5";
+
+    private static final String DATA_FIELD = "data";
+
+    private static final String FILE_FIELD = "file";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final int inlineThreshold;
+
+    // GridFS checks its indexes when created, so it's created on first use rather than on startup
+    private volatile GridFS gridFs;
+
+    @Autowired
+    public MongoBlobConfigRepository(final MongoTemplate mongoTemplate) {
+        this(mongoTemplate, DEFAULT_INLINE_THRESHOLD);
+    }
+
+    public MongoBlobConfigRepository(final MongoTemplate mongoTemplate, final int inlineThreshold) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        checkArgument(inlineThreshold >= 0, "inlineThreshold must not be negative");
+
+        this.mongoTemplate = mongoTemplate;
+        this.inlineThreshold = inlineThreshold;
+    }
+
+    @Override
+    public BlobConfig save(final String name, final Config.Type type, final InputStream content) throws IOException {
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkArgument(BlobConfig.isBlobType(type), "type must be either LARGE_TEXT or BINARY");
+        checkNotNull(content, "content must not be null");
+
+        final SpillingOutputStream spillingOutputStream = new SpillingOutputStream(name);
+        boolean saved = false;
+        try {
+            final CountingOutputStream compressedOutputStream = new CountingOutputStream(spillingOutputStream);
+            final Hasher hasher = Hashing.md5().newHasher();
+            long length = 0;
+            final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedOutputStream, BUFFER_SIZE);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, read);
+                gzipOutputStream.write(buffer, 0, read);
+                length += read;
+            }
+            // Saves GridFS file if content has spilled over
+            gzipOutputStream.close();
+
+            final BlobConfig blobConfig = saveMetadata(name, type, length, compressedOutputStream.getCount(),
+                    hasher.hash().toString(), spillingOutputStream);
+            saved = true;
+
+            return blobConfig;
+        } finally {
+            if (!saved) {
+                spillingOutputStream.discard();
+            }
+        }
+    }
+
+    private BlobConfig saveMetadata(final String name, final Config.Type type, final long length,
+                                    final long compressedLength, final String md5,
+                                    final SpillingOutputStream content) {
+        final Date now = new Date();
+        final BasicDBObject set = new BasicDBObject(TYPE_FIELD, type.name()).append(LENGTH_FIELD, length)
+                .append(COMPRESSED_LENGTH_FIELD, compressedLength).append(MD5_FIELD, md5)
+                .append(LAST_MODIFIED_AT_FIELD, now);
+        final ByteSource compressedContent;
+        final String unsetField;
+        if (content.isSpilled()) {
+            set.append(FILE_FIELD, content.getFileId());
+            unsetField = DATA_FIELD;
+            compressedContent = new GridFsByteSource(name, content.getFileId());
+        } else {
+            final byte[] data = content.getData();
+            set.append(DATA_FIELD, data);
+            unsetField = FILE_FIELD;
+            compressedContent = ByteStreams.asByteSource(data);
+        }
+        final DBObject update = new BasicDBObject("$set", set).append("$unset", new BasicDBObject(unsetField, ""))
+                .append("$inc", new BasicDBObject(REVISION_FIELD, 1))
+                .append("$setOnInsert", new BasicDBObject(CREATED_AT_FIELD, now));
+
+        // Previous version is returned, it tells the new revision and the content to remove
+        final DBObject previous = mongoTemplate.execute(Collection.BLOBS, new CollectionCallback<DBObject>() {
+
+            @Override
+            public DBObject doInCollection(final DBCollection collection) throws MongoException, DataAccessException {
+                return collection.findAndModify(new BasicDBObject(ID_FIELD, name), null, null, false, update, false,
+                        true);
+            }
+
+        });
+        if (previous == null) {
+            return new BlobConfig(name, 1, now, now, type, length, compressedLength, md5, compressedContent);
+        }
+        removeFile(previous);
+
+        return new BlobConfig(name, ((Number) previous.get(REVISION_FIELD)).intValue() + 1,
+                (Date) previous.get(CREATED_AT_FIELD), now, type, length, compressedLength, md5, compressedContent);
+    }
+
+    @Override
+    public Optional<BlobConfig> findConfig(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        final DBObject dbObject = mongoTemplate.execute(Collection.BLOBS, new CollectionCallback<DBObject>() {
+
+            @Override
+            public DBObject doInCollection(final DBCollection collection) throws MongoException, DataAccessException {
+                return collection.findOne(new BasicDBObject(ID_FIELD, name));
+            }
+
+        });
+        if (dbObject == null) {
+            return Optional.absent();
+        }
+
+        final ObjectId fileId = (ObjectId) dbObject.get(FILE_FIELD);
+        final ByteSource compressedContent = fileId != null ? new GridFsByteSource(name, fileId) :
+                ByteStreams.asByteSource((byte[]) dbObject.get(DATA_FIELD));
+
+        return Optional.of(new BlobConfig(name, ((Number) dbObject.get(REVISION_FIELD)).intValue(),
+                (Date) dbObject.get(CREATED_AT_FIELD), (Date) dbObject.get(LAST_MODIFIED_AT_FIELD),
+                Config.Type.valueOf((String) dbObject.get(TYPE_FIELD)),
+                ((Number) dbObject.get(LENGTH_FIELD)).longValue(),
+                ((Number) dbObject.get(COMPRESSED_LENGTH_FIELD)).longValue(), (String) dbObject.get(MD5_FIELD),
+                compressedContent));
+    }
+
+    @Override
+    public boolean remove(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        final DBObject removed = mongoTemplate.execute(Collection.BLOBS, new CollectionCallback<DBObject>() {
+
+            @Override
+            public DBObject doInCollection(final DBCollection collection) throws MongoException, DataAccessException {
+                return collection.findAndRemove(new BasicDBObject(ID_FIELD, name));
+            }
+
+        });
+        if (removed == null) {
+            return false;
+        }
+        removeFile(removed);
+
+        return true;
+    }
+
+    private void removeFile(final DBObject dbObject) {
+        final ObjectId fileId = (ObjectId) dbObject.get(FILE_FIELD);
+        if (fileId == null) {
+            return;
+        }
+        try {
+            getGridFs().remove(fileId);
+        } catch (final MongoException e) {
+            LOGGER.warn(format("Failed to remove content '%1$s' of '%2$s' config", fileId, dbObject.get(ID_FIELD)),
+                    e);
+        }
+    }
+
+    private GridFS getGridFs() {
+        GridFS result = gridFs;
+        if (result == null) {
+            synchronized (this) {
+                result = gridFs;
+                if (result == null) {
+                    result = new GridFS(mongoTemplate.getDb(), Collection.BLOB_FILES);
+                    gridFs = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Keeps compressed content in memory up to the inline threshold and moves it to a GridFS file once the threshold
+     * is exceeded.
+     */
+    private final class SpillingOutputStream extends OutputStream {
+
+        private final String name;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private GridFSInputFile file;
+
+        private OutputStream fileOutputStream;
+
+        private SpillingOutputStream(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (file == null && buffer.size() + len > inlineThreshold) {
+                file = getGridFs().createFile(name);
+                fileOutputStream = file.getOutputStream();
+                buffer.writeTo(fileOutputStream);
+                buffer.reset();
+            }
+            if (file != null) {
+                fileOutputStream.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOutputStream != null) {
+                fileOutputStream.close();
+            }
+        }
+
+        private boolean isSpilled() {
+            return file != null;
+        }
+
+        private ObjectId getFileId() {
+            return (ObjectId) file.getId();
+        }
+
+        private byte[] getData() {
+            return buffer.toByteArray();
+        }
+
+        /**
+         * Removes chunks that were written before the content was rejected.
+         */
+        private void discard() {
+            if (file == null) {
+                return;
+            }
+            try {
+                getGridFs().remove(getFileId());
+            } catch (final MongoException e) {
+                LOGGER.warn(format("Failed to remove incomplete content of '%1$s' config", name), e);
+            }
+        }
+
+    }
+
+    private final class GridFsByteSource extends ByteSource {
+
+        private final String name;
+
+        private final ObjectId fileId;
+
+        private GridFsByteSource(final String name, final ObjectId fileId) {
+            this.name = name;
+            this.fileId = fileId;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            final GridFSDBFile file;
+            try {
+                file = getGridFs().findOne(fileId);
+            } catch (final MongoException e) {
+                throw new IOException(format("Failed to read content of '%1$s' config", name), e);
+            }
+            if (file == null) {
+                throw new FileNotFoundException(format("Content of '%1$s' config has been replaced", name));
+            }
+
+            return file.getInputStream();
+        }
+
+    }
+
+}
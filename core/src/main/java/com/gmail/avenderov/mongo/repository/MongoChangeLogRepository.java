@@ -0,0 +1,82 @@
+package com.gmail.avenderov.mongo.repository;
+
+import com.gmail.avenderov.api.repository.ChangeLogRepository;
+import com.gmail.avenderov.mongo.data.ConfigChange;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Alexey Venderov
+ */
+@Repository
+public class MongoChangeLogRepository implements ChangeLogRepository {
+
+    /**
+     * Size of the capped collection in bytes, oldest changes are discarded once it is exceeded.
+     */
+    public static final int CHANGE_LOG_SIZE = 16 * 1024 * 1024;
+
+    private final MongoTemplate mongoTemplate;
+
+    private volatile boolean collectionExists;
+
+    @Autowired
+    public MongoChangeLogRepository(final MongoTemplate mongoTemplate) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void record(final PropertyConfig propertyConfig) {
+        checkNotNull(propertyConfig, "propertyConfig must not be null");
+
+        createCollectionIfNecessary();
+        mongoTemplate.insert(new ConfigChange(propertyConfig.getName(), propertyConfig.getRevision(),
+                Calendar.getInstance().getTime()));
+    }
+
+    @Override
+    public void recordAll(final List<PropertyConfig> propertyConfigs) {
+        checkNotNull(propertyConfigs, "propertyConfigs must not be null");
+        if (propertyConfigs.isEmpty()) {
+            return;
+        }
+
+        createCollectionIfNecessary();
+        final Date recordedAt = Calendar.getInstance().getTime();
+        final List<ConfigChange> changes = new ArrayList<ConfigChange>(propertyConfigs.size());
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            changes.add(new ConfigChange(propertyConfig.getName(), propertyConfig.getRevision(), recordedAt));
+        }
+        mongoTemplate.insert(changes, ConfigChange.class);
+    }
+
+    private void createCollectionIfNecessary() {
+        if (!collectionExists) {
+            if (!mongoTemplate.collectionExists(ConfigChange.class)) {
+                try {
+                    mongoTemplate.createCollection(ConfigChange.class, new CollectionOptions(CHANGE_LOG_SIZE, null,
+                            true));
+                } catch (final DataAccessException e) {
+                    // Collection could have been created concurrently
+                    if (!mongoTemplate.collectionExists(ConfigChange.class)) {
+                        throw e;
+                    }
+                }
+            }
+            collectionExists = true;
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.gmail.avenderov.mongo.repository;
+
+import com.gmail.avenderov.api.repository.ConfigHistoryRepository;
+import com.gmail.avenderov.mongo.data.ConfigRevision;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Every revision is stored as a delta against the previous one, except for revisions {@code 1, 1 + K, 1 + 2K, ...},
+ * where {@code K} is checkpoint interval, that are stored in full. A revision is stored in full as well, if the
+ * previous one is not in history. This way any {@code K} consecutive history entries contain a checkpoint and
+ * restoring a revision takes a single query and less than {@code K} delta applications.
+ * <p/>
+ * Compaction rewrites checkpoints that were stored out of turn, because the previous revision was recorded later, as
+ * deltas once the previous revision is in history. No revision is lost this way. Revisions older than the latest
+ * {@code N} ones are removed only if retention of {@code N} revisions is configured, all revisions are kept by
+ * default.
+ *
+ * @author Alexey Venderov
+ */
+@Repository
+public class MongoConfigHistoryRepository implements ConfigHistoryRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoConfigHistoryRepository.class);
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 16;
+
+    /**
+     * Retention that keeps all revisions of a config.
+     */
+    public static final int UNLIMITED_RETENTION = 0;
+
+    private static final String NAME_FIELD = "name";
+
+    private static final String REVISION_FIELD = "revision";
+
+    private static final String PROPERTIES_FIELD = "properties";
+
+    private static final String SET_FIELD = "set";
+
+    private static final String UNSET_FIELD = "unset";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final int checkpointInterval;
+
+    private final int retainedRevisions;
+
+    @Autowired
+    public MongoConfigHistoryRepository(final MongoTemplate mongoTemplate) {
+        this(mongoTemplate, DEFAULT_CHECKPOINT_INTERVAL, UNLIMITED_RETENTION);
+    }
+
+    /**
+     * @param mongoTemplate      template to access history collection
+     * @param checkpointInterval number of revisions between checkpoints
+     * @param retainedRevisions  number of latest revisions of a config that are kept by compaction, older revisions are
+     *                           removed and can't be restored anymore; {@link #UNLIMITED_RETENTION} keeps all of them
+     */
+    public MongoConfigHistoryRepository(final MongoTemplate mongoTemplate, final int checkpointInterval,
+                                        final int retainedRevisions) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        checkArgument(checkpointInterval > 0, "checkpointInterval must be greater than zero");
+        checkArgument(retainedRevisions >= 0, "retainedRevisions must not be negative");
+
+        this.mongoTemplate = mongoTemplate;
+        this.checkpointInterval = checkpointInterval;
+        this.retainedRevisions = retainedRevisions;
+    }
+
+    @Override
+    public void record(final PropertyConfig propertyConfig) {
+        checkNotNull(propertyConfig, "propertyConfig must not be null");
+
+        final String name = propertyConfig.getName();
+        final int revision = propertyConfig.getRevision();
+        final Map<String, String> properties = propertyConfig.getContent();
+        ConfigRevision configRevision = null;
+        if ((revision - 1) % checkpointInterval != 0) {
+            final Optional<Map<String, String>> previous = findProperties(name, revision - 1);
+            if (previous.isPresent()) {
+                configRevision = ConfigRevision.delta(name, revision, Calendar.getInstance().getTime(),
+                        PropertyDelta.between(previous.get(), properties));
+            }
+        }
+        if (configRevision == null) {
+            configRevision = ConfigRevision.checkpoint(name, revision, Calendar.getInstance().getTime(), properties);
+        }
+
+        try {
+            mongoTemplate.insert(configRevision);
+        } catch (final DuplicateKeyException e) {
+            LOGGER.debug("Revision {} of '{}' config has already been recorded", revision, name);
+        }
+    }
+
+    @Override
+    public void recordInserted(final List<PropertyConfig> propertyConfigs) {
+        checkNotNull(propertyConfigs, "propertyConfigs must not be null");
+        if (propertyConfigs.isEmpty()) {
+            return;
+        }
+
+        final Date recordedAt = Calendar.getInstance().getTime();
+        final List<ConfigRevision> configRevisions = new ArrayList<ConfigRevision>(propertyConfigs.size());
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            configRevisions.add(ConfigRevision.checkpoint(propertyConfig.getName(), propertyConfig.getRevision(),
+                    recordedAt, propertyConfig.getContent()));
+        }
+        try {
+            mongoTemplate.insert(configRevisions, ConfigRevision.class);
+        } catch (final DuplicateKeyException e) {
+            // Batch insert stops at the first recorded revision, the rest of the batch is recorded one by one
+            LOGGER.debug("Some of inserted configs have already been recorded, recording them one by one");
+            for (final PropertyConfig propertyConfig : propertyConfigs) {
+                record(propertyConfig);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Map<String, String>> findProperties(final String name, final int revision) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkArgument(revision > 0, "revision must be greater than zero");
+
+        final Query query = query(where(NAME_FIELD).is(name).and(REVISION_FIELD)
+                .gte(revision - checkpointInterval + 1).lte(revision))
+                .with(new Sort(Sort.Direction.ASC, REVISION_FIELD));
+
+        return ConfigRevision.replay(mongoTemplate.find(query, ConfigRevision.class), revision);
+    }
+
+    @Override
+    public Optional<PropertyDelta> findDelta(final String name, final int fromRevision, final int toRevision) {
+        final Optional<Map<String, String>> from = findProperties(name, fromRevision);
+        if (!from.isPresent()) {
+            return Optional.absent();
+        }
+        final Optional<Map<String, String>> to = findProperties(name, toRevision);
+        if (!to.isPresent()) {
+            return Optional.absent();
+        }
+
+        return Optional.of(PropertyDelta.between(from.get(), to.get()));
+    }
+
+    @Override
+    public int compact(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        // Removed entries would be merged in vain, so retention is applied first
+        final int removed = retainedRevisions != UNLIMITED_RETENTION ? removeExpired(name) : 0;
+
+        return removed + mergeCheckpoints(name);
+    }
+
+    /**
+     * Removes entries before the oldest retained revision, which becomes a checkpoint.
+     */
+    private int removeExpired(final String name) {
+        final ConfigRevision latest = mongoTemplate.findOne(query(where(NAME_FIELD).is(name))
+                .with(new Sort(Sort.Direction.DESC, REVISION_FIELD)), ConfigRevision.class);
+        if (latest == null || latest.getRevision() <= retainedRevisions) {
+            return 0;
+        }
+
+        int horizon = latest.getRevision() - retainedRevisions + 1;
+        Optional<Map<String, String>> properties = findProperties(name, horizon);
+        if (!properties.isPresent()) {
+            // History has a gap right before the horizon, so the next checkpoint becomes the oldest entry
+            final ConfigRevision checkpoint = mongoTemplate.findOne(query(where(NAME_FIELD).is(name)
+                    .and(REVISION_FIELD).gt(horizon).and(PROPERTIES_FIELD).exists(true))
+                    .with(new Sort(Sort.Direction.ASC, REVISION_FIELD)), ConfigRevision.class);
+            if (checkpoint == null) {
+                return 0;
+            }
+            horizon = checkpoint.getRevision();
+            properties = Optional.of(checkpoint.getProperties());
+        }
+
+        // Entry becomes a checkpoint before older entries are removed, so every retained revision stays readable
+        mongoTemplate.updateFirst(query(where(NAME_FIELD).is(name).and(REVISION_FIELD).is(horizon)),
+                new Update().set(PROPERTIES_FIELD, new BasicDBObject(properties.get())).unset(SET_FIELD)
+                        .unset(UNSET_FIELD), ConfigRevision.class);
+        final Query expired = query(where(NAME_FIELD).is(name).and(REVISION_FIELD).lt(horizon));
+        final int removed = (int) mongoTemplate.count(expired, ConfigRevision.class);
+        mongoTemplate.remove(expired, ConfigRevision.class);
+        LOGGER.debug("{} history entries of '{}' config before revision {} were removed", removed, name, horizon);
+
+        return removed;
+    }
+
+    /**
+     * Rewrites checkpoints stored out of turn as deltas, if the previous revision can be restored from the entries
+     * that are read together with the checkpoint. Those entries contain the regular checkpoint of the revision, so
+     * the rewritten revision and the deltas that follow it stay readable.
+     */
+    private int mergeCheckpoints(final String name) {
+        final DBObject outOfTurn = new BasicDBObject(NAME_FIELD, name)
+                .append(PROPERTIES_FIELD, new BasicDBObject("$exists", true))
+                .append(REVISION_FIELD, new BasicDBObject("$not", new BasicDBObject("$mod",
+                        Arrays.asList(checkpointInterval, 1))));
+        int merged = 0;
+        for (final ConfigRevision checkpoint : mongoTemplate.find(new BasicQuery(outOfTurn), ConfigRevision.class)) {
+            final int revision = checkpoint.getRevision();
+            final Query query = query(where(NAME_FIELD).is(name).and(REVISION_FIELD)
+                    .gte(revision - checkpointInterval + 1).lt(revision))
+                    .with(new Sort(Sort.Direction.ASC, REVISION_FIELD));
+            final Optional<Map<String, String>> previous =
+                    ConfigRevision.replay(mongoTemplate.find(query, ConfigRevision.class), revision - 1);
+            if (!previous.isPresent()) {
+                continue;
+            }
+
+            final PropertyDelta delta = PropertyDelta.between(previous.get(), checkpoint.getProperties());
+            mongoTemplate.updateFirst(query(where(NAME_FIELD).is(name).and(REVISION_FIELD).is(revision)),
+                    new Update().set(SET_FIELD, new BasicDBObject(delta.getSet()))
+                            .set(UNSET_FIELD, new ArrayList<String>(delta.getUnset())).unset(PROPERTIES_FIELD),
+                    ConfigRevision.class);
+            merged++;
+        }
+        if (merged > 0) {
+            LOGGER.debug("{} checkpoints of '{}' config were merged into deltas", merged, name);
+        }
+
+        return merged;
+    }
+
+    @Override
+    public int compactAll() {
+        @SuppressWarnings("unchecked")
+        final List<String> names = mongoTemplate.getCollection(mongoTemplate.getCollectionName(ConfigRevision.class))
+                .distinct(NAME_FIELD);
+        int removed = 0;
+        for (final String name : names) {
+            removed += compact(name);
+        }
+
+        return removed;
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.gmail.avenderov.mongo.repository;
+
+import com.gmail.avenderov.api.repository.EffectiveConfigRepository;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.EffectiveConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigResolver;
+import com.google.common.base.Optional;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps effective configs materialized in their own collection. Descendants of a changed config are found through
+ * the index on parents field of the configs collection, which serves as reverse dependency index.
+ *
+ * @author Alexey Venderov
+ */
+@Repository
+public class MongoEffectiveConfigRepository implements EffectiveConfigRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoEffectiveConfigRepository.class);
+
+    private static final String ID_FIELD = "_id";
+
+    private static final String PARENTS_FIELD = "parents";
+
+    private static final String REVISION_SUM_FIELD = "revisionSum";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final PropertyConfigRepository propertyConfigRepository;
+
+    @Autowired
+    public MongoEffectiveConfigRepository(final MongoTemplate mongoTemplate,
+                                          final PropertyConfigRepository propertyConfigRepository) {
+        checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        checkNotNull(propertyConfigRepository, "propertyConfigRepository must not be null");
+        this.mongoTemplate = mongoTemplate;
+        this.propertyConfigRepository = propertyConfigRepository;
+    }
+
+    @Override
+    public Optional<EffectiveConfig> findEffectiveConfig(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        return Optional.fromNullable(mongoTemplate.findById(name, EffectiveConfig.class));
+    }
+
+    @Override
+    public Map<String, EffectiveConfig> findEffectiveConfigs(final Collection<String> names) {
+        checkNotNull(names, "names must not be null");
+        if (names.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, EffectiveConfig> effectiveConfigs = new HashMap<String, EffectiveConfig>();
+        for (final EffectiveConfig effectiveConfig : mongoTemplate.find(query(where(ID_FIELD).in(names)),
+                EffectiveConfig.class)) {
+            effectiveConfigs.put(effectiveConfig.getName(), effectiveConfig);
+        }
+
+        return Collections.unmodifiableMap(effectiveConfigs);
+    }
+
+    @Override
+    public Set<String> recompute(final String name) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+
+        // Every config is recomputed from its own hierarchy, so the order of recomputation doesn't matter
+        final Set<String> recomputed = new LinkedHashSet<String>();
+        final Queue<String> queue = new LinkedList<String>();
+        queue.add(name);
+        while (!queue.isEmpty()) {
+            final String current = queue.remove();
+            if (recomputed.add(current)) {
+                recomputeConfig(current);
+                queue.addAll(findIds(query(where(PARENTS_FIELD).is(current)), PropertyConfig.class));
+            }
+        }
+        LOGGER.debug("Effective configs {} were recomputed after change of '{}' config", recomputed, name);
+
+        return recomputed;
+    }
+
+    @Override
+    public int computeInserted(final List<PropertyConfig> propertyConfigs) {
+        checkNotNull(propertyConfigs, "propertyConfigs must not be null");
+        if (propertyConfigs.isEmpty()) {
+            return 0;
+        }
+
+        final Map<String, PropertyConfig> configs = new HashMap<String, PropertyConfig>();
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            configs.put(propertyConfig.getName(), propertyConfig);
+        }
+        // Hierarchy of a parent outside of the batch brings all its ancestors, so they are not looked up again
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            for (final String parent : propertyConfig.getParents()) {
+                if (!configs.containsKey(parent)) {
+                    configs.putAll(propertyConfigRepository.findConfigWithParents(parent));
+                }
+            }
+        }
+
+        final Date computedAt = Calendar.getInstance().getTime();
+        final List<EffectiveConfig> effectiveConfigs = new ArrayList<EffectiveConfig>(propertyConfigs.size());
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            final Map<String, PropertyConfig> hierarchy = PropertyConfigResolver.orderHierarchy(propertyConfig,
+                    configs);
+            effectiveConfigs.add(new EffectiveConfig(propertyConfig.getName(),
+                    PropertyConfigResolver.revisions(hierarchy), computedAt,
+                    PropertyConfigResolver.resolve(hierarchy)));
+        }
+        insert(effectiveConfigs);
+        LOGGER.debug("Effective configs of {} inserted configs were computed", effectiveConfigs.size());
+
+        return effectiveConfigs.size();
+    }
+
+    @Override
+    public int computeMissing() {
+        final Set<String> names = new LinkedHashSet<String>(findIds(new Query(), PropertyConfig.class));
+        names.removeAll(findIds(new Query(), EffectiveConfig.class));
+        for (final String name : names) {
+            recomputeConfig(name);
+        }
+        LOGGER.info("Missing effective configs of {} configs were computed", names.size());
+
+        return names.size();
+    }
+
+    private void recomputeConfig(final String name) {
+        final Map<String, PropertyConfig> hierarchy = propertyConfigRepository.findConfigWithParents(name);
+        if (hierarchy.isEmpty()) {
+            // Lookup may be answered by the name filter, config is removed only if it's really missing
+            if (mongoTemplate.count(query(where(ID_FIELD).is(name)), PropertyConfig.class) == 0) {
+                mongoTemplate.remove(query(where(ID_FIELD).is(name)), EffectiveConfig.class);
+            }
+        } else {
+            save(new EffectiveConfig(name, PropertyConfigResolver.revisions(hierarchy),
+                    Calendar.getInstance().getTime(), PropertyConfigResolver.resolve(hierarchy)));
+        }
+    }
+
+    /**
+     * Saves effective config unless it has already been computed from the same or newer revisions. Ancestors of a
+     * config never change and revisions only grow, so the sum of revisions identifies the newest computation.
+     * Concurrent recomputations may finish out of order, the older one doesn't replace the newer result. Write is
+     * acknowledged, otherwise the upsert that collides with the newer result would fail unnoticed.
+     */
+    private void save(final EffectiveConfig effectiveConfig) {
+        final DBObject dbObject = toDbObject(effectiveConfig);
+        final Object revisionSum = dbObject.get(REVISION_SUM_FIELD);
+        // Documents saved before the sum was stored are replaced as well
+        final DBObject query = new BasicDBObject(ID_FIELD, effectiveConfig.getName()).append("$or", Arrays.asList(
+                new BasicDBObject(REVISION_SUM_FIELD, new BasicDBObject("$lt", revisionSum)),
+                new BasicDBObject(REVISION_SUM_FIELD, new BasicDBObject("$exists", false))));
+        try {
+            mongoTemplate.execute(EffectiveConfig.class, new CollectionCallback<Object>() {
+
+                @Override
+                public Object doInCollection(final DBCollection collection) throws MongoException,
+                        DataAccessException {
+                    return collection.update(query, dbObject, true, false, WriteConcern.ACKNOWLEDGED);
+                }
+
+            });
+        } catch (final DuplicateKeyException e) {
+            // Upsert found the config computed from newer revisions
+            LOGGER.debug("Effective config '{}' has already been computed from newer revisions",
+                    effectiveConfig.getName());
+        }
+    }
+
+    /**
+     * Inserts effective configs in one write. Configs that have been computed already, for example by a concurrent
+     * recomputation, stop the batch, so the whole batch is saved one by one then.
+     */
+    private void insert(final List<EffectiveConfig> effectiveConfigs) {
+        final List<DBObject> dbObjects = new ArrayList<DBObject>(effectiveConfigs.size());
+        for (final EffectiveConfig effectiveConfig : effectiveConfigs) {
+            dbObjects.add(toDbObject(effectiveConfig));
+        }
+        try {
+            mongoTemplate.execute(EffectiveConfig.class, new CollectionCallback<Object>() {
+
+                @Override
+                public Object doInCollection(final DBCollection collection) throws MongoException,
+                        DataAccessException {
+                    return collection.insert(dbObjects, WriteConcern.ACKNOWLEDGED);
+                }
+
+            });
+        } catch (final DuplicateKeyException e) {
+            for (final EffectiveConfig effectiveConfig : effectiveConfigs) {
+                save(effectiveConfig);
+            }
+        }
+    }
+
+    private DBObject toDbObject(final EffectiveConfig effectiveConfig) {
+        long revisionSum = 0;
+        for (final int revision : effectiveConfig.getRevisions().values()) {
+            revisionSum += revision;
+        }
+        final DBObject dbObject = new BasicDBObject();
+        mongoTemplate.getConverter().write(effectiveConfig, dbObject);
+        dbObject.put(REVISION_SUM_FIELD, revisionSum);
+
+        return dbObject;
+    }
+
+    private List<String> findIds(final Query query, final Class<?> entityClass) {
+        query.fields().include(ID_FIELD);
+        final List<String> ids = new ArrayList<String>();
+        mongoTemplate.executeQuery(query, mongoTemplate.getCollectionName(entityClass),
+                new DocumentCallbackHandler() {
+
+                    @Override
+                    public void processDocument(final DBObject dbObject) throws MongoException, DataAccessException {
+                        ids.add((String) dbObject.get(ID_FIELD));
+                    }
+
+                });
+
+        return ids;
+    }
+
+}
@@ -1,15 +1,46 @@
 package com.gmail.avenderov.mongo.repository;
 
+import com.gmail.avenderov.api.ChangeFeedListener;
 import com.gmail.avenderov.api.repository.PropertyConfigRepository;
 import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigResolver;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.gmail.avenderov.mongo.event.ConfigsInsertedEvent;
+import com.gmail.avenderov.utils.ConcurrentBloomFilter;
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.dao.*;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.DbCallback;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -20,19 +51,93 @@ import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
 /**
+ * Keeps a bloom filter of config names in memory, so that lookups of names that don't exist are answered without
+ * a round trip to the database. Configs inserted through other instances are learnt from the change log, see
+ * {@link ChangeFeedListener}, so the filter is used only while the change log is followed: it is loaded once the
+ * feed has caught up and answers only while the feed keeps up and hasn't lost changes since loading started. Filter
+ * is loaded in a background thread, lookups never wait for it. In contexts without a change log tailer every lookup
+ * goes to the database. Inserts and updates never rely on the filter.
+ *
  * @author Alexey Venderov
  */
 @Repository
-public class MongoPropertyConfigRepository implements PropertyConfigRepository {
+public class MongoPropertyConfigRepository implements PropertyConfigRepository, ChangeFeedListener,
+        ApplicationEventPublisherAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoPropertyConfigRepository.class);
+
+    /**
+     * Default maximum number of ancestor levels above a config. Depth doesn't bound the size of a hierarchy: the
+     * config and all its ancestors come back in one document, which must stay within the 16 MB BSON limit, and
+     * {@code $graphLookup} must fit the ancestors into its 100 MB memory limit, as it can't spill to disk.
+     */
+    public static final int DEFAULT_MAX_HIERARCHY_DEPTH = 16;
+
+    /**
+     * Minimum number of names the name filter is sized for. Filter is sized for twice the number of configs in
+     * the database, if that is more.
+     */
+    public static final long DEFAULT_EXPECTED_CONFIGS = 100000L;
+
+    private static final double NAME_FILTER_FPP = 0.01;
+
+    private static final long NAME_FILTER_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Feed that hasn't caught up for longer is considered behind, change log tailer polls every 100 ms.
+     */
+    private static final long FEED_LAG_TOLERANCE_MILLIS = TimeUnit.SECONDS.toMillis(1);
 
     private static final String ID_FIELD = "_id";
 
+    private static final String PARENTS_FIELD = "parents";
+
+    private static final String REVISION_FIELD = "revision";
+
+    private static final String LAST_MODIFIED_AT_FIELD = "lastModifiedAt";
+
+    private static final String PROPERTIES_FIELD = "properties";
+
+    private static final String ANCESTORS_FIELD = "ancestors";
+
+    private static final String DEPTH_FIELD = "depth";
+
     private final MongoTemplate mongoTemplate;
 
+    private final int maxHierarchyDepth;
+
+    private final Lock nameFilterLoadLock = new ReentrantLock();
+
+    // Single thread that exits when idle, loads are rare
+    private final ThreadPoolExecutor nameFilterLoader;
+
+    private final AtomicBoolean nameFilterLoadScheduled = new AtomicBoolean();
+
+    private volatile NameFilter nameFilter;
+
+    private volatile long nextNameFilterLoadMillis;
+
+    private volatile long feedCaughtUpMillis;
+
+    // Incremented whenever changes are lost, filters loaded before that miss some names. Written by the feed only
+    private volatile int feedEpoch;
+
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     public MongoPropertyConfigRepository(final MongoTemplate mongoTemplate) {
+        this(mongoTemplate, DEFAULT_MAX_HIERARCHY_DEPTH);
+    }
+
+    public MongoPropertyConfigRepository(final MongoTemplate mongoTemplate, final int maxHierarchyDepth) {
         checkNotNull(mongoTemplate, "mongoTemplate must not be null");
+        checkArgument(maxHierarchyDepth > 0, "maxHierarchyDepth must be greater than zero");
         this.mongoTemplate = mongoTemplate;
+        this.maxHierarchyDepth = maxHierarchyDepth;
+        this.nameFilterLoader = new ThreadPoolExecutor(1, 1, 1L, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder()
+                .setNameFormat("name-filter-loader").setDaemon(true).build());
+        this.nameFilterLoader.allowCoreThreadTimeOut(true);
     }
 
     @Override
@@ -40,6 +145,124 @@ public class MongoPropertyConfigRepository implements PropertyConfigRepository {
         return mongoTemplate;
     }
 
+    @Override
+    public void setApplicationEventPublisher(final ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Loads names of all configs into a new name filter. Until loading is finished, lookups go to the database.
+     * Filter is loaded in the background once the change feed has caught up, changes recorded since then are put
+     * into the filter as well. If loading fails, it is retried after a delay.
+     */
+    public void loadNameFilter() {
+        nameFilterLoadLock.lock();
+        try {
+            // Epoch is read before the names, so that changes lost during the scan invalidate the filter
+            final int epoch = feedEpoch;
+            final long configCount = mongoTemplate.count(new Query(), PropertyConfig.class);
+            final NameFilter loadingFilter = new NameFilter(ConcurrentBloomFilter.create(
+                    Math.max(DEFAULT_EXPECTED_CONFIGS, 2 * configCount), NAME_FILTER_FPP), epoch);
+            // Configs inserted while names are streamed are put into the new filter as well
+            nameFilter = loadingFilter;
+            final Query query = new Query();
+            query.fields().include(ID_FIELD);
+            mongoTemplate.executeQuery(query, mongoTemplate.getCollectionName(PropertyConfig.class),
+                    new DocumentCallbackHandler() {
+
+                        @Override
+                        public void processDocument(final DBObject dbObject) throws MongoException,
+                                DataAccessException {
+                            loadingFilter.bloomFilter.put((String) dbObject.get(ID_FIELD));
+                        }
+
+                    });
+            loadingFilter.ready = true;
+            LOGGER.info("Name filter has been loaded with {} configs", configCount);
+        } catch (final RuntimeException e) {
+            nameFilter = null;
+            nextNameFilterLoadMillis = System.currentTimeMillis() + NAME_FILTER_RETRY_DELAY_MILLIS;
+            LOGGER.warn("Failed to load name filter, configs will be looked up in database", e);
+        } finally {
+            nameFilterLoadLock.unlock();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the name filter is loaded, the change feed is current and config with the given name
+     * has definitely not been inserted. Any config may be present while the filter is being loaded.
+     */
+    private boolean isDefinitelyMissing(final String name) {
+        if (System.currentTimeMillis() - feedCaughtUpMillis > FEED_LAG_TOLERANCE_MILLIS) {
+            return false;
+        }
+        final NameFilter filter = nameFilter;
+
+        return filter != null && filter.epoch == feedEpoch && filter.ready && !filter.bloomFilter.mightContain(name);
+    }
+
+    private boolean isNameFilterStale() {
+        final NameFilter filter = nameFilter;
+
+        return filter == null || filter.epoch != feedEpoch;
+    }
+
+    private void scheduleNameFilterLoad() {
+        if (System.currentTimeMillis() < nextNameFilterLoadMillis || !nameFilterLoadScheduled.compareAndSet(false,
+                true)) {
+            return;
+        }
+        try {
+            nameFilterLoader.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        if (isNameFilterStale()) {
+                            loadNameFilter();
+                        }
+                    } finally {
+                        nameFilterLoadScheduled.set(false);
+                    }
+                }
+
+            });
+        } catch (final RejectedExecutionException e) {
+            nameFilterLoadScheduled.set(false);
+            LOGGER.warn("Failed to schedule name filter load", e);
+        }
+    }
+
+    private void addToNameFilter(final String name) {
+        final NameFilter filter = nameFilter;
+        if (filter != null) {
+            filter.bloomFilter.put(name);
+        }
+    }
+
+    @Override
+    public void onChange(final String name, final int revision) {
+        addToNameFilter(name);
+    }
+
+    @Override
+    public void onCaughtUp() {
+        feedCaughtUpMillis = System.currentTimeMillis();
+        if (isNameFilterStale()) {
+            scheduleNameFilterLoad();
+        }
+    }
+
+    @Override
+    public void onInterrupted(final boolean changesLost) {
+        feedCaughtUpMillis = 0L;
+        if (changesLost) {
+            // Only the feed writes the epoch, so increment doesn't race
+            feedEpoch++;
+            LOGGER.warn("Changes have been lost, name filter will be reloaded");
+        }
+    }
+
     @Override
     public PropertyConfig insert(final PropertyConfig propertyConfig) {
         checkNotNull(propertyConfig, "propertyConfig must not be null");
@@ -48,6 +271,7 @@ public class MongoPropertyConfigRepository implements PropertyConfigRepository {
             checkParentsExistInDatabase(propertyConfig);
         }
         mongoTemplate.insert(propertyConfig);
+        addToNameFilter(propertyConfig.getName());
 
         return propertyConfig;
     }
@@ -63,42 +287,354 @@ public class MongoPropertyConfigRepository implements PropertyConfigRepository {
         }
     }
 
+    /**
+     * Inserted configs are published as a single {@link ConfigsInsertedEvent} rather than an {@link AfterSaveEvent}
+     * each, so that listeners handle the batch with bulk writes. Batch is written in order and is acknowledged, if a
+     * config with the same name is inserted concurrently, configs that were written before it are still published
+     * and {@link DuplicateKeyException} is thrown.
+     */
+    @Override
+    public List<PropertyConfig> insertAll(final List<PropertyConfig> propertyConfigs) {
+        checkNotNull(propertyConfigs, "propertyConfigs must not be null");
+        if (propertyConfigs.isEmpty()) {
+            return propertyConfigs;
+        }
+
+        final Set<String> names = new HashSet<String>();
+        final Set<String> parentsToCheck = new HashSet<String>();
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            checkNotNull(propertyConfig, "propertyConfigs must not contain null elements");
+            for (final String parent : propertyConfig.getParents()) {
+                // Parents that precede the config in the batch will be inserted before it
+                if (!names.contains(parent)) {
+                    parentsToCheck.add(parent);
+                }
+            }
+            if (!names.add(propertyConfig.getName())) {
+                throw new DuplicateKeyException(format("Can't insert configs, because config '%1$s' occurs " +
+                        "more than once", propertyConfig.getName()));
+            }
+        }
+        final Set<String> existingNames = findExistingNames(names);
+        if (!existingNames.isEmpty()) {
+            throw new DuplicateKeyException(format("Can't insert configs, because configs %1$s already exist",
+                    existingNames));
+        }
+        if (!parentsToCheck.isEmpty()) {
+            final Set<String> missingParents = new HashSet<String>(parentsToCheck);
+            missingParents.removeAll(findExistingNames(parentsToCheck));
+            if (!missingParents.isEmpty()) {
+                throw new DataIntegrityViolationException(format("Can't insert configs, because parents %1$s " +
+                        "are missing in database", missingParents));
+            }
+        }
+        final List<DBObject> dbObjects = new ArrayList<DBObject>(propertyConfigs.size());
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            final DBObject dbObject = new BasicDBObject();
+            mongoTemplate.getConverter().write(propertyConfig, dbObject);
+            dbObjects.add(dbObject);
+        }
+        // Batch is written directly, so that configs don't get an event each
+        try {
+            mongoTemplate.execute(PropertyConfig.class, new CollectionCallback<Object>() {
+
+                @Override
+                public Object doInCollection(final DBCollection collection) throws MongoException,
+                        DataAccessException {
+                    return collection.insert(dbObjects, WriteConcern.ACKNOWLEDGED);
+                }
+
+            });
+        } catch (final DuplicateKeyException e) {
+            publishInserted(propertyConfigs.subList(0, countWritten(dbObjects)));
+            throw e;
+        }
+        publishInserted(propertyConfigs);
+
+        return propertyConfigs;
+    }
+
+    /**
+     * Counts documents of the batch that were written before the insert stopped. Document that stopped the insert
+     * was written by someone else, so it differs from the one of the batch.
+     */
+    private int countWritten(final List<DBObject> dbObjects) {
+        final int written = mongoTemplate.execute(PropertyConfig.class, new CollectionCallback<Integer>() {
+
+            @Override
+            public Integer doInCollection(final DBCollection collection) throws MongoException,
+                    DataAccessException {
+                int count = 0;
+                for (final DBObject dbObject : dbObjects) {
+                    if (!dbObject.equals(collection.findOne(new BasicDBObject(ID_FIELD, dbObject.get(ID_FIELD))))) {
+                        break;
+                    }
+                    count++;
+                }
+                return count;
+            }
+
+        });
+        LOGGER.warn("Batch insert was interrupted by a concurrent insert, {} of {} configs were inserted", written,
+                dbObjects.size());
+
+        return written;
+    }
+
+    private void publishInserted(final List<PropertyConfig> propertyConfigs) {
+        if (propertyConfigs.isEmpty()) {
+            return;
+        }
+        for (final PropertyConfig propertyConfig : propertyConfigs) {
+            addToNameFilter(propertyConfig.getName());
+        }
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new ConfigsInsertedEvent(propertyConfigs));
+        }
+    }
+
+    /**
+     * Changes only the properties in the delta, revision check, revision increment and the change itself are done
+     * in one {@code findAndModify}. Delta that only removes properties needs one more lookup to make sure that
+     * some properties are left. Updated config is published as {@link AfterSaveEvent}, just like inserted one.
+     */
+    @Override
+    public PropertyConfig update(final String name, final int expectedRevision, final PropertyDelta delta) {
+        checkArgument(isNotBlank(name), "name must not be blank");
+        checkNotNull(delta, "delta must not be null");
+
+        if (delta.getSet().isEmpty()) {
+            final PropertyConfig current = mongoTemplate.findOne(query(where(ID_FIELD).is(name)),
+                    PropertyConfig.class);
+            if (current != null && current.getRevision() == expectedRevision &&
+                    delta.applyTo(current.getContent()).isEmpty()) {
+                throw new DataIntegrityViolationException(format("Can't update config '%1$s', because all its " +
+                        "properties would be removed", name));
+            }
+        }
+
+        final Update update = new Update().inc(REVISION_FIELD, 1)
+                .set(LAST_MODIFIED_AT_FIELD, Calendar.getInstance().getTime());
+        for (final Map.Entry<String, String> property : delta.getSet().entrySet()) {
+            update.set(PROPERTIES_FIELD + "." + property.getKey(), property.getValue());
+        }
+        for (final String key : delta.getUnset()) {
+            update.unset(PROPERTIES_FIELD + "." + key);
+        }
+        final PropertyConfig updated = mongoTemplate.findAndModify(
+                query(where(ID_FIELD).is(name).and(REVISION_FIELD).is(expectedRevision)), update,
+                FindAndModifyOptions.options().returnNew(true), PropertyConfig.class);
+        if (updated == null) {
+            if (mongoTemplate.count(query(where(ID_FIELD).is(name)), PropertyConfig.class) == 0) {
+                throw new EmptyResultDataAccessException(format("Config '%1$s' doesn't exist", name), 1);
+            }
+            throw new OptimisticLockingFailureException(format("Can't update config '%1$s', because its revision " +
+                    "is not %2$d", name, expectedRevision));
+        }
+        publishAfterSave(updated);
+
+        return updated;
+    }
+
+    private void publishAfterSave(final PropertyConfig propertyConfig) {
+        if (eventPublisher != null) {
+            final DBObject dbObject = new BasicDBObject();
+            mongoTemplate.getConverter().write(propertyConfig, dbObject);
+            eventPublisher.publishEvent(new AfterSaveEvent<PropertyConfig>(propertyConfig, dbObject));
+        }
+    }
+
     @Override
     public boolean checkConfigExist(final String name) {
         checkArgument(isNotBlank(name), "name must not be blank");
+        if (isDefinitelyMissing(name)) {
+            return false;
+        }
         final long numberOfObjectsInDatabase = mongoTemplate.count(query(where(ID_FIELD).is(name)),
                 PropertyConfig.class);
         return numberOfObjectsInDatabase == 1;
     }
 
+    @Override
+    public Set<String> checkConfigsExist(final Collection<String> names) {
+        checkNotNull(names, "names must not be null");
+        if (names.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        final Collection<String> possiblyExistingNames = filterDefinitelyMissing(names);
+        if (possiblyExistingNames.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        return findExistingNames(possiblyExistingNames);
+    }
+
+    private Set<String> findExistingNames(final Collection<String> names) {
+        final Query query = query(where(ID_FIELD).in(names));
+        query.fields().include(ID_FIELD);
+        final Set<String> existingNames = new HashSet<String>();
+        mongoTemplate.executeQuery(query, mongoTemplate.getCollectionName(PropertyConfig.class),
+                new DocumentCallbackHandler() {
+
+                    @Override
+                    public void processDocument(final DBObject dbObject) throws MongoException, DataAccessException {
+                        existingNames.add((String) dbObject.get(ID_FIELD));
+                    }
+
+                });
+
+        return Collections.unmodifiableSet(existingNames);
+    }
+
     @Override
     public Optional<PropertyConfig> findConfig(final String name) {
         checkArgument(isNotBlank(name), "name must not be blank");
+        if (isDefinitelyMissing(name)) {
+            return Optional.absent();
+        }
 
         return Optional.fromNullable(mongoTemplate.findOne(query(where(ID_FIELD).is(name)), PropertyConfig.class));
     }
 
+    @Override
+    public Map<String, PropertyConfig> findConfigs(final Collection<String> names) {
+        checkNotNull(names, "names must not be null");
+        if (names.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Collection<String> possiblyExistingNames = filterDefinitelyMissing(names);
+        if (possiblyExistingNames.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, PropertyConfig> configs = new HashMap<String, PropertyConfig>();
+        for (final PropertyConfig propertyConfig : mongoTemplate.find(query(where(ID_FIELD).in(possiblyExistingNames)),
+                PropertyConfig.class)) {
+            configs.put(propertyConfig.getName(), propertyConfig);
+        }
+
+        return Collections.unmodifiableMap(configs);
+    }
+
     @Override
     public Map<String, PropertyConfig> findConfigWithParents(final String name) {
-        final Optional<PropertyConfig> optionalPropertyConfig = findConfig(name);
-        if (optionalPropertyConfig.isPresent()) {
-            final PropertyConfig propertyConfig = optionalPropertyConfig.get();
-            if (!propertyConfig.getParents().isEmpty()) {
-                final List<PropertyConfig> parents = mongoTemplate.find(query(where(ID_FIELD).in(propertyConfig
-                        .getParents())), PropertyConfig.class);
-                // This check should always be true, because we are not going to delete config files
-                checkState(parents.size() == propertyConfig.getParents().size(),
-                        format("Number of parents in database is not equal to number of parents in '%1$s' config", name));
-                final ImmutableMap.Builder<String, PropertyConfig> resultBuilder =
-                        ImmutableMap.<String, PropertyConfig>builder().put(propertyConfig.getName(), propertyConfig);
-                for (final PropertyConfig parent : parents) {
-                    resultBuilder.put(parent.getName(), parent);
-                }
-                return resultBuilder.build();
+        checkArgument(isNotBlank(name), "name must not be blank");
+        if (isDefinitelyMissing(name)) {
+            return Collections.emptyMap();
+        }
+
+        final DBObject hierarchy = findHierarchy(name);
+        if (hierarchy == null) {
+            return Collections.emptyMap();
+        }
+        @SuppressWarnings("unchecked")
+        final List<DBObject> ancestorObjects = (List<DBObject>) hierarchy.removeField(ANCESTORS_FIELD);
+        final MongoConverter converter = mongoTemplate.getConverter();
+        final PropertyConfig propertyConfig = converter.read(PropertyConfig.class, hierarchy);
+
+        final Map<String, PropertyConfig> ancestors = new HashMap<String, PropertyConfig>();
+        for (final DBObject ancestorObject : ancestorObjects) {
+            checkState(((Number) ancestorObject.get(DEPTH_FIELD)).intValue() < maxHierarchyDepth,
+                    "Hierarchy of '%s' config is deeper than %s levels", name, maxHierarchyDepth);
+            final PropertyConfig ancestor = converter.read(PropertyConfig.class, ancestorObject);
+            ancestors.put(ancestor.getName(), ancestor);
+        }
+        checkState(!ancestors.containsKey(name), "Config '%s' is its own ancestor", name);
+
+        return orderHierarchy(propertyConfig, ancestors);
+    }
+
+    private Collection<String> filterDefinitelyMissing(final Collection<String> names) {
+        final List<String> possiblyExistingNames = new ArrayList<String>(names.size());
+        for (final String name : names) {
+            if (!isDefinitelyMissing(name)) {
+                possiblyExistingNames.add(name);
+            }
+        }
+        return possiblyExistingNames;
+    }
+
+    /**
+     * Loads config together with all its ancestors in one round trip. Ancestors are resolved on the server by
+     * {@code $graphLookup} over the parents field and returned in the "ancestors" array of the config document, so
+     * MongoDB 3.4 or later is required. Hierarchy that doesn't fit into a single 16 MB document fails the command.
+     * One level more than allowed is requested, so that too deep hierarchies can be detected.
+     */
+    private DBObject findHierarchy(final String name) {
+        final String collectionName = mongoTemplate.getCollectionName(PropertyConfig.class);
+        final DBObject graphLookup = new BasicDBObject("from", collectionName)
+                .append("startWith", "$" + PARENTS_FIELD)
+                .append("connectFromField", PARENTS_FIELD)
+                .append("connectToField", ID_FIELD)
+                .append("as", ANCESTORS_FIELD)
+                .append("maxDepth", maxHierarchyDepth)
+                .append("depthField", DEPTH_FIELD);
+        final List<DBObject> pipeline = Arrays.<DBObject>asList(new BasicDBObject("$match",
+                new BasicDBObject(ID_FIELD, name)), new BasicDBObject("$graphLookup", graphLookup));
+        final DBObject command = new BasicDBObject("aggregate", collectionName).append("pipeline", pipeline)
+                .append("cursor", new BasicDBObject());
+
+        final CommandResult result = mongoTemplate.execute(new DbCallback<CommandResult>() {
+
+            @Override
+            public CommandResult doInDB(final DB db) throws MongoException, DataAccessException {
+                final CommandResult commandResult = db.command(command);
+                commandResult.throwOnError();
+                return commandResult;
+            }
+
+        });
+        @SuppressWarnings("unchecked")
+        final List<DBObject> firstBatch = (List<DBObject>) ((DBObject) result.get("cursor")).get("firstBatch");
+
+        return firstBatch.isEmpty() ? null : firstBatch.get(0);
+    }
+
+    /**
+     * Orders hierarchy breadth first starting from the config itself, parents of every config are visited in the
+     * order they are declared. Fails if some ancestor is missing or if ancestors form a cycle.
+     */
+    private static Map<String, PropertyConfig> orderHierarchy(final PropertyConfig propertyConfig,
+                                                              final Map<String, PropertyConfig> ancestors) {
+        final Map<String, PropertyConfig> result = PropertyConfigResolver.orderHierarchy(propertyConfig, ancestors);
+        checkNoCycles(ancestors);
+
+        return result;
+    }
+
+    private static void checkNoCycles(final Map<String, PropertyConfig> ancestors) {
+        final Set<String> visited = new HashSet<String>();
+        for (final String name : ancestors.keySet()) {
+            checkNoCycles(name, ancestors, visited, new LinkedHashSet<String>());
+        }
+    }
+
+    private static void checkNoCycles(final String name, final Map<String, PropertyConfig> ancestors,
+                                      final Set<String> visited, final Set<String> path) {
+        checkState(path.add(name), "Configs %s form a cycle", path);
+        if (visited.add(name)) {
+            for (final String parentName : ancestors.get(name).getParents()) {
+                checkNoCycles(parentName, ancestors, visited, path);
             }
-            return Collections.singletonMap(propertyConfig.getName(), propertyConfig);
         }
-        return Collections.emptyMap();
+        path.remove(name);
+    }
+
+    private static final class NameFilter {
+
+        private final ConcurrentBloomFilter bloomFilter;
+
+        private final int epoch;
+
+        private volatile boolean ready;
+
+        private NameFilter(final ConcurrentBloomFilter bloomFilter, final int epoch) {
+            this.bloomFilter = bloomFilter;
+            this.epoch = epoch;
+        }
+
     }
 
 }
@@ -0,0 +1,190 @@
+package com.gmail.avenderov.sync;
+
+import com.gmail.avenderov.api.repository.ConfigHistoryRepository;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.client.model.ConfigUpdate;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigResolver;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Computes what a client has to change to bring its resolved configs up to date. Client sends revisions of every
+ * config and its ancestors it holds, properties it holds are restored from {@link ConfigHistoryRepository} and
+ * compared to the current ones, so only added, changed and removed properties have to be sent back. Whole config is
+ * sent instead, when the client doesn't hold it, its ancestors have changed, the held revisions are too far behind or
+ * no longer in history, or when the delta wouldn't be smaller than the config itself. Current configs are read in
+ * batches, one lookup per hierarchy level for all configs of the request.
+ *
+ * @author Alexey Venderov
+ */
+public class ConfigSynchronizer {
+
+    /**
+     * Default number of revisions, summed over the config and its ancestors, the client may be behind to get a delta.
+     */
+    public static final int DEFAULT_MAX_REVISION_GAP = 64;
+
+    private final PropertyConfigRepository propertyConfigRepository;
+
+    private final ConfigHistoryRepository configHistoryRepository;
+
+    private final int maxRevisionGap;
+
+    public ConfigSynchronizer(final PropertyConfigRepository propertyConfigRepository,
+                              final ConfigHistoryRepository configHistoryRepository) {
+        this(propertyConfigRepository, configHistoryRepository, DEFAULT_MAX_REVISION_GAP);
+    }
+
+    public ConfigSynchronizer(final PropertyConfigRepository propertyConfigRepository,
+                              final ConfigHistoryRepository configHistoryRepository, final int maxRevisionGap) {
+        checkNotNull(propertyConfigRepository, "propertyConfigRepository must not be null");
+        checkNotNull(configHistoryRepository, "configHistoryRepository must not be null");
+        checkArgument(maxRevisionGap > 0, "maxRevisionGap must be greater than zero");
+
+        this.propertyConfigRepository = propertyConfigRepository;
+        this.configHistoryRepository = configHistoryRepository;
+        this.maxRevisionGap = maxRevisionGap;
+    }
+
+    /**
+     * Computes updates of the configs held by the client. Configs that are up to date, that the client holds newer
+     * revisions of than this instance sees, or that neither exist nor are held by the client, are omitted.
+     *
+     * @param heldRevisions config names mapped to the revisions of the config and its ancestors held by the client,
+     *                      empty map for a config the client doesn't have
+     * @return updates in the order of the configs in request, entity tags are not set
+     * @throws IllegalArgumentException if some name is blank or some revision is not positive
+     */
+    public List<ConfigUpdate> sync(final Map<String, Map<String, Integer>> heldRevisions) {
+        checkNotNull(heldRevisions, "heldRevisions must not be null");
+
+        for (final Map.Entry<String, Map<String, Integer>> held : heldRevisions.entrySet()) {
+            checkArgument(isNotBlank(held.getKey()), "names must not be blank");
+            if (held.getValue() != null) {
+                for (final Map.Entry<String, Integer> revision : held.getValue().entrySet()) {
+                    checkArgument(revision.getValue() != null && revision.getValue() > 0, "revision of '%s' " +
+                            "config must be greater than zero", revision.getKey());
+                }
+            }
+        }
+
+        final Map<String, PropertyConfig> configs = findConfigsWithAncestors(heldRevisions.keySet());
+        final List<ConfigUpdate> updates = new ArrayList<ConfigUpdate>(heldRevisions.size());
+        for (final Map.Entry<String, Map<String, Integer>> held : heldRevisions.entrySet()) {
+            final Map<String, Integer> revisions = held.getValue() != null ? held.getValue() :
+                    Collections.<String, Integer>emptyMap();
+            final Optional<ConfigUpdate> update = sync(held.getKey(), revisions, configs);
+            if (update.isPresent()) {
+                updates.add(update.get());
+            }
+        }
+
+        return updates;
+    }
+
+    /**
+     * Reads the configs with all their ancestors level by level, so that the number of lookups is bounded by the
+     * depth of the deepest hierarchy rather than by the number of configs.
+     */
+    private Map<String, PropertyConfig> findConfigsWithAncestors(final Collection<String> names) {
+        final Map<String, PropertyConfig> configs = new HashMap<String, PropertyConfig>();
+        Set<String> level = new HashSet<String>(names);
+        while (!level.isEmpty()) {
+            final Map<String, PropertyConfig> found = propertyConfigRepository.findConfigs(level);
+            configs.putAll(found);
+            final Set<String> parents = new HashSet<String>();
+            for (final PropertyConfig propertyConfig : found.values()) {
+                for (final String parent : propertyConfig.getParents()) {
+                    if (!configs.containsKey(parent)) {
+                        parents.add(parent);
+                    }
+                }
+            }
+            level = parents;
+        }
+
+        return configs;
+    }
+
+    private Optional<ConfigUpdate> sync(final String name, final Map<String, Integer> heldRevisions,
+                                        final Map<String, PropertyConfig> configs) {
+        final PropertyConfig propertyConfig = configs.get(name);
+        if (propertyConfig == null) {
+            return heldRevisions.isEmpty() ? Optional.<ConfigUpdate>absent() :
+                    Optional.of(ConfigUpdate.removed(name));
+        }
+        final Map<String, PropertyConfig> hierarchy = PropertyConfigResolver.orderHierarchy(propertyConfig, configs);
+        final Map<String, Integer> revisions = PropertyConfigResolver.revisions(hierarchy);
+        if (revisions.equals(heldRevisions)) {
+            return Optional.absent();
+        }
+        final Map<String, String> properties = PropertyConfigResolver.resolve(hierarchy);
+        if (!revisions.keySet().equals(heldRevisions.keySet())) {
+            return Optional.of(ConfigUpdate.snapshot(name, revisions, null, properties));
+        }
+
+        int gap = 0;
+        for (final Map.Entry<String, Integer> revision : revisions.entrySet()) {
+            final int behind = revision.getValue() - heldRevisions.get(revision.getKey());
+            if (behind < 0) {
+                // Client has already seen a write this instance doesn't see yet
+                return Optional.absent();
+            }
+            gap += behind;
+        }
+        if (gap > maxRevisionGap) {
+            return Optional.of(ConfigUpdate.snapshot(name, revisions, null, properties));
+        }
+
+        final Optional<Map<String, PropertyConfig>> heldHierarchy = restore(hierarchy, heldRevisions);
+        if (!heldHierarchy.isPresent()) {
+            return Optional.of(ConfigUpdate.snapshot(name, revisions, null, properties));
+        }
+        final PropertyDelta delta = PropertyDelta.between(PropertyConfigResolver.resolve(heldHierarchy.get()),
+                properties);
+        if (delta.getSet().size() + delta.getUnset().size() >= properties.size()) {
+            return Optional.of(ConfigUpdate.snapshot(name, revisions, null, properties));
+        }
+
+        // Delta may be empty, when changed properties are overridden, the client still needs new revisions
+        return Optional.of(ConfigUpdate.delta(name, revisions, null, delta.getSet(), delta.getUnset()));
+    }
+
+    private Optional<Map<String, PropertyConfig>> restore(final Map<String, PropertyConfig> hierarchy,
+                                                          final Map<String, Integer> heldRevisions) {
+        final Map<String, PropertyConfig> heldHierarchy = new LinkedHashMap<String, PropertyConfig>();
+        for (final PropertyConfig propertyConfig : hierarchy.values()) {
+            final int heldRevision = heldRevisions.get(propertyConfig.getName());
+            if (heldRevision == propertyConfig.getRevision()) {
+                heldHierarchy.put(propertyConfig.getName(), propertyConfig);
+                continue;
+            }
+            final Optional<Map<String, String>> properties =
+                    configHistoryRepository.findProperties(propertyConfig.getName(), heldRevision);
+            if (!properties.isPresent()) {
+                return Optional.absent();
+            }
+            heldHierarchy.put(propertyConfig.getName(), new PropertyConfig(propertyConfig.getName(), heldRevision,
+                    propertyConfig.getCreatedAt(), propertyConfig.getLastModifiedAt(), propertyConfig.getParents(),
+                    properties.get()));
+        }
+
+        return Optional.of(heldHierarchy);
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.gmail.avenderov.utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable string maps and sets that take little heap when many of them repeat the same strings. Keys and values
+ * are taken from a shared pool, so configs that inherit from the same parents share one instance of every key and
+ * of every value that is repeated. Pool keeps strings weakly, unused strings are collected as usual.
+ * <p/>
+ * Small maps are kept as one flat array of keys and values sorted by key and searched by binary search, instead of
+ * a hash table with an entry object per mapping. Larger maps are kept in hash tables, so that lookups don't slow
+ * down. Maps of both kinds iterate in key order.
+ *
+ * @author Alexey Venderov
+ */
+public final class CompactMaps {
+
+    /**
+     * Maps with more entries are kept in hash tables.
+     */
+    public static final int MAX_ARRAY_MAP_SIZE = 64;
+
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+    private CompactMaps() {
+    }
+
+    /**
+     * Returns the pooled instance of the string.
+     */
+    public static String intern(final String value) {
+        checkNotNull(value, "value must not be null");
+
+        return STRINGS.intern(value);
+    }
+
+    /**
+     * Copies the map into an immutable map of pooled strings that iterates in key order. Maps returned by this
+     * method are not copied again.
+     *
+     * @param map map without {@code null} keys and values
+     * @return compact copy of the map
+     */
+    public static Map<String, String> copyOf(final Map<String, String> map) {
+        checkNotNull(map, "map must not be null");
+
+        if (map instanceof SortedArrayMap) {
+            return map;
+        }
+        if (map.isEmpty()) {
+            return ImmutableMap.of();
+        }
+
+        final String[] keys = map.keySet().toArray(new String[map.size()]);
+        for (final String key : keys) {
+            checkNotNull(key, "keys must not be null");
+        }
+        Arrays.sort(keys);
+        if (keys.length <= MAX_ARRAY_MAP_SIZE) {
+            final String[] entries = new String[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                entries[i * 2] = STRINGS.intern(keys[i]);
+                entries[i * 2 + 1] = STRINGS.intern(value(map, keys[i]));
+            }
+            return new SortedArrayMap(entries);
+        }
+
+        // Immutable map keeps insertion order
+        final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (final String key : keys) {
+            builder.put(STRINGS.intern(key), STRINGS.intern(value(map, key)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Copies strings into an immutable set of pooled strings that keeps iteration order.
+     */
+    public static Set<String> copyOf(final Collection<String> values) {
+        checkNotNull(values, "values must not be null");
+
+        final ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (final String value : values) {
+            builder.add(intern(value));
+        }
+        return builder.build();
+    }
+
+    private static String value(final Map<String, String> map, final String key) {
+        final String value = map.get(key);
+        checkNotNull(value, "value of '%s' must not be null", key);
+
+        return value;
+    }
+
+}
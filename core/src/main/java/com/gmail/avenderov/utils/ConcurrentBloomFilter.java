@@ -0,0 +1,104 @@
+package com.gmail.avenderov.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bloom filter of strings that can be updated and queried concurrently without locks. Guava's bloom filter can't
+ * be updated concurrently, so bits are kept in an {@link AtomicLongArray} here. Positions are derived from a single
+ * 128-bit murmur3 hash by double hashing.
+ *
+ * @author Alexey Venderov
+ */
+public final class ConcurrentBloomFilter {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashFunctionCount;
+
+    private ConcurrentBloomFilter(final long bitCount, final int hashFunctionCount) {
+        this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        this.bitCount = (long) bits.length() * 64;
+        this.hashFunctionCount = hashFunctionCount;
+    }
+
+    /**
+     * Creates filter sized for the expected number of strings.
+     *
+     * @param expectedInsertions expected number of strings
+     * @param fpp                desired false positive probability when expected number of strings has been put
+     * @return empty filter
+     */
+    public static ConcurrentBloomFilter create(final long expectedInsertions, final double fpp) {
+        checkArgument(expectedInsertions > 0, "expectedInsertions must be greater than zero");
+        checkArgument(fpp > 0 && fpp < 1, "fpp must be between zero and one");
+
+        final long bitCount = Math.max(64, (long) (-expectedInsertions * Math.log(fpp) /
+                (Math.log(2) * Math.log(2))));
+        // Bit positions are derived from 32-bit hashes
+        checkArgument(bitCount <= Integer.MAX_VALUE, "expectedInsertions is too large");
+        final int hashFunctionCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions *
+                Math.log(2)));
+
+        return new ConcurrentBloomFilter(bitCount, hashFunctionCount);
+    }
+
+    public void put(final String value) {
+        checkNotNull(value, "value must not be null");
+
+        final long hash = HASH_FUNCTION.hashString(value, Charsets.UTF_8).asLong();
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctionCount; i++) {
+            setBit(bitIndex(hash1, hash2, i));
+        }
+    }
+
+    /**
+     * Returns {@code false} if the value has definitely not been put into the filter.
+     */
+    public boolean mightContain(final String value) {
+        checkNotNull(value, "value must not be null");
+
+        final long hash = HASH_FUNCTION.hashString(value, Charsets.UTF_8).asLong();
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctionCount; i++) {
+            final long index = bitIndex(hash1, hash2, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bitIndex(final int hash1, final int hash2, final int i) {
+        int combinedHash = hash1 + i * hash2;
+        if (combinedHash < 0) {
+            combinedHash = ~combinedHash;
+        }
+        return combinedHash % bitCount;
+    }
+
+    private void setBit(final long index) {
+        final int wordIndex = (int) (index >>> 6);
+        final long mask = 1L << index;
+        while (true) {
+            final long word = bits.get(wordIndex);
+            if ((word & mask) != 0 || bits.compareAndSet(wordIndex, word, word | mask)) {
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.gmail.avenderov.utils;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Coalesces concurrent calls with equal keys. The first caller executes the call, callers that arrive while it is in
+ * flight wait for it and receive the same result or exception. Nothing is kept once the call completes, so failures
+ * are not remembered and the next caller executes the call again.
+ *
+ * @author Alexey Venderov
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, SettableFuture<V>> calls = new ConcurrentHashMap<K, SettableFuture<V>>();
+
+    /**
+     * Executes the call unless a call with the same key is in flight, in which case waits for its result.
+     *
+     * @param key key of the call
+     * @param call call to execute
+     * @return result of the call
+     */
+    public V execute(final K key, final Callable<V> call) {
+        checkNotNull(key, "key must not be null");
+        checkNotNull(call, "call must not be null");
+
+        final SettableFuture<V> future = SettableFuture.create();
+        final SettableFuture<V> inFlight = calls.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            final V result = call.call();
+            future.set(result);
+            return result;
+        } catch (final Throwable t) {
+            future.setException(t);
+            throw Throwables.propagate(t);
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    private V await(final SettableFuture<V> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (final ExecutionException e) {
+            // Waiting callers get the same exception as the executing one
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Returns number of calls in flight.
+     */
+    public int size() {
+        return calls.size();
+    }
+
+}
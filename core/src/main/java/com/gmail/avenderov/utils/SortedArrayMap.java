@@ -0,0 +1,117 @@
+package com.gmail.avenderov.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable string map backed by one array of keys and values, {@code [key0, value0, key1, value1, ...]}, sorted by
+ * key. Takes two references per mapping, lookups are done by binary search. Created by
+ * {@link CompactMaps#copyOf(Map)} only.
+ *
+ * @author Alexey Venderov
+ */
+final class SortedArrayMap extends AbstractMap<String, String> {
+
+    private final String[] entries;
+
+    private final Set<Map.Entry<String, String>> entrySet = new EntrySet();
+
+    SortedArrayMap(final String[] entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public int size() {
+        return entries.length / 2;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(final Object key) {
+        final int index = indexOf(key);
+
+        return index >= 0 ? entries[index + 1] : null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return entrySet;
+    }
+
+    private int indexOf(final Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final String middleKey = entries[middle * 2];
+            // Keys are pooled, so lookups by keys of other configs usually match by reference
+            final int comparison = middleKey == key ? 0 : middleKey.compareTo((String) key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle * 2;
+            }
+        }
+
+        return -1;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+        @Override
+        public int size() {
+            return SortedArrayMap.this.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new Iterator<Map.Entry<String, String>>() {
+
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < entries.length;
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final Map.Entry<String, String> entry =
+                            new SimpleImmutableEntry<String, String>(entries[index], entries[index + 1]);
+                    index += 2;
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.gmail.avenderov.async;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Alexey Venderov
+ */
+public class AdmissionControllerTest {
+
+    private final List<String> started = new ArrayList<String>();
+
+    private final List<SettableFuture<String>> running = new ArrayList<SettableFuture<String>>();
+
+    @Test
+    public void testCallsOverLimitWaitAndAreServedRoundRobin() throws Exception {
+        final AdmissionController admissionController = newAdmissionController(1, 10, 10, 1, TimeUnit.MINUTES);
+
+        final ListenableFuture<String> first = admissionController.submit("client1", call("first"));
+        final ListenableFuture<String> second = admissionController.submit("client1", call("second"));
+        final ListenableFuture<String> third = admissionController.submit("client1", call("third"));
+        final ListenableFuture<String> other = admissionController.submit("client2", call("other"));
+        assertThat("Only one call should be started", started, contains("first"));
+        assertThat("Wrong number of queued calls", admissionController.getQueued(), is(3));
+
+        complete(0);
+        assertThat("Result was not passed", first.get(), is("first"));
+        complete(1);
+        complete(2);
+        complete(3);
+        assertThat("Clients should be served in turns", started, contains("first", "second", "other", "third"));
+        assertThat("Result was not passed", other.get(), is("other"));
+        assertThat("Result was not passed", second.get(), is("second"));
+        assertThat("Result was not passed", third.get(), is("third"));
+        assertThat("No call should be in flight", admissionController.getInFlight(), is(0));
+    }
+
+    @Test
+    public void testCallsOverQueueBudgetAreRejected() throws Exception {
+        final AdmissionController admissionController = newAdmissionController(1, 2, 1, 1, TimeUnit.MINUTES);
+
+        admissionController.submit("client1", call("first"));
+        admissionController.submit("client1", call("second"));
+        assertRejected(admissionController.submit("client1", call("third")));
+        admissionController.submit("client2", call("other"));
+        assertRejected(admissionController.submit("client3", call("another")));
+        assertThat("Rejected calls should not be started", started, contains("first"));
+    }
+
+    @Test
+    public void testCallsThatWaitedTooLongAreRejected() throws Exception {
+        final AdmissionController admissionController = newAdmissionController(1, 10, 10, 1, TimeUnit.NANOSECONDS);
+
+        admissionController.submit("client1", call("first"));
+        final ListenableFuture<String> second = admissionController.submit("client1", call("second"));
+        Thread.sleep(1L);
+        complete(0);
+
+        assertRejected(second);
+        assertThat("Expired call should not be started", started, contains("first"));
+        assertThat("No call should be in flight", admissionController.getInFlight(), is(0));
+    }
+
+    @Test
+    public void testWaitingCallsAreRejectedByTimer() throws Exception {
+        final AdmissionController admissionController = newAdmissionController(1, 10, 10, 10, TimeUnit.MILLISECONDS);
+        admissionController.start();
+        try {
+            // First call never completes, so nothing else would reject the second one
+            admissionController.submit("client1", call("first"));
+            final ListenableFuture<String> second = admissionController.submit("client1", call("second"));
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (!second.isDone() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5L);
+            }
+
+            assertRejected(second);
+            assertThat("No call should be queued", admissionController.getQueued(), is(0));
+            assertThat("Expired call should not be started", started, contains("first"));
+        } finally {
+            admissionController.stop();
+        }
+    }
+
+    @Test
+    public void testLimitIncreasesAdditivelyAndDecreasesMultiplicatively() {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 20, 100, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), false, 10);
+        }
+        assertThat("Limit should grow by one per limit-worth of fast calls", limit.getLimit(), is(10));
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), false, 10);
+        assertThat("Limit should grow by one per limit-worth of fast calls", limit.getLimit(), is(11));
+
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), false, 1);
+        assertThat("Unused limit should not grow", limit.getLimit(), is(11));
+
+        limit.onSample(TimeUnit.SECONDS.toNanos(1), false, 11);
+        assertThat("Slow call should cut the limit", limit.getLimit(), is(9));
+        limit.onSample(TimeUnit.SECONDS.toNanos(1), true, 9);
+        assertThat("Limit should be cut once per limit-worth of calls", limit.getLimit(), is(9));
+    }
+
+    private AdmissionController newAdmissionController(final int limit, final int maxQueued,
+                                                       final int maxQueuedPerClient, final long maxWait,
+                                                       final TimeUnit timeUnit) {
+        return new AdmissionController(new AdaptiveConcurrencyLimit(limit, limit, limit, 1, TimeUnit.MINUTES),
+                maxQueued, maxQueuedPerClient, maxWait, timeUnit, new MetricRegistry());
+    }
+
+    private Callable<ListenableFuture<String>> call(final String name) {
+        return new Callable<ListenableFuture<String>>() {
+
+            @Override
+            public ListenableFuture<String> call() {
+                started.add(name);
+                final SettableFuture<String> future = SettableFuture.create();
+                running.add(future);
+                return future;
+            }
+
+        };
+    }
+
+    private void complete(final int index) {
+        running.get(index).set(started.get(index));
+    }
+
+    private static void assertRejected(final ListenableFuture<String> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Call should be rejected");
+        } catch (final ExecutionException e) {
+            assertThat("Wrong failure", e.getCause(), is(instanceOf(AdmissionRejectedException.class)));
+            assertThat("Wrong retry delay", ((AdmissionRejectedException) e.getCause()).getRetryAfterSeconds(),
+                    greaterThanOrEqualTo(1L));
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.gmail.avenderov.async;
+
+import com.gmail.avenderov.memory.InMemoryPropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Alexey Venderov
+ */
+public class ExecutorAsyncPropertyConfigRepositoryTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ListeningExecutorService executor;
+
+    private InMemoryPropertyConfigRepository delegate;
+
+    private ExecutorAsyncPropertyConfigRepository propertyConfigRepository;
+
+    @Before
+    public void setUp() {
+        executor = AsyncExecutors.newBoundedExecutor("test", 1, 1);
+        delegate = new InMemoryPropertyConfigRepository();
+        propertyConfigRepository = new ExecutorAsyncPropertyConfigRepository(delegate, executor);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLookupRunsOnExecutor() throws Exception {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("test", null, ImmutableMap.of("key1", "value1")));
+
+        final ListenableFuture<Optional<PropertyConfig>> future = propertyConfigRepository.findConfig("test");
+
+        assertThat("Config was not found", future.get(1, TimeUnit.SECONDS).isPresent(), is(true));
+    }
+
+    @Test
+    public void testRejectionFailsFuture() throws Exception {
+        // The only thread is busy and the queue is full
+        executor.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        });
+        final ListenableFuture<Boolean> queued = propertyConfigRepository.checkConfigExist("test");
+
+        final ListenableFuture<Boolean> rejected = propertyConfigRepository.checkConfigExist("test");
+        assertThat("Rejected call should be completed", rejected.isDone(), is(true));
+        try {
+            rejected.get();
+            fail("Rejected call should fail");
+        } catch (final ExecutionException e) {
+            assertThat("Wrong failure", e.getCause(), instanceOf(RejectedExecutionException.class));
+        }
+
+        release.countDown();
+        assertThat("Queued call should be completed", queued.get(1, TimeUnit.SECONDS), is(false));
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.gmail.avenderov.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class CacheWarmerIT {
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private PropertyConfigRepository propertyConfigRepository;
+
+    private CachingPropertyConfigRepository cache;
+
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        applicationContext = new ClassPathXmlApplicationContext("META-INF/spring/banjo-context.xml");
+        propertyConfigRepository = applicationContext.getBean(PropertyConfigRepository.class);
+        final MongoTemplate mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        if (mongoTemplate.collectionExists(PropertyConfig.class)) {
+            mongoTemplate.dropCollection(PropertyConfig.class);
+        }
+        cache = new CachingPropertyConfigRepository(propertyConfigRepository, 1000, 1, TimeUnit.MINUTES);
+        registry = new MetricRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Test
+    public void testAllHierarchiesAreCached() {
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("root", null,
+                ImmutableMap.of("key1", "value1")));
+        for (int i = 0; i < 25; i++) {
+            propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("child" + i,
+                    ImmutableSet.of("root"), ImmutableMap.of("key2", "value" + i)));
+        }
+
+        // Small batches, so that configs are decoded by several tasks
+        final CacheWarmer cacheWarmer = new CacheWarmer(propertyConfigRepository.getMongoTemplate(), cache, registry,
+                4, 10, 1, TimeUnit.MINUTES);
+        assertThat("Warm-up should complete", cacheWarmer.warmUp(), is(CacheWarmer.State.COMPLETED));
+        assertThat("Warm-up should be finished", cacheWarmer.isFinished(), is(true));
+
+        assertThat("Wrong hierarchy", cache.findConfigWithParents("child7").keySet(), contains("child7", "root"));
+        assertThat("Config was not found", cache.findConfig("child24").isPresent(), is(true));
+        assertThat("Warmed hierarchies should not be looked up", cache.getHierarchyCacheStats().missCount(),
+                is(0L));
+        assertThat("Warmed configs should not be looked up", cache.getConfigCacheStats().missCount(), is(0L));
+        assertThat("Wrong number of decoded configs",
+                registry.counter(name(CacheWarmer.class, "decoded")).getCount(), is(26L));
+        assertThat("Wrong number of cached hierarchies",
+                registry.counter(name(CacheWarmer.class, "cached")).getCount(), is(26L));
+    }
+
+    @Test
+    public void testWarmUpStopsAtCacheSize() {
+        for (int i = 0; i < 25; i++) {
+            propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("config" + i, null,
+                    ImmutableMap.of("key1", "value" + i)));
+        }
+        final CachingPropertyConfigRepository smallCache = new CachingPropertyConfigRepository(propertyConfigRepository,
+                10, 1, TimeUnit.MINUTES);
+
+        final CacheWarmer cacheWarmer = new CacheWarmer(propertyConfigRepository.getMongoTemplate(), smallCache,
+                registry, 4, 3, 1, TimeUnit.MINUTES);
+        assertThat("Warm-up should complete", cacheWarmer.warmUp(), is(CacheWarmer.State.COMPLETED));
+        assertThat("Only configs that fit into the cache should be decoded",
+                registry.counter(name(CacheWarmer.class, "decoded")).getCount(), is(10L));
+    }
+
+    @Test
+    public void testWarmUpRunsOnce() {
+        final CacheWarmer cacheWarmer = new CacheWarmer(propertyConfigRepository.getMongoTemplate(), cache,
+                registry);
+        assertThat("Warm-up of empty collection should complete", cacheWarmer.warmUp(),
+                is(CacheWarmer.State.COMPLETED));
+
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("test", null,
+                ImmutableMap.of("key1", "value1")));
+        cacheWarmer.warmUp();
+        assertThat("Configs should not be decoded again",
+                registry.counter(name(CacheWarmer.class, "decoded")).getCount(), is(0L));
+    }
+
+}
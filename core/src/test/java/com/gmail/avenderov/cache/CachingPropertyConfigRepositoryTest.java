@@ -0,0 +1,320 @@
+package com.gmail.avenderov.cache;
+
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class CachingPropertyConfigRepositoryTest {
+
+    private CountingPropertyConfigRepository delegate;
+
+    private CachingPropertyConfigRepository propertyConfigRepository;
+
+    @Before
+    public void setUp() {
+        delegate = new CountingPropertyConfigRepository();
+        propertyConfigRepository = new CachingPropertyConfigRepository(delegate, 2, 1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void testFindConfigIsServedFromCache() {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("test", null, ImmutableMap.of("key1", "value1")));
+
+        assertThat("Config was not found", propertyConfigRepository.findConfig("test").isPresent(), is(true));
+        assertThat("Config was not found", propertyConfigRepository.findConfig("test").isPresent(), is(true));
+        assertThat("Config should exist", propertyConfigRepository.checkConfigExist("test"), is(true));
+
+        assertThat("Delegate should be queried only once", delegate.lookups, is(1));
+        assertThat("Wrong number of cache hits", propertyConfigRepository.getConfigCacheStats().hitCount(), is(2L));
+        assertThat("Wrong number of cache misses", propertyConfigRepository.getConfigCacheStats().missCount(),
+                is(1L));
+    }
+
+    @Test
+    public void testMissingConfigIsCached() {
+        assertThat("Config should not exist", propertyConfigRepository.checkConfigExist("missing"), is(false));
+        assertThat("Config should not exist", propertyConfigRepository.findConfig("missing").isPresent(), is(false));
+        assertThat("Hierarchy should be empty", propertyConfigRepository.findConfigWithParents("missing").entrySet(),
+                hasSize(0));
+        assertThat("Hierarchy should be empty", propertyConfigRepository.findConfigWithParents("missing").entrySet(),
+                hasSize(0));
+
+        assertThat("Delegate should be queried once per cache", delegate.lookups, is(2));
+    }
+
+    @Test
+    public void testInsertWritesThroughCache() {
+        assertThat("Config should not exist", propertyConfigRepository.checkConfigExist("test"), is(false));
+        assertThat("Hierarchy should be empty", propertyConfigRepository.findConfigWithParents("test").entrySet(),
+                hasSize(0));
+
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("test", null,
+                ImmutableMap.of("key1", "value1")));
+
+        assertThat("Inserted config should replace cached miss", propertyConfigRepository.checkConfigExist("test"),
+                is(true));
+        assertThat("Inserted config should be found with parents",
+                propertyConfigRepository.findConfigWithParents("test"), hasKey("test"));
+        assertThat("Wrong number of delegate lookups", delegate.lookups, is(3));
+    }
+
+    @Test
+    public void testNewerRevisionInvalidatesHierarchy() {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("parent", null, ImmutableMap.of("key1", "value1")));
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key2", "value2")));
+
+        assertThat("Wrong hierarchy", propertyConfigRepository.findConfigWithParents("child").keySet(),
+                contains("child", "parent"));
+        delegate.replace(newRevision(delegate.findConfig("parent").get(), 2));
+        assertThat("Stale parent should be served from cache",
+                propertyConfigRepository.findConfigWithParents("child").get("parent").getRevision(), is(1));
+
+        // Lookup of the other hierarchy brings newer revision of the parent into the cache
+        propertyConfigRepository.findConfigWithParents("parent");
+        assertThat("Hierarchy has to be reloaded after parent revision change",
+                propertyConfigRepository.findConfigWithParents("child").get("parent").getRevision(), is(2));
+        assertThat("Cached config has to be replaced by newer revision",
+                propertyConfigRepository.findConfig("parent").get().getRevision(), is(2));
+    }
+
+    @Test
+    public void testNewerRevisionOfEvictedConfigInvalidatesHierarchy() {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("parent", null, ImmutableMap.of("key1", "value1")));
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key2", "value2")));
+        propertyConfigRepository.findConfigWithParents("child");
+
+        // Configs of the hierarchy are evicted, while the hierarchy itself stays cached
+        for (final String name : new String[]{"config1", "config2"}) {
+            delegate.insert(PropertyConfigFactory.newPropertyConfig(name, null, ImmutableMap.of("key1", "value1")));
+            propertyConfigRepository.findConfig(name);
+        }
+        delegate.replace(newRevision(delegate.findConfig("parent").get(), 2));
+        propertyConfigRepository.findConfig("parent");
+
+        assertThat("Hierarchy has to be reloaded after parent revision change",
+                propertyConfigRepository.findConfigWithParents("child").get("parent").getRevision(), is(2));
+    }
+
+    @Test
+    public void testStaleHierarchyIsNotCached() {
+        final PropertyConfig parent = delegate.insert(PropertyConfigFactory.newPropertyConfig("parent", null,
+                ImmutableMap.of("key1", "value1")));
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key2", "value2")));
+        delegate.replace(newRevision(parent, 2));
+        propertyConfigRepository.findConfig("parent");
+
+        // Hierarchy lookup that started before the parent was replaced returns the older revision
+        delegate.replace(parent);
+        propertyConfigRepository.findConfigWithParents("child");
+        final int lookups = delegate.lookups;
+        propertyConfigRepository.findConfigWithParents("child");
+
+        assertThat("Stale hierarchy should not be served from cache", delegate.lookups, is(lookups + 1));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        for (final String name : new String[]{"config1", "config2", "config3"}) {
+            delegate.insert(PropertyConfigFactory.newPropertyConfig(name, null, ImmutableMap.of("key1", "value1")));
+            propertyConfigRepository.findConfig(name);
+        }
+
+        assertThat("Eviction was not recorded", propertyConfigRepository.getConfigCacheStats().evictionCount(),
+                is(1L));
+    }
+
+    @Test
+    public void testFindConfigsLoadsOnlyMissingConfigs() {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("config1", null, ImmutableMap.of("key1", "value1")));
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("config2", null, ImmutableMap.of("key2", "value2")));
+        propertyConfigRepository.findConfig("config1");
+
+        assertThat("Wrong configs were found",
+                propertyConfigRepository.findConfigs(Arrays.asList("config1", "config2", "missing")).keySet(),
+                containsInAnyOrder("config1", "config2"));
+        assertThat("Wrong number of delegate lookups", delegate.lookups, is(2));
+        assertThat("Missing config should be cached",
+                propertyConfigRepository.checkConfigsExist(Arrays.asList("config2", "missing")),
+                contains("config2"));
+        assertThat("Wrong number of delegate lookups", delegate.lookups, is(2));
+    }
+
+    @Test
+    public void testUpdateRefreshesCacheWithoutLookup() {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("parent", null, ImmutableMap.of("key1", "value1")));
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key2", "value2")));
+        propertyConfigRepository.findConfigWithParents("child");
+
+        propertyConfigRepository.update("parent", 1, PropertyDelta.builder().set("key1", "value3").build());
+
+        assertThat("Updated config should be cached", propertyConfigRepository.findConfig("parent").get()
+                .getContent(), hasEntry("key1", "value3"));
+        assertThat("Hierarchy with updated config should be reloaded",
+                propertyConfigRepository.findConfigWithParents("child").get("parent").getRevision(), is(2));
+        assertThat("Wrong number of delegate lookups", delegate.lookups, is(2));
+    }
+
+    @Test
+    public void testWarmedHierarchyIsServedFromCache() {
+        final PropertyConfig parent = PropertyConfigFactory.newPropertyConfig("parent", null,
+                ImmutableMap.of("key1", "value1"));
+        final PropertyConfig child = PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key2", "value2"));
+        final Map<String, PropertyConfig> hierarchy = new LinkedHashMap<String, PropertyConfig>();
+        hierarchy.put("child", child);
+        hierarchy.put("parent", parent);
+
+        propertyConfigRepository.warm(hierarchy);
+
+        assertThat("Wrong hierarchy", propertyConfigRepository.findConfigWithParents("child").keySet(),
+                contains("child", "parent"));
+        assertThat("Config was not found", propertyConfigRepository.findConfig("parent").isPresent(), is(true));
+        assertThat("Delegate should not be queried", delegate.lookups, is(0));
+        assertThat("Warm-up should not be recorded as misses",
+                propertyConfigRepository.getConfigCacheStats().missCount(), is(0L));
+    }
+
+    @Test
+    public void testWarmUpDoesNotReplaceNewerRevision() {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("test", null, ImmutableMap.of("key1", "value1")));
+        final PropertyConfig current = newRevision(delegate.findConfig("test").get(), 2);
+        propertyConfigRepository.update("test", 1, PropertyDelta.builder().set("key1", "value2").build());
+
+        propertyConfigRepository.warm(Collections.singletonMap("test", newRevision(current, 1)));
+
+        assertThat("Stale revision should not be cached",
+                propertyConfigRepository.findConfigWithParents("test").get("test").getRevision(), is(2));
+    }
+
+    @Test
+    public void testLastKnownHierarchyOutlivesInvalidation() {
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("parent", null, ImmutableMap.of("key1", "value1")));
+        delegate.insert(PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key2", "value2")));
+        assertThat("Config should not be cached yet",
+                propertyConfigRepository.findLastKnownConfigWithParents("child").entrySet(), hasSize(0));
+        propertyConfigRepository.findConfigWithParents("child");
+
+        // Newer revision of the parent invalidates cached hierarchy
+        propertyConfigRepository.update("parent", 1, PropertyDelta.builder().set("key1", "value3").build());
+        final int lookups = delegate.lookups;
+
+        assertThat("Last known hierarchy should be kept",
+                propertyConfigRepository.findLastKnownConfigWithParents("child").get("parent").getRevision(), is(1));
+        assertThat("Delegate should not be queried", delegate.lookups, is(lookups));
+        propertyConfigRepository.findConfigWithParents("child");
+        assertThat("Cached hierarchy should be preferred",
+                propertyConfigRepository.findLastKnownConfigWithParents("child").get("parent").getRevision(), is(2));
+    }
+
+    private static PropertyConfig newRevision(final PropertyConfig propertyConfig, final int revision) {
+        final Date now = Calendar.getInstance().getTime();
+        return new PropertyConfig(propertyConfig.getName(), revision, propertyConfig.getCreatedAt(), now,
+                propertyConfig.getParents(), propertyConfig.getContent());
+    }
+
+    private static class CountingPropertyConfigRepository implements PropertyConfigRepository {
+
+        private final Map<String, PropertyConfig> configs = new LinkedHashMap<String, PropertyConfig>();
+
+        private int lookups;
+
+        void replace(final PropertyConfig propertyConfig) {
+            configs.put(propertyConfig.getName(), propertyConfig);
+        }
+
+        @Override
+        public MongoTemplate getMongoTemplate() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PropertyConfig insert(final PropertyConfig propertyConfig) {
+            configs.put(propertyConfig.getName(), propertyConfig);
+            return propertyConfig;
+        }
+
+        @Override
+        public List<PropertyConfig> insertAll(final List<PropertyConfig> propertyConfigs) {
+            for (final PropertyConfig propertyConfig : propertyConfigs) {
+                insert(propertyConfig);
+            }
+            return propertyConfigs;
+        }
+
+        @Override
+        public PropertyConfig update(final String name, final int expectedRevision, final PropertyDelta delta) {
+            final PropertyConfig current = configs.get(name);
+            final PropertyConfig updated = new PropertyConfig(name, current.getRevision() + 1,
+                    current.getCreatedAt(), current.getLastModifiedAt(), current.getParents(),
+                    delta.applyTo(current.getContent()));
+            configs.put(name, updated);
+            return updated;
+        }
+
+        @Override
+        public boolean checkConfigExist(final String name) {
+            lookups++;
+            return configs.containsKey(name);
+        }
+
+        @Override
+        public Set<String> checkConfigsExist(final Collection<String> names) {
+            return findConfigs(names).keySet();
+        }
+
+        @Override
+        public Optional<PropertyConfig> findConfig(final String name) {
+            lookups++;
+            return Optional.fromNullable(configs.get(name));
+        }
+
+        @Override
+        public Map<String, PropertyConfig> findConfigs(final Collection<String> names) {
+            lookups++;
+            final Map<String, PropertyConfig> result = new LinkedHashMap<String, PropertyConfig>();
+            for (final String name : names) {
+                if (configs.containsKey(name)) {
+                    result.put(name, configs.get(name));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, PropertyConfig> findConfigWithParents(final String name) {
+            lookups++;
+            final Map<String, PropertyConfig> result = new LinkedHashMap<String, PropertyConfig>();
+            final PropertyConfig propertyConfig = configs.get(name);
+            if (propertyConfig != null) {
+                result.put(name, propertyConfig);
+                for (final String parent : propertyConfig.getParents()) {
+                    result.put(parent, configs.get(parent));
+                }
+            }
+            return result;
+        }
+
+    }
+
+}
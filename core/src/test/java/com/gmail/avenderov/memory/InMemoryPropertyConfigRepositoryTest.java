@@ -0,0 +1,192 @@
+package com.gmail.avenderov.memory;
+
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.gmail.avenderov.mongo.export.PropertyConfigImporter;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Alexey Venderov
+ */
+public class InMemoryPropertyConfigRepositoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFindConfigWithParents() {
+        final InMemoryPropertyConfigRepository propertyConfigRepository = new InMemoryPropertyConfigRepository();
+        propertyConfigRepository.insertAll(ImmutableList.of(
+                newConfig("grandparent"),
+                newConfig("parent1", "grandparent"),
+                newConfig("parent2", "grandparent"),
+                newConfig("child", "parent2", "parent1")));
+
+        assertThat("Wrong hierarchy order", propertyConfigRepository.findConfigWithParents("child").keySet(),
+                contains("child", "parent2", "parent1", "grandparent"));
+        assertThat("Missing config should have empty hierarchy",
+                propertyConfigRepository.findConfigWithParents("missing").entrySet(), hasSize(0));
+        assertThat("Wrong configs were found",
+                propertyConfigRepository.findConfigs(Arrays.asList("parent1", "missing")).keySet(),
+                contains("parent1"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTooDeepHierarchyIsRejected() {
+        final InMemoryPropertyConfigRepository propertyConfigRepository =
+                new InMemoryPropertyConfigRepository(null, 2);
+        propertyConfigRepository.insert(newConfig("config1"));
+        propertyConfigRepository.insert(newConfig("config2", "config1"));
+        propertyConfigRepository.insert(newConfig("config3", "config2"));
+        propertyConfigRepository.findConfigWithParents("config3");
+        propertyConfigRepository.insert(newConfig("config4", "config3"));
+
+        propertyConfigRepository.findConfigWithParents("config4");
+    }
+
+    @Test
+    public void testInvalidBatchIsRejectedAsWhole() {
+        final InMemoryPropertyConfigRepository propertyConfigRepository = new InMemoryPropertyConfigRepository();
+        propertyConfigRepository.insert(newConfig("existing"));
+
+        try {
+            propertyConfigRepository.insertAll(ImmutableList.of(newConfig("config1"), newConfig("config2",
+                    "missing")));
+            fail("Config with missing parent should be rejected");
+        } catch (final DataIntegrityViolationException e) {
+            assertThat("Batch should not be inserted partially", propertyConfigRepository.checkConfigExist("config1"),
+                    is(false));
+        }
+        try {
+            propertyConfigRepository.insertAll(ImmutableList.of(newConfig("config1"), newConfig("existing")));
+            fail("Existing config should be rejected");
+        } catch (final DuplicateKeyException e) {
+            assertThat("Batch should not be inserted partially", propertyConfigRepository.checkConfigExist("config1"),
+                    is(false));
+        }
+    }
+
+    @Test
+    public void testUpdate() {
+        final InMemoryPropertyConfigRepository propertyConfigRepository = new InMemoryPropertyConfigRepository();
+        propertyConfigRepository.insert(newConfig("config"));
+
+        final PropertyConfig updated = propertyConfigRepository.update("config", 1,
+                PropertyDelta.builder().set("key2", "value2").build());
+        assertThat("Revision should be incremented", updated.getRevision(), is(2));
+        assertThat("Wrong properties", propertyConfigRepository.findConfig("config").get().getContent(),
+                allOf(hasEntry("key", "value"), hasEntry("key2", "value2")));
+
+        try {
+            propertyConfigRepository.update("config", 1, PropertyDelta.builder().unset("key2").build());
+            fail("Update of stale revision should be rejected");
+        } catch (final OptimisticLockingFailureException e) {
+            assertThat("Config should not be changed", propertyConfigRepository.findConfig("config").get()
+                    .getRevision(), is(2));
+        }
+        try {
+            propertyConfigRepository.update("config", 2, PropertyDelta.builder().unset("key").unset("key2")
+                    .build());
+            fail("Update that removes all properties should be rejected");
+        } catch (final DataIntegrityViolationException e) {
+            assertThat("Config should not be changed", propertyConfigRepository.findConfig("config").get()
+                    .getRevision(), is(2));
+        }
+    }
+
+    @Test(expected = EmptyResultDataAccessException.class)
+    public void testUpdateOfMissingConfig() {
+        new InMemoryPropertyConfigRepository().update("missing", 1, PropertyDelta.builder().set("key", "value")
+                .build());
+    }
+
+    @Test
+    public void testJournalIsReplayed() throws IOException {
+        final File journalFile = new File(temporaryFolder.getRoot(), "props.journal");
+        final InMemoryPropertyConfigRepository propertyConfigRepository =
+                new InMemoryPropertyConfigRepository(journalFile);
+        propertyConfigRepository.insert(newConfig("parent"));
+        propertyConfigRepository.insert(newConfig("child", "parent"));
+        propertyConfigRepository.close();
+
+        // Simulates crash in the middle of append
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(journalFile, "rw");
+        try {
+            randomAccessFile.setLength(randomAccessFile.length() - 3);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        final InMemoryPropertyConfigRepository replayed = new InMemoryPropertyConfigRepository(journalFile);
+        assertThat("Complete record should be replayed", replayed.findConfig("parent").get().getContent(),
+                hasEntry("key", "value"));
+        assertThat("Incomplete record should be discarded", replayed.checkConfigExist("child"), is(false));
+        replayed.insert(newConfig("child", "parent"));
+        replayed.update("parent", 1, PropertyDelta.builder().set("key", "value2").build());
+        replayed.close();
+
+        final InMemoryPropertyConfigRepository reopened = new InMemoryPropertyConfigRepository(journalFile);
+        assertThat("Journal should be appendable after replay", reopened.findConfigWithParents("child").keySet(),
+                contains("child", "parent"));
+        assertThat("Latest revision should win", reopened.findConfig("parent").get().getContent(),
+                hasEntry("key", "value2"));
+    }
+
+    @Test
+    public void testConfigsAreImported() throws IOException {
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        final Writer writer = new OutputStreamWriter(new GZIPOutputStream(exported), Charsets.UTF_8);
+        for (final PropertyConfig propertyConfig : Arrays.asList(newConfig("parent"), newConfig("child", "parent"))) {
+            final DBObject dbObject = new BasicDBObject("_id", propertyConfig.getName())
+                    .append("revision", propertyConfig.getRevision())
+                    .append("createdAt", propertyConfig.getCreatedAt())
+                    .append("lastModifiedAt", propertyConfig.getLastModifiedAt())
+                    .append("parents", propertyConfig.getParents())
+                    .append("properties", propertyConfig.getContent());
+            writer.write(JSON.serialize(dbObject));
+            writer.write('\n');
+        }
+        writer.close();
+
+        final InMemoryPropertyConfigRepository propertyConfigRepository = new InMemoryPropertyConfigRepository();
+        final PropertyConfigImporter.Result result = new PropertyConfigImporter(propertyConfigRepository)
+                .importConfigs(new ByteArrayInputStream(exported.toByteArray()));
+        assertThat("Wrong number of imported configs", result.getImported(), is(2));
+        assertThat("Wrong hierarchy", propertyConfigRepository.findConfigWithParents("child").keySet(),
+                contains("child", "parent"));
+    }
+
+    private static PropertyConfig newConfig(final String name, final String... parents) {
+        return PropertyConfigFactory.newPropertyConfig(name, ImmutableSet.copyOf(parents),
+                ImmutableMap.of("key", "value"));
+    }
+
+}
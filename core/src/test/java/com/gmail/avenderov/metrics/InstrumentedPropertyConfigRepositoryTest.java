@@ -0,0 +1,85 @@
+package com.gmail.avenderov.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.memory.InMemoryPropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Alexey Venderov
+ */
+public class InstrumentedPropertyConfigRepositoryTest {
+
+    private static final String PREFIX = PropertyConfigRepository.class.getName() + ".";
+
+    private MetricRegistry registry;
+
+    private PropertyConfigRepository propertyConfigRepository;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        propertyConfigRepository = new InstrumentedPropertyConfigRepository(new InMemoryPropertyConfigRepository(),
+                registry);
+    }
+
+    @Test
+    public void testCallsAreRecorded() {
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("parent", null,
+                ImmutableMap.of("key1", "value1", "key2", "value2")));
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key3", "value3")));
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("grandchild",
+                ImmutableSet.of("child"), ImmutableMap.of("key4", "value4")));
+        propertyConfigRepository.findConfig("parent");
+        propertyConfigRepository.findConfig("missing");
+        propertyConfigRepository.findConfigWithParents("child");
+        propertyConfigRepository.findConfigWithParents("grandchild");
+
+        assertThat("Wrong number of inserts", registry.getTimers().get(PREFIX + "insert").getCount(), is(3L));
+        assertThat("Wrong number of lookups", registry.getTimers().get(PREFIX + "findConfig").getCount(), is(2L));
+        assertThat("Only found configs should be measured",
+                registry.getHistograms().get(PREFIX + "propertyCount").getSnapshot().getValues(), is(new long[]{2}));
+        assertThat("Wrong hierarchy size",
+                registry.getHistograms().get(PREFIX + "hierarchySize").getSnapshot().getMax(), is(3L));
+        assertThat("Wrong hierarchy depth",
+                registry.getHistograms().get(PREFIX + "hierarchyDepth").getSnapshot().getValues(),
+                is(new long[]{1, 2}));
+    }
+
+    @Test
+    public void testFailuresAreRecorded() {
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("config", null,
+                ImmutableMap.of("key1", "value1")));
+        try {
+            propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("config", null,
+                    ImmutableMap.of("key1", "value1")));
+            fail("Duplicate config should be rejected");
+        } catch (final DuplicateKeyException e) {
+            assertThat("Failed call should be counted", registry.getTimers().get(PREFIX + "insert").getCount(),
+                    is(2L));
+            assertThat("Failure was not recorded", registry.getMeters().get(PREFIX + "insert.errors").getCount(),
+                    is(1L));
+        }
+    }
+
+    @Test
+    public void testMetricsAreSharedBetweenInstances() {
+        new InstrumentedPropertyConfigRepository(new InMemoryPropertyConfigRepository(), registry)
+                .checkConfigExist("config");
+        propertyConfigRepository.checkConfigExist("config");
+
+        assertThat("Calls of both instances should be counted",
+                registry.getTimers().get(PREFIX + "checkConfigExist").getCount(), is(2L));
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.gmail.avenderov.mongo.convert;
+
+import com.gmail.avenderov.mongo.Collection;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.utils.CompactMaps;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mapping.model.MappingException;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class PropertyConfigConvertersTest {
+
+    private static final MongoDbFactory DB_FACTORY = new MongoDbFactory() {
+
+        @Override
+        public DB getDb() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DB getDb(final String dbName) {
+            throw new UnsupportedOperationException();
+        }
+
+    };
+
+    private final PropertyConfig propertyConfig = new PropertyConfig("config", 3, new Date(1000L), new Date(2000L),
+            ImmutableSet.of("parent1", "parent2"), ImmutableMap.of("key1", "value1", "key2", "value2"));
+
+    private MappingMongoConverter reflectiveConverter;
+
+    private MongoMappingContext mappingContext;
+
+    private MappingMongoConverter customConverter;
+
+    @Before
+    public void setUp() {
+        reflectiveConverter = new MappingMongoConverter(DB_FACTORY, new MongoMappingContext());
+        reflectiveConverter.afterPropertiesSet();
+
+        // The same way as in mongo-context.xml
+        mappingContext = new MongoMappingContext();
+        customConverter = new MappingMongoConverter(DB_FACTORY, mappingContext);
+        customConverter.setCustomConversions(new CustomConversions(Arrays.<Object>asList(
+                new PropertyConfigReadConverter(), new PropertyConfigWriteConverter())));
+        customConverter.afterPropertiesSet();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final PropertyConfig read = customConverter.read(PropertyConfig.class, write(customConverter));
+        assertEqual(read);
+        assertThat("Properties should be compact", read.getContent(),
+                is(sameInstance(CompactMaps.copyOf(read.getContent()))));
+    }
+
+    @Test
+    public void testRoundTripThroughJson() {
+        // Documents are encoded the same way as they are sent to the database
+        final DBObject dbObject = (DBObject) JSON.parse(JSON.serialize(write(customConverter)));
+        assertEqual(customConverter.read(PropertyConfig.class, dbObject));
+    }
+
+    @Test
+    public void testDocumentsAreCompatibleWithReflectiveMapping() {
+        assertEqual(customConverter.read(PropertyConfig.class, write(reflectiveConverter)));
+        assertEqual(reflectiveConverter.read(PropertyConfig.class, write(customConverter)));
+    }
+
+    @Test
+    public void testConfigKeepsMapping() {
+        assertThat("Wrong collection", mappingContext.getPersistentEntity(PropertyConfig.class).getCollection(),
+                is(Collection.PROPERTIES));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonStringPropertyIsRejected() {
+        final DBObject dbObject = write(customConverter);
+        dbObject.put("properties", new BasicDBObject("key1", 1));
+        new PropertyConfigReadConverter().convert(dbObject);
+    }
+
+    @Test(expected = MappingException.class)
+    public void testKeyWithDotIsRejected() {
+        new PropertyConfigWriteConverter().convert(new PropertyConfig("config", 1, new Date(), new Date(), null,
+                ImmutableMap.of("some.key", "value")));
+    }
+
+    private DBObject write(final MappingMongoConverter converter) {
+        final DBObject dbObject = new BasicDBObject();
+        converter.write(propertyConfig, dbObject);
+        return dbObject;
+    }
+
+    private void assertEqual(final PropertyConfig read) {
+        assertThat("Wrong name", read.getName(), is(propertyConfig.getName()));
+        assertThat("Wrong revision", read.getRevision(), is(propertyConfig.getRevision()));
+        assertThat("Wrong creation date", read.getCreatedAt(), is(propertyConfig.getCreatedAt()));
+        assertThat("Wrong modification date", read.getLastModifiedAt(), is(propertyConfig.getLastModifiedAt()));
+        assertThat("Wrong parents", read.getParents(), contains("parent1", "parent2"));
+        assertThat("Wrong properties", read.getContent(), equalTo(propertyConfig.getContent()));
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.gmail.avenderov.api.Config;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class BlobConfigTest {
+
+    @Test
+    public void testContentIsDecompressedOnRead() throws IOException {
+        final byte[] content = "0123456789".getBytes(Charsets.UTF_8);
+        final byte[] compressed = gzip(content);
+        final Date now = Calendar.getInstance().getTime();
+        final BlobConfig blobConfig = new BlobConfig("test", 1, now, now, Config.Type.LARGE_TEXT, content.length,
+                compressed.length, "md5", new ByteSource() {
+
+            @Override
+            public InputStream openStream() {
+                throw new AssertionError("Content should not be read to learn its size");
+            }
+
+        });
+        assertThat("Wrong content size", blobConfig.getContent().size(), is((long) content.length));
+
+        final BlobConfig readable = new BlobConfig("test", 1, now, now, Config.Type.LARGE_TEXT, content.length,
+                compressed.length, "md5", ByteStreams.asByteSource(compressed));
+        assertThat("Wrong content", readable.getContent().read(), is(equalTo(content)));
+        assertThat("Wrong slice of content", new String(readable.getContent().slice(3, 4).read(), Charsets.UTF_8),
+                is("3456"));
+        assertThat("Compressed content should be returned as it is", readable.getCompressedContent().read(),
+                is(equalTo(compressed)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPropertyTypeIsRejected() {
+        final Date now = Calendar.getInstance().getTime();
+        new BlobConfig("test", 1, now, now, Config.Type.TEXT, 0, 0, "md5", ByteStreams.asByteSource(new byte[0]));
+    }
+
+    private static byte[] gzip(final byte[] content) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        gzipOutputStream.write(content);
+        gzipOutputStream.close();
+
+        return outputStream.toByteArray();
+    }
+
+}
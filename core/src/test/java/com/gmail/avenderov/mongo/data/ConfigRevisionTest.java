@@ -0,0 +1,56 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class ConfigRevisionTest {
+
+    private static final Date NOW = Calendar.getInstance().getTime();
+
+    @Test
+    public void testReplayAppliesDeltasToCheckpoint() {
+        final Optional<Map<String, String>> properties = ConfigRevision.replay(Arrays.asList(
+                ConfigRevision.checkpoint("test", 1, NOW, ImmutableMap.of("key1", "value1", "key2", "value2")),
+                ConfigRevision.delta("test", 2, NOW, PropertyDelta.builder().set("key1", "value3").build()),
+                ConfigRevision.delta("test", 3, NOW, PropertyDelta.builder().unset("key2").build())), 3);
+
+        assertThat("Revision was not restored", properties.isPresent(), is(true));
+        assertThat("Wrong properties", properties.get(), allOf(hasEntry("key1", "value3"), not(hasKey("key2"))));
+    }
+
+    @Test
+    public void testReplayStartsFromClosestCheckpoint() {
+        final Optional<Map<String, String>> properties = ConfigRevision.replay(Arrays.asList(
+                ConfigRevision.checkpoint("test", 1, NOW, ImmutableMap.of("key1", "value1")),
+                ConfigRevision.delta("test", 2, NOW, PropertyDelta.builder().set("key1", "value2").build()),
+                ConfigRevision.checkpoint("test", 3, NOW, ImmutableMap.of("key2", "value2")),
+                ConfigRevision.delta("test", 4, NOW, PropertyDelta.builder().set("key3", "value3").build())), 2);
+
+        assertThat("Wrong properties", properties.get(), equalTo((Map<String, String>) ImmutableMap.of("key1",
+                "value2")));
+    }
+
+    @Test
+    public void testReplayDoesNotSkipGaps() {
+        assertThat("Revision after a gap should not be restored", ConfigRevision.replay(Arrays.asList(
+                ConfigRevision.checkpoint("test", 1, NOW, ImmutableMap.of("key1", "value1")),
+                ConfigRevision.delta("test", 3, NOW, PropertyDelta.builder().set("key1", "value3").build())), 3)
+                .isPresent(), is(false));
+        assertThat("Revision without checkpoint should not be restored", ConfigRevision.replay(Arrays.asList(
+                ConfigRevision.delta("test", 2, NOW, PropertyDelta.builder().set("key1", "value2").build())), 2)
+                .isPresent(), is(false));
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class PropertyConfigResolverTest {
+
+    @Test
+    public void testConfigOverridesParents() {
+        final PropertyConfig parent1 = PropertyConfigFactory.newPropertyConfig("parent1", null,
+                ImmutableMap.of("key1", "parent1", "key2", "parent1", "key3", "parent1"));
+        final PropertyConfig parent2 = PropertyConfigFactory.newPropertyConfig("parent2", null,
+                ImmutableMap.of("key2", "parent2", "key3", "parent2", "key4", "parent2"));
+        final PropertyConfig config = PropertyConfigFactory.newPropertyConfig("config",
+                ImmutableSet.of("parent1", "parent2"), ImmutableMap.of("key3", "config"));
+
+        final Map<String, PropertyConfig> hierarchy = new LinkedHashMap<String, PropertyConfig>();
+        hierarchy.put(config.getName(), config);
+        hierarchy.put(parent1.getName(), parent1);
+        hierarchy.put(parent2.getName(), parent2);
+        final Map<String, String> properties = PropertyConfigResolver.resolve(hierarchy);
+
+        assertThat("Wrong number of effective properties", properties.entrySet(), hasSize(4));
+        assertThat("Wrong effective properties", properties, allOf(hasEntry("key1", "parent1"),
+                hasEntry("key2", "parent1"), hasEntry("key3", "config"), hasEntry("key4", "parent2")));
+        assertThat("Wrong revisions", PropertyConfigResolver.revisions(hierarchy).keySet(),
+                contains("config", "parent1", "parent2"));
+    }
+
+    @Test
+    public void testSinglePropertyIsResolvedThroughHierarchy() {
+        final PropertyConfig parent = PropertyConfigFactory.newPropertyConfig("parent", null,
+                ImmutableMap.of("key1", "parent", "key2", "parent"));
+        final PropertyConfig config = PropertyConfigFactory.newPropertyConfig("config", ImmutableSet.of("parent"),
+                ImmutableMap.of("key2", "config"));
+
+        final Map<String, PropertyConfig> hierarchy = new LinkedHashMap<String, PropertyConfig>();
+        hierarchy.put(config.getName(), config);
+        hierarchy.put(parent.getName(), parent);
+
+        assertThat("Wrong inherited property", PropertyConfigResolver.resolve(hierarchy, "key1").get(),
+                is("parent"));
+        assertThat("Wrong overridden property", PropertyConfigResolver.resolve(hierarchy, "key2").get(),
+                is("config"));
+        assertThat("Missing property should be absent", PropertyConfigResolver.resolve(hierarchy, "key3")
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testEmptyHierarchy() {
+        assertThat("Effective properties of empty hierarchy should be empty",
+                PropertyConfigResolver.resolve(ImmutableMap.<String, PropertyConfig>of()).entrySet(), hasSize(0));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.gmail.avenderov.mongo.data;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class PropertyDeltaTest {
+
+    @Test
+    public void testApplyTo() {
+        final PropertyDelta delta = PropertyDelta.builder().set("key1", "value3").set("key3", "value3")
+                .unset("key2").build();
+
+        assertThat("Wrong properties", delta.applyTo(ImmutableMap.of("key1", "value1", "key2", "value2")),
+                allOf(hasEntry("key1", "value3"), hasEntry("key3", "value3"), not(hasKey("key2"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyCantBeSetAndRemoved() {
+        PropertyDelta.builder().set("key1", "value1").unset("key1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDottedKeyIsRejected() {
+        PropertyDelta.builder().set("database.url", "value1");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEmptyDeltaIsRejected() {
+        PropertyDelta.builder().build();
+    }
+
+    @Test
+    public void testDeltaBetweenProperties() {
+        final PropertyDelta delta = PropertyDelta.between(ImmutableMap.of("key1", "value1", "key2", "value2"),
+                ImmutableMap.of("key1", "value1", "key3", "value3"));
+
+        assertThat("Wrong properties to set", delta.getSet(), equalTo((Map<String, String>) ImmutableMap.of("key3",
+                "value3")));
+        assertThat("Wrong properties to remove", delta.getUnset(), contains("key2"));
+        assertThat("Delta between equal properties should be empty", PropertyDelta.between(
+                ImmutableMap.of("key1", "value1"), ImmutableMap.of("key1", "value1")).isEmpty(), is(true));
+    }
+
+}
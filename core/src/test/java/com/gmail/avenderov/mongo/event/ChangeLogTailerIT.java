@@ -0,0 +1,86 @@
+package com.gmail.avenderov.mongo.event;
+
+import com.gmail.avenderov.api.ChangeListener;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.ConfigChange;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class ChangeLogTailerIT {
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private PropertyConfigRepository propertyConfigRepository;
+
+    private ChangeLogTailer changeLogTailer;
+
+    @Before
+    public void setUp() {
+        applicationContext = new ClassPathXmlApplicationContext("META-INF/spring/banjo-context.xml");
+        propertyConfigRepository = applicationContext.getBean(PropertyConfigRepository.class);
+        changeLogTailer = new ChangeLogTailer(propertyConfigRepository.getMongoTemplate());
+    }
+
+    private static String randomName() {
+        return ChangeLogTailerIT.class.getSimpleName() + "_" + RandomStringUtils.randomAlphanumeric(20);
+    }
+
+    @Test
+    public void testInsertedConfigIsDelivered() throws InterruptedException {
+        final BlockingQueue<String> changes = new LinkedBlockingQueue<String>();
+        changeLogTailer.addListener(new ChangeListener() {
+
+            @Override
+            public void onChange(final String name, final int revision) {
+                changes.add(name + ":" + revision);
+            }
+
+        });
+        // Change log has to exist before tailer is started, otherwise tailer waits for it to be created
+        final PropertyConfig firstPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(firstPropertyConfig);
+        changeLogTailer.start();
+
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(propertyConfig);
+
+        assertThat("Change was not delivered", changes.poll(10, TimeUnit.SECONDS),
+                is(equalTo(propertyConfig.getName() + ":1")));
+        assertThat("Changes recorded before start should not be delivered", changes, is(empty()));
+        assertThat("Change log should be capped",
+                propertyConfigRepository.getMongoTemplate().getCollection(
+                        propertyConfigRepository.getMongoTemplate().getCollectionName(ConfigChange.class)).isCapped(),
+                is(true));
+    }
+
+    @After
+    public void tearDown() {
+        changeLogTailer.stop();
+        final MongoTemplate mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        if (mongoTemplate.collectionExists(PropertyConfig.class)) {
+            mongoTemplate.dropCollection(PropertyConfig.class);
+        }
+        applicationContext.close();
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.gmail.avenderov.mongo.export;
+
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class PropertyConfigTransferIT {
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private PropertyConfigRepository propertyConfigRepository;
+
+    @Before
+    public void setUp() {
+        applicationContext = new ClassPathXmlApplicationContext("META-INF/spring/banjo-context.xml");
+        propertyConfigRepository = applicationContext.getBean(PropertyConfigRepository.class);
+        dropCollectionIfNecessary();
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    private void dropCollectionIfNecessary() {
+        final MongoTemplate mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        if (mongoTemplate.collectionExists(PropertyConfig.class)) {
+            mongoTemplate.dropCollection(PropertyConfig.class);
+        }
+    }
+
+    @Test
+    public void testExportedConfigsAreImportedParentsFirst() throws IOException {
+        // Names are chosen so that children precede their parents in natural order
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("c", null,
+                ImmutableMap.of("key1", "c")));
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("b", ImmutableSet.of("c"),
+                ImmutableMap.of("key2", "b")));
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig("a", ImmutableSet.of("b", "c"),
+                ImmutableMap.of("key3", "a")));
+        propertyConfigRepository.update("a", 1, PropertyDelta.builder().set("key3", "a2").build());
+
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        final PropertyConfigExporter exporter = new PropertyConfigExporter(propertyConfigRepository.getMongoTemplate(),
+                1);
+        assertThat("Wrong number of exported configs", exporter.export(exported), is(3));
+
+        dropCollectionIfNecessary();
+        final PropertyConfigImporter importer = new PropertyConfigImporter(propertyConfigRepository, 2);
+        final PropertyConfigImporter.Result result =
+                importer.importConfigs(new ByteArrayInputStream(exported.toByteArray()));
+        assertThat("Wrong number of imported configs", result.getImported(), is(3));
+        assertThat("Wrong number of skipped configs", result.getSkipped(), is(0));
+
+        final PropertyConfig imported = propertyConfigRepository.findConfig("a").get();
+        assertThat("Revision was not preserved", imported.getRevision(), is(2));
+        assertThat("Wrong properties", imported.getContent(), hasEntry("key3", "a2"));
+        assertThat("Wrong hierarchy", propertyConfigRepository.findConfigWithParents("a").keySet(),
+                contains("a", "b", "c"));
+
+        final PropertyConfigImporter.Result repeated =
+                importer.importConfigs(new ByteArrayInputStream(exported.toByteArray()));
+        assertThat("Existing configs should be skipped", Arrays.asList(repeated.getImported(),
+                repeated.getSkipped()), contains(0, 3));
+    }
+
+}
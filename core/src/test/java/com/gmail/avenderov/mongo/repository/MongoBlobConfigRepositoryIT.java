@@ -0,0 +1,122 @@
+package com.gmail.avenderov.mongo.repository;
+
+import com.gmail.avenderov.api.Config;
+import com.gmail.avenderov.mongo.Collection;
+import com.gmail.avenderov.mongo.data.BlobConfig;
+import com.google.common.base.Optional;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class MongoBlobConfigRepositoryIT {
+
+    private static final int INLINE_THRESHOLD = 1024;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private MongoTemplate mongoTemplate;
+
+    private MongoBlobConfigRepository blobConfigRepository;
+
+    @Before
+    public void setUp() {
+        applicationContext = new ClassPathXmlApplicationContext("META-INF/spring/banjo-context.xml");
+        mongoTemplate = applicationContext.getBean(MongoTemplate.class);
+        blobConfigRepository = new MongoBlobConfigRepository(mongoTemplate, INLINE_THRESHOLD);
+        for (final String collectionName : new String[]{Collection.BLOBS, Collection.BLOB_FILES + ".files",
+                Collection.BLOB_FILES + ".chunks"}) {
+            if (mongoTemplate.collectionExists(collectionName)) {
+                mongoTemplate.dropCollection(collectionName);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    private static String randomName() {
+        return MongoBlobConfigRepositoryIT.class.getSimpleName() + "_" + RandomStringUtils.randomAlphanumeric(20);
+    }
+
+    private static byte[] randomContent(final int length) {
+        final byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+
+        return content;
+    }
+
+    @Test
+    public void testSmallContentIsKeptInline() throws IOException {
+        final String name = randomName();
+        final byte[] content = "key=value".getBytes("UTF-8");
+        final BlobConfig saved = blobConfigRepository.save(name, Config.Type.LARGE_TEXT,
+                new ByteArrayInputStream(content));
+        assertThat("Wrong revision", saved.getRevision(), is(1));
+        assertThat("Wrong length", saved.getLength(), is((long) content.length));
+        assertThat("Wrong digest", saved.getMd5(), is(Hashing.md5().hashBytes(content).toString()));
+
+        final Optional<BlobConfig> found = blobConfigRepository.findConfig(name);
+        assertThat("Config was not found", found.isPresent(), is(true));
+        assertThat("Wrong type", found.get().getConfigType(), is(Config.Type.LARGE_TEXT));
+        assertThat("Wrong content", found.get().getContent().read(), is(equalTo(content)));
+        assertThat("Content should not be stored in GridFS",
+                mongoTemplate.getCollection(Collection.BLOB_FILES + ".files").count(), is(0L));
+    }
+
+    @Test
+    public void testLargeContentIsStoredInGridFsAndReplaced() throws IOException {
+        final String name = randomName();
+        // Random content doesn't compress
+        final byte[] content = randomContent(INLINE_THRESHOLD * 100);
+        blobConfigRepository.save(name, Config.Type.BINARY, new ByteArrayInputStream(content));
+
+        final BlobConfig found = blobConfigRepository.findConfig(name).get();
+        assertThat("Wrong content", found.getContent().read(), is(equalTo(content)));
+        assertThat("Wrong slice of content", found.getContent().slice(INLINE_THRESHOLD * 50, 10).read(),
+                is(equalTo(Arrays.copyOfRange(content, INLINE_THRESHOLD * 50, INLINE_THRESHOLD * 50 + 10))));
+        assertThat("Content should be stored in GridFS",
+                mongoTemplate.getCollection(Collection.BLOB_FILES + ".files").count(), is(1L));
+
+        final byte[] replacement = randomContent(INLINE_THRESHOLD * 10);
+        final BlobConfig replaced = blobConfigRepository.save(name, Config.Type.BINARY,
+                new ByteArrayInputStream(replacement));
+        assertThat("Revision was not incremented", replaced.getRevision(), is(2));
+        assertThat("Creation date should be kept", replaced.getCreatedAt(), is(equalTo(found.getCreatedAt())));
+        assertThat("Wrong content", blobConfigRepository.findConfig(name).get().getContent().read(),
+                is(equalTo(replacement)));
+        assertThat("Replaced content should be removed",
+                mongoTemplate.getCollection(Collection.BLOB_FILES + ".files").count(), is(1L));
+    }
+
+    @Test
+    public void testRemovedConfigIsNotFound() throws IOException {
+        final String name = randomName();
+        blobConfigRepository.save(name, Config.Type.BINARY, new ByteArrayInputStream(randomContent(
+                INLINE_THRESHOLD * 10)));
+
+        assertThat("Config should be removed", blobConfigRepository.remove(name), is(true));
+        assertThat("Removed config was found", blobConfigRepository.findConfig(name).isPresent(), is(false));
+        assertThat("Content should be removed",
+                mongoTemplate.getCollection(Collection.BLOB_FILES + ".chunks").count(), is(0L));
+        assertThat("Config should not be removed twice", blobConfigRepository.remove(name), is(false));
+    }
+
+}
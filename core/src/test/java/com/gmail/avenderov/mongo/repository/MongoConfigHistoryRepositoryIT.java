@@ -0,0 +1,163 @@
+package com.gmail.avenderov.mongo.repository;
+
+import com.gmail.avenderov.api.repository.ConfigHistoryRepository;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.ConfigRevision;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * @author Alexey Venderov
+ */
+public class MongoConfigHistoryRepositoryIT {
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private PropertyConfigRepository propertyConfigRepository;
+
+    private MongoTemplate mongoTemplate;
+
+    @Before
+    public void setUp() {
+        applicationContext = new ClassPathXmlApplicationContext("META-INF/spring/banjo-context.xml");
+        propertyConfigRepository = applicationContext.getBean(PropertyConfigRepository.class);
+        mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        for (final Class<?> entityClass : new Class<?>[]{PropertyConfig.class, ConfigRevision.class}) {
+            if (mongoTemplate.collectionExists(entityClass)) {
+                mongoTemplate.dropCollection(entityClass);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    private static String randomName() {
+        return MongoConfigHistoryRepositoryIT.class.getSimpleName() + "_" + RandomStringUtils.randomAlphanumeric(20);
+    }
+
+    private static PropertyConfig revision(final String name, final int revision) {
+        final Date now = Calendar.getInstance().getTime();
+        return new PropertyConfig(name, revision, now, now, Collections.<String>emptySet(),
+                ImmutableMap.of("key1", "value" + revision, "revision" + revision, "value"));
+    }
+
+    @Test
+    public void testRevisionsAreRecordedAsDeltasBetweenCheckpoints() {
+        final ConfigHistoryRepository configHistoryRepository = new MongoConfigHistoryRepository(mongoTemplate, 3,
+                100);
+        final String name = randomName();
+        for (int revision = 1; revision <= 7; revision++) {
+            configHistoryRepository.record(revision(name, revision));
+        }
+
+        for (int revision = 1; revision <= 7; revision++) {
+            final ConfigRevision configRevision = mongoTemplate.findOne(query(where("name").is(name)
+                    .and("revision").is(revision)), ConfigRevision.class);
+            assertThat("Wrong type of history entry", configRevision.isCheckpoint(), is(revision % 3 == 1));
+            assertThat("Wrong properties", configHistoryRepository.findProperties(name, revision).get(),
+                    equalTo(revision(name, revision).getContent()));
+        }
+        assertThat("Unknown revision should be absent", configHistoryRepository.findProperties(name, 8).isPresent(),
+                is(false));
+
+        final PropertyDelta delta = configHistoryRepository.findDelta(name, 2, 5).get();
+        assertThat("Wrong properties to set", delta.getSet(), equalTo((Map<String, String>) ImmutableMap.of("key1",
+                "value5", "revision5", "value")));
+        assertThat("Wrong properties to remove", delta.getUnset(), contains("revision2"));
+    }
+
+    @Test
+    public void testRevisionAfterGapIsRecordedAsCheckpoint() {
+        final ConfigHistoryRepository configHistoryRepository = new MongoConfigHistoryRepository(mongoTemplate, 10,
+                100);
+        final String name = randomName();
+        configHistoryRepository.record(revision(name, 1));
+        configHistoryRepository.record(revision(name, 3));
+        configHistoryRepository.record(revision(name, 3));
+
+        assertThat("Revision before gap was not restored", configHistoryRepository.findProperties(name, 1).get(),
+                equalTo(revision(name, 1).getContent()));
+        assertThat("Revision after gap was not restored", configHistoryRepository.findProperties(name, 3).get(),
+                equalTo(revision(name, 3).getContent()));
+        assertThat("Missing revision should be absent", configHistoryRepository.findProperties(name, 2).isPresent(),
+                is(false));
+        assertThat("Revision should be recorded once", mongoTemplate.count(query(where("name").is(name)),
+                ConfigRevision.class), is(2L));
+    }
+
+    @Test
+    public void testCompactionKeepsRetainedRevisions() {
+        final ConfigHistoryRepository configHistoryRepository = new MongoConfigHistoryRepository(mongoTemplate, 4, 5);
+        final String name = randomName();
+        for (int revision = 1; revision <= 12; revision++) {
+            configHistoryRepository.record(revision(name, revision));
+        }
+
+        assertThat("Wrong number of removed entries", configHistoryRepository.compactAll(), is(7));
+        assertThat("Compacted revision should be absent", configHistoryRepository.findProperties(name, 7)
+                .isPresent(), is(false));
+        for (int revision = 8; revision <= 12; revision++) {
+            assertThat("Wrong properties", configHistoryRepository.findProperties(name, revision).get(),
+                    equalTo(revision(name, revision).getContent()));
+        }
+        assertThat("Compaction should be idempotent", configHistoryRepository.compact(name), is(0));
+    }
+
+    @Test
+    public void testCompactionMergesCheckpointsRecordedOutOfTurn() {
+        final ConfigHistoryRepository configHistoryRepository = new MongoConfigHistoryRepository(mongoTemplate, 4,
+                MongoConfigHistoryRepository.UNLIMITED_RETENTION);
+        final String name = randomName();
+        configHistoryRepository.record(revision(name, 1));
+        configHistoryRepository.record(revision(name, 3));
+        configHistoryRepository.record(revision(name, 4));
+        configHistoryRepository.record(revision(name, 2));
+
+        assertThat("Wrong number of merged entries", configHistoryRepository.compactAll(), is(1));
+        assertThat("Checkpoint was not merged", mongoTemplate.findOne(query(where("name").is(name)
+                .and("revision").is(3)), ConfigRevision.class).isCheckpoint(), is(false));
+        for (int revision = 1; revision <= 4; revision++) {
+            assertThat("Wrong properties", configHistoryRepository.findProperties(name, revision).get(),
+                    equalTo(revision(name, revision).getContent()));
+        }
+        assertThat("Compaction should be idempotent", configHistoryRepository.compact(name), is(0));
+    }
+
+    @Test
+    public void testUpdateIsRecorded() {
+        final String name = randomName();
+        propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig(name, null,
+                ImmutableMap.of("key1", "value1")));
+        propertyConfigRepository.update(name, 1, PropertyDelta.builder().set("key2", "value2").build());
+
+        final ConfigHistoryRepository configHistoryRepository =
+                applicationContext.getBean(ConfigHistoryRepository.class);
+        assertThat("First revision was not recorded", configHistoryRepository.findProperties(name, 1).get(),
+                equalTo((Map<String, String>) ImmutableMap.of("key1", "value1")));
+        assertThat("Updated revision was not recorded", configHistoryRepository.findProperties(name, 2).get(),
+                equalTo((Map<String, String>) ImmutableMap.of("key1", "value1", "key2", "value2")));
+    }
+
+}
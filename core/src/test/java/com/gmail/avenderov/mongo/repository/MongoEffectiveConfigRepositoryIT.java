@@ -0,0 +1,222 @@
+package com.gmail.avenderov.mongo.repository;
+
+import com.gmail.avenderov.api.repository.EffectiveConfigRepository;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.EffectiveConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * @author Alexey Venderov
+ */
+public class MongoEffectiveConfigRepositoryIT {
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private PropertyConfigRepository propertyConfigRepository;
+
+    private EffectiveConfigRepository effectiveConfigRepository;
+
+    @Before
+    public void setUp() {
+        applicationContext = new ClassPathXmlApplicationContext("META-INF/spring/banjo-context.xml");
+        propertyConfigRepository = applicationContext.getBean(PropertyConfigRepository.class);
+        effectiveConfigRepository = applicationContext.getBean(EffectiveConfigRepository.class);
+        dropCollectionsIfNecessary();
+    }
+
+    private void dropCollectionsIfNecessary() {
+        final MongoTemplate mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        for (final Class<?> entityClass : new Class<?>[]{PropertyConfig.class, EffectiveConfig.class}) {
+            if (mongoTemplate.collectionExists(entityClass)) {
+                mongoTemplate.dropCollection(entityClass);
+            }
+        }
+    }
+
+    private static String randomName() {
+        return MongoEffectiveConfigRepositoryIT.class.getSimpleName() + "_" + RandomStringUtils.randomAlphanumeric(20);
+    }
+
+    @Test
+    public void testEffectiveConfigIsComputedOnInsert() {
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "parent", "key2", "parent"));
+        propertyConfigRepository.insert(parentPropertyConfig);
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(parentPropertyConfig.getName()), ImmutableMap.of("key2", "config"));
+        propertyConfigRepository.insert(propertyConfig);
+
+        final Optional<EffectiveConfig> optionalEffectiveConfig =
+                effectiveConfigRepository.findEffectiveConfig(propertyConfig.getName());
+        assertThat("Effective config was not computed", optionalEffectiveConfig.isPresent(), is(true));
+        final EffectiveConfig effectiveConfig = optionalEffectiveConfig.get();
+        assertThat("Wrong effective properties", effectiveConfig.getContent(), allOf(hasEntry("key1", "parent"),
+                hasEntry("key2", "config")));
+        assertThat("Wrong revisions", effectiveConfig.getRevisions(),
+                allOf(hasEntry(propertyConfig.getName(), 1), hasEntry(parentPropertyConfig.getName(), 1)));
+    }
+
+    @Test
+    public void testEffectiveConfigsAreComputedOnBatchInsert() {
+        final PropertyConfig rootPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "root", "key2", "root"));
+        propertyConfigRepository.insert(rootPropertyConfig);
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(rootPropertyConfig.getName()), ImmutableMap.of("key2", "parent", "key3", "parent"));
+        final PropertyConfig childPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(parentPropertyConfig.getName()), ImmutableMap.of("key3", "child"));
+        propertyConfigRepository.insertAll(Arrays.asList(parentPropertyConfig, childPropertyConfig));
+
+        final Optional<EffectiveConfig> optionalEffectiveConfig =
+                effectiveConfigRepository.findEffectiveConfig(childPropertyConfig.getName());
+        assertThat("Effective config was not computed", optionalEffectiveConfig.isPresent(), is(true));
+        final EffectiveConfig effectiveConfig = optionalEffectiveConfig.get();
+        assertThat("Wrong effective properties", effectiveConfig.getContent(), allOf(hasEntry("key1", "root"),
+                hasEntry("key2", "parent"), hasEntry("key3", "child")));
+        assertThat("Wrong revisions", effectiveConfig.getRevisions().keySet(), contains(childPropertyConfig.getName(),
+                parentPropertyConfig.getName(), rootPropertyConfig.getName()));
+        assertThat("Effective config of the parent was not computed",
+                effectiveConfigRepository.findEffectiveConfig(parentPropertyConfig.getName()).isPresent(), is(true));
+    }
+
+    @Test
+    public void testOnlyDescendantsAreRecomputed() {
+        final PropertyConfig rootPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "root"));
+        propertyConfigRepository.insert(rootPropertyConfig);
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(rootPropertyConfig.getName()), ImmutableMap.of("key2", "parent"));
+        propertyConfigRepository.insert(parentPropertyConfig);
+        final PropertyConfig childPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(parentPropertyConfig.getName()), ImmutableMap.of("key3", "child"));
+        propertyConfigRepository.insert(childPropertyConfig);
+        final PropertyConfig unrelatedPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key4", "unrelated"));
+        propertyConfigRepository.insert(unrelatedPropertyConfig);
+
+        // Save new revision of the parent directly, there is no update in repository
+        final MongoTemplate mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        mongoTemplate.save(new PropertyConfig(parentPropertyConfig.getName(), 2, parentPropertyConfig.getCreatedAt(),
+                Calendar.getInstance().getTime(), parentPropertyConfig.getParents(),
+                ImmutableMap.of("key2", "changed")));
+
+        assertThat("Wrong configs were recomputed", effectiveConfigRepository.recompute(parentPropertyConfig.getName()),
+                contains(parentPropertyConfig.getName(), childPropertyConfig.getName()));
+        final EffectiveConfig effectiveConfig =
+                effectiveConfigRepository.findEffectiveConfig(childPropertyConfig.getName()).get();
+        assertThat("Wrong effective properties", effectiveConfig.getContent(), allOf(hasEntry("key1", "root"),
+                hasEntry("key2", "changed"), hasEntry("key3", "child")));
+        assertThat("Wrong parent revision", effectiveConfig.getRevisions(),
+                hasEntry(parentPropertyConfig.getName(), 2));
+    }
+
+    @Test
+    public void testOlderRecomputationDoesNotReplaceNewerResult() {
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "parent"));
+        propertyConfigRepository.insert(parentPropertyConfig);
+        final PropertyConfig childPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(parentPropertyConfig.getName()), ImmutableMap.of("key2", "child"));
+        propertyConfigRepository.insert(childPropertyConfig);
+        final MongoTemplate mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        mongoTemplate.save(new PropertyConfig(parentPropertyConfig.getName(), 2, parentPropertyConfig.getCreatedAt(),
+                Calendar.getInstance().getTime(), null, ImmutableMap.of("key1", "changed")));
+        effectiveConfigRepository.recompute(parentPropertyConfig.getName());
+
+        // Recomputation that has read the hierarchy before the change finishes last
+        mongoTemplate.save(parentPropertyConfig);
+        effectiveConfigRepository.recompute(parentPropertyConfig.getName());
+
+        final EffectiveConfig effectiveConfig =
+                effectiveConfigRepository.findEffectiveConfig(childPropertyConfig.getName()).get();
+        assertThat("Newer result was replaced", effectiveConfig.getRevisions(),
+                hasEntry(parentPropertyConfig.getName(), 2));
+        assertThat("Newer result was replaced", effectiveConfig.getContent(), hasEntry("key1", "changed"));
+    }
+
+    @Test
+    public void testBatchInsertOfComputedConfigFallsBackToSave() {
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "config"));
+        propertyConfigRepository.insert(propertyConfig);
+        final PropertyConfig changedPropertyConfig = new PropertyConfig(propertyConfig.getName(), 2,
+                propertyConfig.getCreatedAt(), Calendar.getInstance().getTime(), null,
+                ImmutableMap.of("key1", "changed"));
+
+        // Effective config already exists, so the batch insert fails with duplicate key
+        effectiveConfigRepository.computeInserted(Arrays.asList(changedPropertyConfig));
+
+        final EffectiveConfig effectiveConfig =
+                effectiveConfigRepository.findEffectiveConfig(propertyConfig.getName()).get();
+        assertThat("Newer result was not saved", effectiveConfig.getRevisions(),
+                hasEntry(propertyConfig.getName(), 2));
+        assertThat("Newer result was not saved", effectiveConfig.getContent(), hasEntry("key1", "changed"));
+    }
+
+    @Test
+    public void testMissingEffectiveConfigsAreComputed() {
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "parent"));
+        propertyConfigRepository.insert(parentPropertyConfig);
+        final PropertyConfig childPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(parentPropertyConfig.getName()), ImmutableMap.of("key2", "child"));
+        propertyConfigRepository.insert(childPropertyConfig);
+        // Config saved before effective configs were materialized
+        propertyConfigRepository.getMongoTemplate().remove(
+                query(where("_id").is(childPropertyConfig.getName())), EffectiveConfig.class);
+
+        final int computed = effectiveConfigRepository.computeMissing();
+
+        assertThat("Wrong number of computed configs", computed, is(1));
+        final Map<String, EffectiveConfig> effectiveConfigs = effectiveConfigRepository.findEffectiveConfigs(
+                Arrays.asList(parentPropertyConfig.getName(), childPropertyConfig.getName()));
+        assertThat("Pre-existing config is not visible", effectiveConfigs.keySet(),
+                containsInAnyOrder(parentPropertyConfig.getName(), childPropertyConfig.getName()));
+        assertThat("Wrong effective properties", effectiveConfigs.get(childPropertyConfig.getName()).getContent(),
+                allOf(hasEntry("key1", "parent"), hasEntry("key2", "child")));
+    }
+
+    @Test
+    public void testEffectiveConfigsAreFoundByNames() {
+        final PropertyConfig propertyConfig1 = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "config1"));
+        propertyConfigRepository.insert(propertyConfig1);
+        final PropertyConfig propertyConfig2 = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(propertyConfig1.getName()), ImmutableMap.of("key2", "config2"));
+        propertyConfigRepository.insert(propertyConfig2);
+
+        final Map<String, EffectiveConfig> effectiveConfigs = effectiveConfigRepository.findEffectiveConfigs(
+                Arrays.asList(propertyConfig1.getName(), propertyConfig2.getName(), randomName()));
+        assertThat("Wrong effective configs were found", effectiveConfigs.keySet(),
+                containsInAnyOrder(propertyConfig1.getName(), propertyConfig2.getName()));
+        assertThat("Wrong effective properties", effectiveConfigs.get(propertyConfig2.getName()).getContent(),
+                allOf(hasEntry("key1", "config1"), hasEntry("key2", "config2")));
+    }
+
+    @After
+    public void tearDown() {
+        dropCollectionsIfNecessary();
+        applicationContext.close();
+    }
+
+}
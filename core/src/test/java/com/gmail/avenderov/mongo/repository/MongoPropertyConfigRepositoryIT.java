@@ -1,9 +1,12 @@
 package com.gmail.avenderov.mongo.repository;
 
+import com.gmail.avenderov.api.ChangeListener;
 import com.gmail.avenderov.api.repository.PropertyConfigRepository;
 import com.gmail.avenderov.mongo.data.PropertyConfig;
 import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -15,6 +18,8 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
 import java.util.List;
@@ -206,6 +211,235 @@ public class MongoPropertyConfigRepositoryIT {
                 hasKey(parent1PropertyConfig.getName()), hasKey(parent2PropertyConfig.getName())));
     }
 
+    @Test
+    public void testFindConfigWithParentsResolvesAllAncestorsInOrder() {
+        final PropertyConfig globalPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(globalPropertyConfig);
+        final PropertyConfig regionPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(globalPropertyConfig.getName()), ImmutableMap.of("key2", "value2"));
+        propertyConfigRepository.insert(regionPropertyConfig);
+        final PropertyConfig teamPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(globalPropertyConfig.getName()), ImmutableMap.of("key3", "value3"));
+        propertyConfigRepository.insert(teamPropertyConfig);
+        final PropertyConfig servicePropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(teamPropertyConfig.getName(), regionPropertyConfig.getName()),
+                ImmutableMap.of("key4", "value4"));
+        propertyConfigRepository.insert(servicePropertyConfig);
+
+        final Map<String, PropertyConfig> configs =
+                propertyConfigRepository.findConfigWithParents(servicePropertyConfig.getName());
+        assertThat("Wrong order of configs in returned map", configs.keySet(),
+                contains(servicePropertyConfig.getName(), teamPropertyConfig.getName(),
+                        regionPropertyConfig.getName(), globalPropertyConfig.getName()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFindConfigWithParentsWhenHierarchyIsTooDeep() {
+        final PropertyConfigRepository shallowPropertyConfigRepository =
+                new MongoPropertyConfigRepository(propertyConfigRepository.getMongoTemplate(), 1);
+
+        final PropertyConfig grandParentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(grandParentPropertyConfig);
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(grandParentPropertyConfig.getName()), ImmutableMap.of("key2", "value2"));
+        propertyConfigRepository.insert(parentPropertyConfig);
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(parentPropertyConfig.getName()), ImmutableMap.of("key3", "value3"));
+        propertyConfigRepository.insert(propertyConfig);
+
+        assertThat("Direct parent should be resolved",
+                shallowPropertyConfigRepository.findConfigWithParents(parentPropertyConfig.getName()).entrySet(),
+                hasSize(2));
+        shallowPropertyConfigRepository.findConfigWithParents(propertyConfig.getName());
+        fail("Exception should be thrown if hierarchy is deeper than allowed");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFindConfigWithParentsWhenParentsFormCycle() {
+        final String name1 = randomName();
+        final String name2 = randomName();
+        // Cycle can't be created through repository, so configs are saved directly
+        final MongoTemplate mongoTemplate = propertyConfigRepository.getMongoTemplate();
+        mongoTemplate.insert(PropertyConfigFactory.newPropertyConfig(name1, ImmutableSet.of(name2),
+                ImmutableMap.of("key1", "value1")));
+        mongoTemplate.insert(PropertyConfigFactory.newPropertyConfig(name2, ImmutableSet.of(name1),
+                ImmutableMap.of("key2", "value2")));
+        ((MongoPropertyConfigRepository) propertyConfigRepository).loadNameFilter();
+
+        propertyConfigRepository.findConfigWithParents(name1);
+        fail("Exception should be thrown if parents form a cycle");
+    }
+
+    @Test
+    public void testConfigInsertedElsewhereIsFoundAfterChangeNotification() {
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        // Simulates insert through another instance
+        propertyConfigRepository.getMongoTemplate().insert(propertyConfig);
+        ((ChangeListener) propertyConfigRepository).onChange(propertyConfig.getName(), propertyConfig.getRevision());
+
+        assertThat("Config should be found", propertyConfigRepository.checkConfigExist(propertyConfig.getName()),
+                is(true));
+        assertThat("Config should be found", propertyConfigRepository.findConfig(propertyConfig.getName()).isPresent(),
+                is(true));
+    }
+
+    @Test
+    public void testNameFilterIsNotUsedWithoutChangeFeed() {
+        ((MongoPropertyConfigRepository) propertyConfigRepository).loadNameFilter();
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        // Simulates insert through another instance that is never reported
+        propertyConfigRepository.getMongoTemplate().insert(propertyConfig);
+
+        assertThat("Config should be found", propertyConfigRepository.findConfig(propertyConfig.getName()).isPresent(),
+                is(true));
+    }
+
+    @Test
+    public void testNameFilterIsReloadedAfterChangesAreLost() {
+        final MongoPropertyConfigRepository repository = (MongoPropertyConfigRepository) propertyConfigRepository;
+        repository.onCaughtUp();
+        repository.loadNameFilter();
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.getMongoTemplate().insert(propertyConfig);
+        assertThat("Filter should answer while the feed is current",
+                propertyConfigRepository.findConfig(propertyConfig.getName()).isPresent(), is(false));
+
+        repository.onInterrupted(false);
+        assertThat("Config should be found while the feed is interrupted",
+                propertyConfigRepository.findConfig(propertyConfig.getName()).isPresent(), is(true));
+
+        repository.onInterrupted(true);
+        repository.onCaughtUp();
+        assertThat("Config should be found after the filter is reloaded",
+                propertyConfigRepository.findConfig(propertyConfig.getName()).isPresent(), is(true));
+    }
+
+    @Test
+    public void testMissingParentIsRejectedAfterNameFilterReload() {
+        ((MongoPropertyConfigRepository) propertyConfigRepository).loadNameFilter();
+        try {
+            propertyConfigRepository.insert(PropertyConfigFactory.newPropertyConfig(randomName(),
+                    ImmutableSet.of(randomName()), ImmutableMap.of("key1", "value1")));
+            fail("Config with missing parent should be rejected");
+        } catch (final DataIntegrityViolationException e) {
+            assertThat("Nothing should be inserted", countConfigFilesInCollection(), is(0L));
+        }
+    }
+
+    @Test
+    public void testInsertAllWithParentsInTheSameBatch() {
+        final PropertyConfig existingPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(existingPropertyConfig);
+
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(existingPropertyConfig.getName()), ImmutableMap.of("key2", "value2"));
+        final PropertyConfig childPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(existingPropertyConfig.getName(), parentPropertyConfig.getName()),
+                ImmutableMap.of("key3", "value3"));
+        propertyConfigRepository.insertAll(ImmutableList.of(parentPropertyConfig, childPropertyConfig));
+        assertThat("Wrong number of config files in collection", countConfigFilesInCollection(), is(3L));
+
+        final Map<String, PropertyConfig> configs = propertyConfigRepository.findConfigs(ImmutableList.of(
+                parentPropertyConfig.getName(), childPropertyConfig.getName(), "missing"));
+        assertThat("Wrong configs were found", configs.keySet(), containsInAnyOrder(parentPropertyConfig.getName(),
+                childPropertyConfig.getName()));
+        assertThat("Wrong configs exist", propertyConfigRepository.checkConfigsExist(ImmutableList.of(
+                existingPropertyConfig.getName(), "missing")), contains(existingPropertyConfig.getName()));
+    }
+
+    @Test
+    public void testInsertAllWhenParentFollowsChildInBatch() {
+        final PropertyConfig parentPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        final PropertyConfig childPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(),
+                ImmutableSet.of(parentPropertyConfig.getName()), ImmutableMap.of("key2", "value2"));
+        try {
+            propertyConfigRepository.insertAll(ImmutableList.of(childPropertyConfig, parentPropertyConfig));
+            fail("Exception should be thrown if parent follows child in batch");
+        } catch (final DataIntegrityViolationException e) {
+            assertThat("Nothing should be inserted", countConfigFilesInCollection(), is(0L));
+        }
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void testInsertAllWithDuplicateNames() {
+        final String name = randomName();
+        propertyConfigRepository.insertAll(ImmutableList.of(
+                PropertyConfigFactory.newPropertyConfig(name, null, ImmutableMap.of("key1", "value1")),
+                PropertyConfigFactory.newPropertyConfig(name, null, ImmutableMap.of("key2", "value2"))));
+        fail("Exception should be thrown if batch contains duplicate names");
+    }
+
+    @Test
+    public void testInsertAllWithExistingName() {
+        final PropertyConfig existingPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(existingPropertyConfig);
+        final PropertyConfig newPropertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key2", "value2"));
+        try {
+            propertyConfigRepository.insertAll(ImmutableList.of(newPropertyConfig,
+                    PropertyConfigFactory.newPropertyConfig(existingPropertyConfig.getName(), null,
+                            ImmutableMap.of("key3", "value3"))));
+            fail("Exception should be thrown if batch contains existing name");
+        } catch (final DuplicateKeyException e) {
+            assertThat("Nothing should be inserted", countConfigFilesInCollection(), is(1L));
+            assertThat("Existing config should not be replaced", propertyConfigRepository.findConfig(
+                    existingPropertyConfig.getName()).get().getContent(), hasEntry("key1", "value1"));
+        }
+    }
+
+    @Test
+    public void testUpdate() {
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1", "key2", "value2"));
+        propertyConfigRepository.insert(propertyConfig);
+
+        final PropertyConfig updated = propertyConfigRepository.update(propertyConfig.getName(), 1,
+                PropertyDelta.builder().set("key1", "value3").set("key3", "value3").unset("key2").build());
+
+        assertThat("Revision should be incremented", updated.getRevision(), is(2));
+        assertThat("Wrong properties", updated.getContent(), allOf(hasEntry("key1", "value3"),
+                hasEntry("key3", "value3"), not(hasKey("key2"))));
+        assertThat("Updated config should be returned", propertyConfigRepository.findConfig(propertyConfig.getName())
+                .get().getContent(), is(updated.getContent()));
+    }
+
+    @Test(expected = OptimisticLockingFailureException.class)
+    public void testUpdateWithStaleRevision() {
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(propertyConfig);
+        propertyConfigRepository.update(propertyConfig.getName(), 1, PropertyDelta.builder().set("key1", "value2")
+                .build());
+
+        propertyConfigRepository.update(propertyConfig.getName(), 1, PropertyDelta.builder().set("key1", "value3")
+                .build());
+        fail("Exception should be thrown if revision has changed");
+    }
+
+    @Test(expected = EmptyResultDataAccessException.class)
+    public void testUpdateOfMissingConfig() {
+        propertyConfigRepository.update(randomName(), 1, PropertyDelta.builder().set("key1", "value1").build());
+        fail("Exception should be thrown if config doesn't exist");
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void testUpdateThatRemovesAllProperties() {
+        final PropertyConfig propertyConfig = PropertyConfigFactory.newPropertyConfig(randomName(), null,
+                ImmutableMap.of("key1", "value1"));
+        propertyConfigRepository.insert(propertyConfig);
+
+        propertyConfigRepository.update(propertyConfig.getName(), 1, PropertyDelta.builder().unset("key1").build());
+        fail("Exception should be thrown if no properties are left");
+    }
+
     @After
     public void tearDown() {
         dropCollectionIfNecessary();
@@ -0,0 +1,180 @@
+package com.gmail.avenderov.sync;
+
+import com.gmail.avenderov.api.repository.ConfigHistoryRepository;
+import com.gmail.avenderov.client.model.ConfigUpdate;
+import com.gmail.avenderov.memory.InMemoryPropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigFactory;
+import com.gmail.avenderov.mongo.data.PropertyDelta;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class ConfigSynchronizerTest {
+
+    private final Map<String, Map<String, String>> history = new HashMap<String, Map<String, String>>();
+
+    private InMemoryPropertyConfigRepository propertyConfigRepository;
+
+    private ConfigSynchronizer configSynchronizer;
+
+    @Before
+    public void setUp() {
+        propertyConfigRepository = new InMemoryPropertyConfigRepository();
+        configSynchronizer = new ConfigSynchronizer(propertyConfigRepository, new MapConfigHistoryRepository(), 3);
+
+        insert(PropertyConfigFactory.newPropertyConfig("parent", null,
+                ImmutableMap.of("key1", "parent1", "key2", "parent2")));
+        insert(PropertyConfigFactory.newPropertyConfig("child", ImmutableSet.of("parent"),
+                ImmutableMap.of("key1", "child1", "key3", "child3", "key4", "child4")));
+    }
+
+    @Test
+    public void testUpToDateConfigIsOmitted() {
+        assertThat("Up to date config should be omitted", sync("child", revisions(1, 1)), is(empty()));
+    }
+
+    @Test
+    public void testOnlyChangedPropertiesAreSent() {
+        update("child", 1, PropertyDelta.builder().set("key3", "changed3").unset("key4").build());
+        update("parent", 1, PropertyDelta.builder().set("key5", "parent5").build());
+
+        final List<ConfigUpdate> updates = sync("child", revisions(1, 1));
+        assertThat("Wrong number of updates", updates, hasSize(1));
+        final ConfigUpdate update = updates.get(0);
+        assertThat("Delta was expected", update.getType(), is(ConfigUpdate.Type.DELTA));
+        assertThat("Wrong revisions", update.getRevisions(), equalTo(revisions(2, 2)));
+        assertThat("Wrong set properties", update.getSet(),
+                equalTo((Map<String, String>) ImmutableMap.of("key3", "changed3", "key5", "parent5")));
+        assertThat("Wrong unset properties", update.getUnset(), contains("key4"));
+    }
+
+    @Test
+    public void testOverriddenChangeIsSentAsEmptyDelta() {
+        update("parent", 1, PropertyDelta.builder().set("key1", "changed1").build());
+
+        final List<ConfigUpdate> updates = sync("child", revisions(1, 1));
+        assertThat("Wrong number of updates", updates, hasSize(1));
+        assertThat("Delta was expected", updates.get(0).getType(), is(ConfigUpdate.Type.DELTA));
+        assertThat("Overridden property should not be sent", updates.get(0).getSet().isEmpty(), is(true));
+        assertThat("Wrong revisions", updates.get(0).getRevisions(), equalTo(revisions(1, 2)));
+    }
+
+    @Test
+    public void testSnapshotIsSentWhenGapIsTooLarge() {
+        for (int revision = 1; revision <= 4; revision++) {
+            update("child", revision, PropertyDelta.builder().set("key3", "changed" + revision).build());
+        }
+
+        final List<ConfigUpdate> updates = sync("child", revisions(1, 1));
+        assertThat("Wrong number of updates", updates, hasSize(1));
+        assertThat("Snapshot was expected", updates.get(0).getType(), is(ConfigUpdate.Type.SNAPSHOT));
+        assertThat("Wrong properties", updates.get(0).getProperties(), hasEntry("key3", "changed4"));
+    }
+
+    @Test
+    public void testSnapshotIsSentWhenRevisionIsNotInHistory() {
+        update("child", 1, PropertyDelta.builder().set("key3", "changed3").build());
+        history.remove("child:1");
+
+        final List<ConfigUpdate> updates = sync("child", revisions(1, 1));
+        assertThat("Snapshot was expected", updates.get(0).getType(), is(ConfigUpdate.Type.SNAPSHOT));
+    }
+
+    @Test
+    public void testSnapshotIsSentForConfigClientDoesNotHave() {
+        final List<ConfigUpdate> updates = sync("child", Collections.<String, Integer>emptyMap());
+        assertThat("Wrong number of updates", updates, hasSize(1));
+        assertThat("Snapshot was expected", updates.get(0).getType(), is(ConfigUpdate.Type.SNAPSHOT));
+        assertThat("Wrong properties", updates.get(0).getProperties(), allOf(hasEntry("key1", "child1"),
+                hasEntry("key2", "parent2")));
+    }
+
+    @Test
+    public void testMissingConfig() {
+        assertThat("Unknown config should be omitted", sync("missing", Collections.<String, Integer>emptyMap()),
+                is(empty()));
+
+        final List<ConfigUpdate> updates = sync("missing", ImmutableMap.of("missing", 1));
+        assertThat("Wrong number of updates", updates, hasSize(1));
+        assertThat("Config should be removed", updates.get(0).getType(), is(ConfigUpdate.Type.REMOVED));
+    }
+
+    @Test
+    public void testConfigIsOmittedWhenClientIsAhead() {
+        assertThat("Config should be omitted", sync("child", revisions(2, 1)), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRevisionMustBePositive() {
+        sync("child", revisions(0, 1));
+    }
+
+    private List<ConfigUpdate> sync(final String name, final Map<String, Integer> revisions) {
+        return configSynchronizer.sync(ImmutableMap.of(name, revisions));
+    }
+
+    private static Map<String, Integer> revisions(final int child, final int parent) {
+        return ImmutableMap.of("child", child, "parent", parent);
+    }
+
+    private void insert(final PropertyConfig propertyConfig) {
+        record(propertyConfigRepository.insert(propertyConfig));
+    }
+
+    private void update(final String name, final int expectedRevision, final PropertyDelta delta) {
+        record(propertyConfigRepository.update(name, expectedRevision, delta));
+    }
+
+    private void record(final PropertyConfig propertyConfig) {
+        history.put(propertyConfig.getName() + ":" + propertyConfig.getRevision(), propertyConfig.getContent());
+    }
+
+    private class MapConfigHistoryRepository implements ConfigHistoryRepository {
+
+        @Override
+        public void record(final PropertyConfig propertyConfig) {
+            ConfigSynchronizerTest.this.record(propertyConfig);
+        }
+
+        @Override
+        public void recordInserted(final List<PropertyConfig> propertyConfigs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<Map<String, String>> findProperties(final String name, final int revision) {
+            return Optional.fromNullable(history.get(name + ":" + revision));
+        }
+
+        @Override
+        public Optional<PropertyDelta> findDelta(final String name, final int fromRevision, final int toRevision) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compact(final String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compactAll() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.gmail.avenderov.utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class CompactMapsTest {
+
+    @Test
+    public void testSmallMapBehavesAsMap() {
+        final Map<String, String> source = new LinkedHashMap<String, String>();
+        source.put("key3", "value3");
+        source.put("key1", "value1");
+        source.put("key2", "value2");
+        final Map<String, String> map = CompactMaps.copyOf(source);
+
+        assertThat("Small map should be kept in array", map, is(instanceOf(SortedArrayMap.class)));
+        assertThat("Map should be equal to source", map, equalTo(source));
+        assertThat("Source should be equal to map", source, equalTo(map));
+        assertThat("Wrong hash code", map.hashCode(), is(source.hashCode()));
+        assertThat("Wrong iteration order", map.keySet(), contains("key1", "key2", "key3"));
+        assertThat("Wrong value", map.get("key2"), is("value2"));
+        assertThat("Missing key should not be found", map.get("key0"), is(nullValue()));
+        assertThat("Missing key should not be found", map.containsKey("key4"), is(false));
+        assertThat("Non-string key should not be found", map.containsKey(1), is(false));
+        assertThat("Compact map should not be copied", CompactMaps.copyOf(map), is(sameInstance(map)));
+    }
+
+    @Test
+    public void testLargeMapIsKeptInHashTable() {
+        final Map<String, String> source = new HashMap<String, String>();
+        for (int i = 0; i <= CompactMaps.MAX_ARRAY_MAP_SIZE; i++) {
+            source.put(String.format("key%03d", i), "value" + i);
+        }
+        final Map<String, String> map = CompactMaps.copyOf(source);
+
+        assertThat("Large map should be kept in hash table", map, is(instanceOf(ImmutableMap.class)));
+        assertThat("Map should be equal to source", map, equalTo(source));
+        assertThat("Large map should iterate in key order", map.keySet().iterator().next(), is("key000"));
+    }
+
+    @Test
+    public void testStringsAreShared() {
+        final Map<String, String> map1 = CompactMaps.copyOf(ImmutableMap.of(new String("key"), new String("value")));
+        final Map<String, String> map2 = CompactMaps.copyOf(ImmutableMap.of(new String("key"), new String("value")));
+
+        assertThat("Keys should be shared", map1.keySet().iterator().next(),
+                is(sameInstance(map2.keySet().iterator().next())));
+        assertThat("Values should be shared", map1.get("key"), is(sameInstance(map2.get("key"))));
+        assertThat("Set elements should be shared",
+                CompactMaps.copyOf(ImmutableSet.of(new String("key"))).iterator().next(),
+                is(sameInstance(map1.keySet().iterator().next())));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMapIsImmutable() {
+        CompactMaps.copyOf(ImmutableMap.of("key", "value")).put("key", "other value");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValueIsRejected() {
+        final Map<String, String> source = new HashMap<String, String>();
+        source.put("key", null);
+        CompactMaps.copyOf(source);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.gmail.avenderov.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class ConcurrentBloomFilterTest {
+
+    @Test
+    public void testFalsePositiveProbability() {
+        final ConcurrentBloomFilter bloomFilter = ConcurrentBloomFilter.create(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            bloomFilter.put("config" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertThat("Put value must be found", bloomFilter.mightContain("config" + i), is(true));
+            if (bloomFilter.mightContain("missing" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat("Too many false positives", falsePositives, lessThan(200));
+    }
+
+    @Test
+    public void testConcurrentPuts() throws InterruptedException {
+        final ConcurrentBloomFilter bloomFilter = ConcurrentBloomFilter.create(40000, 0.01);
+        final int threadCount = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int thread = 0; thread < threadCount; thread++) {
+            final int offset = thread;
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = offset; i < 40000; i += threadCount) {
+                        bloomFilter.put("config" + i);
+                    }
+                }
+
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat("Puts didn't finish in time", executor.awaitTermination(1, TimeUnit.MINUTES), is(true));
+
+        for (int i = 0; i < 40000; i++) {
+            assertThat("Concurrently put value must be found", bloomFilter.mightContain("config" + i), is(true));
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.gmail.avenderov.utils;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Alexey Venderov
+ */
+public class SingleFlightTest {
+
+    private static final int CALLER_COUNT = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLER_COUNT);
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<String, String>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallsAreCoalesced() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<String> call = new Callable<String>() {
+
+            @Override
+            public String call() throws InterruptedException {
+                executions.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "value";
+            }
+
+        };
+
+        final List<Future<String>> results = new ArrayList<Future<String>>();
+        results.add(executeAsync("key", call));
+        assertThat("Call was not started", started.await(1, TimeUnit.SECONDS), is(true));
+        for (int i = 1; i < CALLER_COUNT; i++) {
+            results.add(executeAsync("key", call));
+        }
+        // Waiting callers are not observable, give them time to find the call in flight
+        Thread.sleep(100L);
+        release.countDown();
+
+        for (final Future<String> result : results) {
+            assertThat("Wrong result", result.get(1, TimeUnit.SECONDS), is("value"));
+        }
+        assertThat("Call should be executed once", executions.get(), is(1));
+        assertThat("Completed call should be forgotten", singleFlight.size(), is(0));
+    }
+
+    @Test
+    public void testFailureIsNotRemembered() {
+        try {
+            singleFlight.execute("key", new Callable<String>() {
+
+                @Override
+                public String call() {
+                    throw new IllegalStateException("failure");
+                }
+
+            });
+            fail("Exception should be propagated");
+        } catch (final IllegalStateException e) {
+            assertThat("Wrong exception", e.getMessage(), is("failure"));
+        }
+
+        assertThat("Call should be executed again", singleFlight.execute("key", new Callable<String>() {
+
+            @Override
+            public String call() {
+                return "value";
+            }
+
+        }), is("value"));
+    }
+
+    @Test
+    public void testWaitingCallersGetTheSameException() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<String> call = new Callable<String>() {
+
+            @Override
+            public String call() throws InterruptedException {
+                started.countDown();
+                release.await();
+                throw new IllegalStateException("failure");
+            }
+
+        };
+
+        final Future<String> first = executeAsync("key", call);
+        assertThat("Call was not started", started.await(1, TimeUnit.SECONDS), is(true));
+        final Future<String> second = executeAsync("key", call);
+        Thread.sleep(100L);
+        release.countDown();
+
+        for (final Future<String> result : ImmutableList.of(first, second)) {
+            try {
+                result.get(1, TimeUnit.SECONDS);
+                fail("Exception should be propagated");
+            } catch (final ExecutionException e) {
+                assertThat("Wrong exception", e.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+    }
+
+    private Future<String> executeAsync(final String key, final Callable<String> call) {
+        return executor.submit(new Callable<String>() {
+
+            @Override
+            public String call() {
+                return singleFlight.execute(key, call);
+            }
+
+        });
+    }
+
+}
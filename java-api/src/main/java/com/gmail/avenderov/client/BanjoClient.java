@@ -0,0 +1,367 @@
+package com.gmail.avenderov.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmail.avenderov.client.model.ConfigUpdate;
+import com.gmail.avenderov.client.model.ResolvedConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client that keeps subscribed configs in an in-memory snapshot. Reads are served from the snapshot without locks
+ * and network calls. A background thread refreshes the snapshot with one delta sync request, so only changed
+ * properties are transferred. Servers without sync endpoint are polled with conditional requests per config. The
+ * last good snapshot is saved to local disk and used on start, so configs are available right away even when the
+ * config service is slow or down.
+ * <p/>
+ * Settings that are read on hot paths should be read through typed properties, e.g. {@link #intProperty}, which are
+ * parsed once per change instead of on every read.
+ *
+ * @author Alexey Venderov
+ */
+public class BanjoClient implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BanjoClient.class);
+
+    private final Set<String> names;
+
+    private final ConfigFetcher configFetcher;
+
+    private final SnapshotStore snapshotStore;
+
+    private final long refreshIntervalMillis;
+
+    private final ScheduledExecutorService executor;
+
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+
+    // Registration and publication lock it, so that properties are never updated from an older snapshot
+    private final List<TypedProperty> properties = new CopyOnWriteArrayList<TypedProperty>();
+
+    // Accessed by the refresh thread only
+    private boolean syncSupported = true;
+
+    private BanjoClient(final Builder builder) {
+        this.names = Collections.unmodifiableSet(new LinkedHashSet<String>(builder.names));
+        this.configFetcher = new ConfigFetcher(builder.baseUri, builder.objectMapper, builder.timeoutMillis);
+        this.snapshotStore = builder.snapshotFile != null ?
+                new SnapshotStore(builder.snapshotFile, builder.objectMapper) : null;
+        this.refreshIntervalMillis = builder.refreshIntervalMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "banjo-client-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        });
+    }
+
+    public static Builder builder(final URI baseUri) {
+        return new Builder(baseUri);
+    }
+
+    /**
+     * Loads saved snapshot from disk and starts background refresh. Doesn't wait for the config service.
+     */
+    public void start() {
+        if (snapshotStore != null) {
+            final ConfigSnapshot savedSnapshot = snapshotStore.load();
+            if (savedSnapshot != null) {
+                publish(savedSnapshot);
+                LOGGER.info("Loaded {} configs from '{}'", savedSnapshot.getConfigs().size(),
+                        snapshotStore.getFile());
+            }
+        }
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                refresh();
+            }
+
+        }, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns subscribed config from the snapshot.
+     *
+     * @param name config name
+     * @return config or {@code null} if config is unknown
+     */
+    public ResolvedConfig getConfig(final String name) {
+        return snapshot.getConfig(name);
+    }
+
+    /**
+     * Returns property of subscribed config from the snapshot.
+     *
+     * @param name config name
+     * @param key  property key
+     * @return property value or {@code null} if config or property is unknown
+     */
+    public String getProperty(final String name, final String key) {
+        final ResolvedConfig config = snapshot.getConfig(name);
+        return config != null ? config.getProperties().get(key) : null;
+    }
+
+    /**
+     * Returns property of subscribed config parsed as {@code int}.
+     *
+     * @param name         config name
+     * @param key          property key
+     * @param defaultValue value used while config or property is unknown
+     * @return property that follows changes of the config
+     */
+    public IntProperty intProperty(final String name, final String key, final int defaultValue) {
+        return register(new IntProperty(name, key, defaultValue));
+    }
+
+    /**
+     * Returns property of subscribed config parsed as {@code long}, see {@link #intProperty}.
+     */
+    public LongProperty longProperty(final String name, final String key, final long defaultValue) {
+        return register(new LongProperty(name, key, defaultValue));
+    }
+
+    /**
+     * Returns property of subscribed config parsed as {@code boolean}, see {@link #intProperty}.
+     */
+    public BooleanProperty booleanProperty(final String name, final String key, final boolean defaultValue) {
+        return register(new BooleanProperty(name, key, defaultValue));
+    }
+
+    /**
+     * Returns property of subscribed config parsed as duration, see {@link #intProperty}.
+     *
+     * @param unit unit of the default value and of values without unit suffix
+     */
+    public DurationProperty durationProperty(final String name, final String key, final long defaultValue,
+                                             final TimeUnit unit) {
+        return register(new DurationProperty(name, key, defaultValue, unit));
+    }
+
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+
+    private <T extends TypedProperty> T register(final T property) {
+        if (!names.contains(property.getName())) {
+            throw new IllegalArgumentException(String.format("Config '%1$s' is not subscribed", property.getName()));
+        }
+        synchronized (properties) {
+            properties.add(property);
+            property.update(snapshot.getConfig(property.getName()));
+        }
+
+        return property;
+    }
+
+    private void publish(final ConfigSnapshot published) {
+        synchronized (properties) {
+            snapshot = published;
+            for (final TypedProperty property : properties) {
+                property.update(published.getConfig(property.getName()));
+            }
+        }
+    }
+
+    /**
+     * Checks all subscribed configs against the config service and publishes new snapshot if any of them has
+     * changed. Configs that can't be fetched are left as they are.
+     */
+    void refresh() {
+        final ConfigSnapshot current = snapshot;
+        final Map<String, ResolvedConfig> configs = new HashMap<String, ResolvedConfig>(current.getConfigs());
+        final Map<String, String> entityTags = new HashMap<String, String>(current.getEntityTags());
+        final boolean changed = syncSupported ? sync(configs, entityTags) : fetch(configs, entityTags);
+
+        if (changed) {
+            final ConfigSnapshot refreshed = new ConfigSnapshot(configs, entityTags);
+            publish(refreshed);
+            if (snapshotStore != null) {
+                try {
+                    snapshotStore.save(refreshed);
+                } catch (final IOException e) {
+                    LOGGER.warn("Failed to save config snapshot to '{}'", snapshotStore.getFile(), e);
+                }
+            }
+        }
+    }
+
+    private boolean sync(final Map<String, ResolvedConfig> configs, final Map<String, String> entityTags) {
+        final Map<String, Map<String, Integer>> revisions = new LinkedHashMap<String, Map<String, Integer>>();
+        for (final String name : names) {
+            final ResolvedConfig config = configs.get(name);
+            revisions.put(name, config != null ? config.getRevisions() : Collections.<String, Integer>emptyMap());
+        }
+
+        final List<ConfigUpdate> updates;
+        try {
+            updates = configFetcher.sync(revisions);
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to sync configs", e);
+            return false;
+        } catch (final RuntimeException e) {
+            LOGGER.error("Failed to sync configs", e);
+            return false;
+        }
+        if (updates == null) {
+            LOGGER.info("Config service doesn't support delta sync, configs are polled one by one");
+            syncSupported = false;
+            return fetch(configs, entityTags);
+        }
+
+        boolean changed = false;
+        for (final ConfigUpdate update : updates) {
+            final String name = update.getName();
+            if (!names.contains(name)) {
+                continue;
+            }
+            final ResolvedConfig config;
+            try {
+                config = update.applyTo(configs.get(name));
+            } catch (final IllegalArgumentException e) {
+                LOGGER.error("Failed to apply update of config '{}'", name, e);
+                continue;
+            }
+            if (config != null) {
+                configs.put(name, config);
+                if (update.getEntityTag() != null) {
+                    entityTags.put(name, update.getEntityTag());
+                } else {
+                    entityTags.remove(name);
+                }
+            } else {
+                configs.remove(name);
+                entityTags.remove(name);
+            }
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private boolean fetch(final Map<String, ResolvedConfig> configs, final Map<String, String> entityTags) {
+        boolean changed = false;
+        for (final String name : names) {
+            try {
+                final ConfigFetcher.Result result = configFetcher.fetch(name, entityTags.get(name));
+                switch (result.status) {
+                    case MODIFIED:
+                        configs.put(name, result.config);
+                        entityTags.put(name, result.entityTag);
+                        changed = true;
+                        break;
+                    case NOT_FOUND:
+                        changed |= configs.remove(name) != null;
+                        entityTags.remove(name);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to refresh config '{}'", name, e);
+            } catch (final RuntimeException e) {
+                LOGGER.error("Failed to refresh config '{}'", name, e);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Stops background refresh. Snapshot stays readable.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public static final class Builder {
+
+        private final URI baseUri;
+
+        private final Set<String> names = new LinkedHashSet<String>();
+
+        private File snapshotFile;
+
+        private long refreshIntervalMillis = TimeUnit.SECONDS.toMillis(30);
+
+        private int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(5);
+
+        private ObjectMapper objectMapper = new ObjectMapper();
+
+        private Builder(final URI baseUri) {
+            if (baseUri == null) {
+                throw new IllegalArgumentException("baseUri must not be null");
+            }
+            // Relative paths are resolved against the base, so it has to end with slash
+            this.baseUri = baseUri.toString().endsWith("/") ? baseUri : URI.create(baseUri + "/");
+        }
+
+        public Builder subscribe(final String... names) {
+            for (final String name : names) {
+                if (name == null || name.trim().isEmpty()) {
+                    throw new IllegalArgumentException("names must not be blank");
+                }
+                this.names.add(name);
+            }
+            return this;
+        }
+
+        public Builder snapshotFile(final File snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        public Builder refreshInterval(final long refreshInterval, final TimeUnit timeUnit) {
+            if (refreshInterval <= 0) {
+                throw new IllegalArgumentException("refreshInterval must be greater than zero");
+            }
+            this.refreshIntervalMillis = timeUnit.toMillis(refreshInterval);
+            return this;
+        }
+
+        public Builder timeout(final long timeout, final TimeUnit timeUnit) {
+            if (timeout <= 0) {
+                throw new IllegalArgumentException("timeout must be greater than zero");
+            }
+            this.timeoutMillis = (int) timeUnit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder objectMapper(final ObjectMapper objectMapper) {
+            if (objectMapper == null) {
+                throw new IllegalArgumentException("objectMapper must not be null");
+            }
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        public BanjoClient build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("at least one config has to be subscribed");
+            }
+            return new BanjoClient(this);
+        }
+
+    }
+
+}
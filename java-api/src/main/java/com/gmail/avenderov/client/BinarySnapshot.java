@@ -0,0 +1,178 @@
+package com.gmail.avenderov.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.gmail.avenderov.client.BinarySnapshotFormat.*;
+
+/**
+ * Read-only view of resolved configs stored in the binary snapshot format. Snapshot file is memory-mapped, so
+ * configs stay off heap and opening a snapshot doesn't depend on the number of configs in it. Configs and
+ * properties are found by binary search over encoded names and keys, only the requested values are decoded.
+ * Instances are thread-safe.
+ *
+ * @author Alexey Venderov
+ * @see BinarySnapshotWriter
+ */
+public class BinarySnapshot {
+
+    private final ByteBuffer buffer;
+
+    private final int configCount;
+
+    BinarySnapshot(final ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a config snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("Unsupported config snapshot version %1$d", buffer.getInt(4)));
+        }
+        final int count = buffer.getInt(8);
+        final int stringTableOffset = buffer.getInt(12);
+        if (count < 0 || stringTableOffset > buffer.limit() ||
+                HEADER_SIZE + (long) count * CONFIG_ENTRY_SIZE > stringTableOffset) {
+            throw new IOException("Config snapshot is corrupted");
+        }
+
+        this.buffer = buffer;
+        this.configCount = count;
+    }
+
+    /**
+     * Maps snapshot file into memory. Mapping is released when the snapshot is garbage collected.
+     *
+     * @param file snapshot file written by {@link BinarySnapshotWriter}
+     * @return opened snapshot
+     * @throws IOException if file can't be mapped or isn't a valid snapshot
+     */
+    public static BinarySnapshot open(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Config snapshot is too large " + file);
+            }
+            // Mapping stays valid after the channel is closed
+            return new BinarySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    public int size() {
+        return configCount;
+    }
+
+    public boolean containsConfig(final String name) {
+        return findConfig(name) >= 0;
+    }
+
+    /**
+     * Returns revision of the config.
+     *
+     * @param name config name
+     * @return revision or {@code null} if config is unknown
+     */
+    public Integer getRevision(final String name) {
+        final int entry = findConfig(name);
+        return entry >= 0 ? buffer.getInt(entry + 4) : null;
+    }
+
+    /**
+     * Returns single property of the config. Only the value of the property is decoded.
+     *
+     * @param name config name
+     * @param key  property key
+     * @return property value or {@code null} if config or property is unknown
+     */
+    public String getProperty(final String name, final String key) {
+        final int entry = findConfig(name);
+        if (entry < 0) {
+            return null;
+        }
+        final int property = find(buffer.getInt(entry + 8), buffer.getInt(entry + 12), PROPERTY_ENTRY_SIZE,
+                key.getBytes(UTF_8));
+
+        return property >= 0 ? readString(buffer.getInt(property + 4)) : null;
+    }
+
+    /**
+     * Decodes all properties of the config.
+     *
+     * @param name config name
+     * @return properties sorted by key or {@code null} if config is unknown
+     */
+    public Map<String, String> getProperties(final String name) {
+        final int entry = findConfig(name);
+        if (entry < 0) {
+            return null;
+        }
+        final int propertiesOffset = buffer.getInt(entry + 8);
+        final int propertyCount = buffer.getInt(entry + 12);
+        final Map<String, String> properties = new LinkedHashMap<String, String>();
+        for (int i = 0; i < propertyCount; i++) {
+            final int property = propertiesOffset + i * PROPERTY_ENTRY_SIZE;
+            properties.put(readString(buffer.getInt(property)), readString(buffer.getInt(property + 4)));
+        }
+
+        return Collections.unmodifiableMap(properties);
+    }
+
+    private int findConfig(final String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name must not be null");
+        }
+        return find(HEADER_SIZE, configCount, CONFIG_ENTRY_SIZE, name.getBytes(UTF_8));
+    }
+
+    /**
+     * Binary search over sorted entries which start with offset of their string key.
+     *
+     * @return offset of the found entry or -1
+     */
+    private int find(final int offset, final int count, final int entrySize, final byte[] key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int entry = offset + middle * entrySize;
+            final int result = compareString(buffer.getInt(entry), key);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private int compareString(final int offset, final byte[] key) {
+        final int length = buffer.getInt(offset);
+        final int commonLength = Math.min(length, key.length);
+        for (int i = 0; i < commonLength; i++) {
+            final int result = (buffer.get(offset + 4 + i) & 0xFF) - (key[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length - key.length;
+    }
+
+    private String readString(final int offset) {
+        final byte[] bytes = new byte[buffer.getInt(offset)];
+        // Absolute bulk get is not available, duplicate keeps the shared buffer position untouched
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset + 4);
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.gmail.avenderov.client;
+
+import java.nio.charset.Charset;
+import java.util.Comparator;
+
+/**
+ * Layout of the binary config snapshot. All numbers are big-endian 32-bit integers, offsets are absolute.
+ * <pre>
+ * header        magic, version, config count, string table offset
+ * config index  config count entries of (name offset, revision, properties offset, property count),
+ *               sorted by name
+ * properties    property count entries of (key offset, value offset) per config, sorted by key
+ * string table  unique strings as (length, UTF-8 bytes)
+ * </pre>
+ * Names and keys are sorted by their UTF-8 bytes, so lookups can compare encoded strings in place.
+ *
+ * @author Alexey Venderov
+ */
+final class BinarySnapshotFormat {
+
+    static final int MAGIC = 0x424E4A53;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    static final int CONFIG_ENTRY_SIZE = 16;
+
+    static final int PROPERTY_ENTRY_SIZE = 8;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final Comparator<byte[]> UNSIGNED_BYTES_ORDER = new Comparator<byte[]>() {
+
+        @Override
+        public int compare(final byte[] left, final byte[] right) {
+            final int length = Math.min(left.length, right.length);
+            for (int i = 0; i < length; i++) {
+                final int result = (left[i] & 0xFF) - (right[i] & 0xFF);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return left.length - right.length;
+        }
+
+    };
+
+    private BinarySnapshotFormat() {
+    }
+
+}
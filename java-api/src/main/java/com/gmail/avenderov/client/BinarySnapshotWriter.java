@@ -0,0 +1,172 @@
+package com.gmail.avenderov.client;
+
+import java.io.*;
+import java.util.*;
+
+import static com.gmail.avenderov.client.BinarySnapshotFormat.*;
+
+/**
+ * Collects resolved configs and writes them in the binary snapshot format, see {@link BinarySnapshot}. Equal
+ * strings are stored only once. Snapshot is written into a temporary file first and then renamed.
+ *
+ * @author Alexey Venderov
+ */
+public class BinarySnapshotWriter {
+
+    private final SortedMap<byte[], Config> configs = new TreeMap<byte[], Config>(UNSIGNED_BYTES_ORDER);
+
+    /**
+     * Adds config to the snapshot replacing previously added config with the same name.
+     *
+     * @param name       config name
+     * @param revision   revision of the config
+     * @param properties resolved properties of the config
+     * @return this writer
+     */
+    public BinarySnapshotWriter add(final String name, final int revision, final Map<String, String> properties) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        if (properties == null) {
+            throw new IllegalArgumentException("properties must not be null");
+        }
+
+        final SortedMap<byte[], byte[]> encodedProperties = new TreeMap<byte[], byte[]>(UNSIGNED_BYTES_ORDER);
+        for (final Map.Entry<String, String> property : properties.entrySet()) {
+            if (property.getKey() == null || property.getValue() == null) {
+                throw new IllegalArgumentException("properties must not contain null keys or values");
+            }
+            encodedProperties.put(property.getKey().getBytes(UTF_8), property.getValue().getBytes(UTF_8));
+        }
+        configs.put(name.getBytes(UTF_8), new Config(revision, encodedProperties));
+
+        return this;
+    }
+
+    public int size() {
+        return configs.size();
+    }
+
+    /**
+     * Writes collected configs to the file replacing existing one.
+     *
+     * @param file snapshot file
+     * @throws IOException if snapshot can't be written
+     */
+    public void write(final File file) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory " + directory);
+        }
+        final File temporaryFile = new File(directory, file.getName() + ".tmp");
+        final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporaryFile)));
+        try {
+            write(outputStream);
+        } finally {
+            outputStream.close();
+        }
+        if (!temporaryFile.renameTo(file)) {
+            // Rename doesn't replace existing file on some platforms
+            if (!file.delete() || !temporaryFile.renameTo(file)) {
+                throw new IOException("Failed to replace config snapshot " + file);
+            }
+        }
+    }
+
+    private void write(final DataOutputStream outputStream) throws IOException {
+        long propertyCount = 0;
+        for (final Config config : configs.values()) {
+            propertyCount += config.properties.size();
+        }
+        final long stringTableOffset = HEADER_SIZE + (long) configs.size() * CONFIG_ENTRY_SIZE +
+                propertyCount * PROPERTY_ENTRY_SIZE;
+
+        // Offsets of unique strings, in the order they are written to the string table
+        final Map<ByteArray, Integer> strings = new LinkedHashMap<ByteArray, Integer>();
+        final long[] nextStringOffset = {stringTableOffset};
+
+        outputStream.writeInt(MAGIC);
+        outputStream.writeInt(VERSION);
+        outputStream.writeInt(configs.size());
+        outputStream.writeInt(toOffset(stringTableOffset));
+
+        long propertiesOffset = HEADER_SIZE + (long) configs.size() * CONFIG_ENTRY_SIZE;
+        for (final Map.Entry<byte[], Config> config : configs.entrySet()) {
+            outputStream.writeInt(internString(strings, nextStringOffset, config.getKey()));
+            outputStream.writeInt(config.getValue().revision);
+            outputStream.writeInt(toOffset(propertiesOffset));
+            outputStream.writeInt(config.getValue().properties.size());
+            propertiesOffset += (long) config.getValue().properties.size() * PROPERTY_ENTRY_SIZE;
+        }
+        for (final Config config : configs.values()) {
+            for (final Map.Entry<byte[], byte[]> property : config.properties.entrySet()) {
+                outputStream.writeInt(internString(strings, nextStringOffset, property.getKey()));
+                outputStream.writeInt(internString(strings, nextStringOffset, property.getValue()));
+            }
+        }
+        for (final ByteArray string : strings.keySet()) {
+            outputStream.writeInt(string.bytes.length);
+            outputStream.write(string.bytes);
+        }
+    }
+
+    private static int internString(final Map<ByteArray, Integer> strings, final long[] nextStringOffset,
+                                    final byte[] bytes) {
+        final ByteArray key = new ByteArray(bytes);
+        final Integer offset = strings.get(key);
+        if (offset != null) {
+            return offset;
+        }
+        final int newOffset = toOffset(nextStringOffset[0]);
+        strings.put(key, newOffset);
+        nextStringOffset[0] += 4 + bytes.length;
+        toOffset(nextStringOffset[0]);
+
+        return newOffset;
+    }
+
+    private static int toOffset(final long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Snapshot doesn't fit into 2GB");
+        }
+        return (int) offset;
+    }
+
+    private static final class Config {
+
+        private final int revision;
+
+        private final SortedMap<byte[], byte[]> properties;
+
+        private Config(final int revision, final SortedMap<byte[], byte[]> properties) {
+            this.revision = revision;
+            this.properties = properties;
+        }
+
+    }
+
+    private static final class ByteArray {
+
+        private final byte[] bytes;
+
+        private final int hashCode;
+
+        private ByteArray(final byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof ByteArray && Arrays.equals(bytes, ((ByteArray) other).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.gmail.avenderov.client;
+
+/**
+ * Property parsed as a {@code boolean}. Only {@code true} and {@code false} in any case are valid, unlike
+ * {@link Boolean#parseBoolean(String)} that takes any other text for {@code false}.
+ *
+ * @author Alexey Venderov
+ */
+public final class BooleanProperty extends TypedProperty {
+
+    private final boolean defaultValue;
+
+    private volatile boolean value;
+
+    BooleanProperty(final String name, final String key, final boolean defaultValue) {
+        super(name, key);
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    public boolean get() {
+        return value;
+    }
+
+    @Override
+    boolean parse(final String text) {
+        final String trimmed = text.trim();
+        if ("true".equalsIgnoreCase(trimmed)) {
+            return set(true);
+        }
+        if ("false".equalsIgnoreCase(trimmed)) {
+            return set(false);
+        }
+        throw new IllegalArgumentException("value must be either true or false");
+    }
+
+    @Override
+    boolean reset() {
+        return set(defaultValue);
+    }
+
+    private boolean set(final boolean value) {
+        final boolean changed = value != this.value;
+        this.value = value;
+        return changed;
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.gmail.avenderov.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmail.avenderov.client.model.ConfigUpdate;
+import com.gmail.avenderov.client.model.ResolvedConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches resolved configs from the REST API with conditional requests or with one delta sync request.
+ *
+ * @author Alexey Venderov
+ */
+class ConfigFetcher {
+
+    private final URI baseUri;
+
+    private final ObjectMapper objectMapper;
+
+    private final int timeoutMillis;
+
+    ConfigFetcher(final URI baseUri, final ObjectMapper objectMapper, final int timeoutMillis) {
+        this.baseUri = baseUri;
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Fetches config unless it still has specified entity tag.
+     *
+     * @param name      config name
+     * @param entityTag  entity tag of the config held by the client, {@code null} if client doesn't have the config
+     * @return result of the fetch
+     * @throws IOException if config can't be fetched
+     */
+    Result fetch(final String name, final String entityTag) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) baseUri.resolve("properties/" +
+                URLEncoder.encode(name, "UTF-8").replace("+", "%20")).toURL().openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestProperty("Accept", "application/json");
+        if (entityTag != null) {
+            connection.setRequestProperty("If-None-Match", entityTag);
+        }
+
+        // Connection is not disconnected, so that it can be reused by the following requests
+        final int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_OK) {
+            final InputStream inputStream = connection.getInputStream();
+            try {
+                return new Result(Status.MODIFIED, objectMapper.readValue(inputStream, ResolvedConfig.class),
+                        connection.getHeaderField("ETag"));
+            } finally {
+                inputStream.close();
+            }
+        }
+        final InputStream errorStream = connection.getErrorStream();
+        if (errorStream != null) {
+            errorStream.close();
+        }
+        switch (status) {
+            case HttpURLConnection.HTTP_NOT_MODIFIED:
+                return new Result(Status.NOT_MODIFIED, null, entityTag);
+            case HttpURLConnection.HTTP_NOT_FOUND:
+                return new Result(Status.NOT_FOUND, null, null);
+            default:
+                throw new IOException(String.format("Unexpected response status %1$d for config '%2$s'", status,
+                        name));
+        }
+    }
+
+    /**
+     * Requests changes of configs since the revisions held by the client.
+     *
+     * @param revisions revisions of configs and their ancestors held by the client, empty for configs the client
+     *                  doesn't have
+     * @return updates of changed configs or {@code null} if the server doesn't support delta sync
+     * @throws IOException if updates can't be fetched
+     */
+    List<ConfigUpdate> sync(final Map<String, Map<String, Integer>> revisions) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) baseUri.resolve("sync").toURL().openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setRequestProperty("Content-Type", "application/json");
+        final OutputStream outputStream = connection.getOutputStream();
+        try {
+            objectMapper.writeValue(outputStream, revisions);
+        } finally {
+            outputStream.close();
+        }
+
+        final int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_OK) {
+            final InputStream inputStream = connection.getInputStream();
+            try {
+                return objectMapper.readValue(inputStream, new TypeReference<List<ConfigUpdate>>() {
+                });
+            } finally {
+                inputStream.close();
+            }
+        }
+        final InputStream errorStream = connection.getErrorStream();
+        if (errorStream != null) {
+            errorStream.close();
+        }
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+            return null;
+        }
+        throw new IOException(String.format("Unexpected response status %1$d for sync request", status));
+    }
+
+    enum Status {
+
+        MODIFIED, NOT_MODIFIED, NOT_FOUND
+
+    }
+
+    static final class Result {
+
+        final Status status;
+
+        final ResolvedConfig config;
+
+        final String entityTag;
+
+        Result(final Status status, final ResolvedConfig config, final String entityTag) {
+            this.status = status;
+            this.config = config;
+            this.entityTag = entityTag;
+        }
+
+    }
+
+}
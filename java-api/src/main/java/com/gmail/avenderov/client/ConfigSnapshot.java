@@ -0,0 +1,64 @@
+package com.gmail.avenderov.client;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gmail.avenderov.client.model.ResolvedConfig;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of resolved configs together with entity tags they were served with.
+ *
+ * @author Alexey Venderov
+ */
+public final class ConfigSnapshot {
+
+    static final ConfigSnapshot EMPTY = new ConfigSnapshot(Collections.<String, ResolvedConfig>emptyMap(),
+            Collections.<String, String>emptyMap());
+
+    private final Map<String, ResolvedConfig> configs;
+
+    private final Map<String, String> entityTags;
+
+    @JsonCreator
+    public ConfigSnapshot(@JsonProperty("configs") final Map<String, ResolvedConfig> configs,
+                          @JsonProperty("entityTags") final Map<String, String> entityTags) {
+        if (configs == null || entityTags == null) {
+            throw new IllegalArgumentException("configs and entityTags must not be null");
+        }
+
+        this.configs = Collections.unmodifiableMap(new HashMap<String, ResolvedConfig>(configs));
+        this.entityTags = Collections.unmodifiableMap(new HashMap<String, String>(entityTags));
+    }
+
+    public Map<String, ResolvedConfig> getConfigs() {
+        return configs;
+    }
+
+    public Map<String, String> getEntityTags() {
+        return entityTags;
+    }
+
+    /**
+     * Returns config by its name.
+     *
+     * @param name config name
+     * @return config or {@code null} if there is no such config in the snapshot
+     */
+    public ResolvedConfig getConfig(final String name) {
+        return configs.get(name);
+    }
+
+    /**
+     * Returns entity tag the config was served with.
+     *
+     * @param name config name
+     * @return entity tag or {@code null} if there is no such config in the snapshot
+     */
+    public String getEntityTag(final String name) {
+        return entityTags.get(name);
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.gmail.avenderov.client;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Property parsed as a non-negative duration and kept in milliseconds. Valid values are a number with one of the
+ * {@code ms}, {@code s}, {@code m}, {@code h} or {@code d} suffixes, e.g. {@code 1500ms} or {@code 30s}, a number
+ * without suffix in the unit the property was created with, or an ISO-8601 duration of days, hours, minutes and
+ * seconds as {@code java.time.Duration} prints it, e.g. {@code PT1M30S} or {@code PT0.5S}.
+ *
+ * @author Alexey Venderov
+ */
+public final class DurationProperty extends TypedProperty {
+
+    private static final Pattern SIMPLE = Pattern.compile("(\\d+)\\s*(ms|s|m|h|d)?", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern ISO_8601 = Pattern.compile(
+            "P(?:(\\d+)D)?(?:T(?:(\\d+)H)?(?:(\\d+)M)?(?:(\\d+)(?:[.,](\\d{1,3})\\d*)?S)?)?", Pattern.CASE_INSENSITIVE);
+
+    private final TimeUnit unit;
+
+    private final long defaultMillis;
+
+    private volatile long millis;
+
+    DurationProperty(final String name, final String key, final long defaultValue, final TimeUnit unit) {
+        super(name, key);
+        if (defaultValue < 0) {
+            throw new IllegalArgumentException("defaultValue must not be negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit must not be null");
+        }
+
+        this.unit = unit;
+        this.defaultMillis = unit.toMillis(defaultValue);
+        this.millis = defaultMillis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Returns duration in the given unit, truncated the same way as {@link TimeUnit#convert(long, TimeUnit)} does.
+     */
+    public long get(final TimeUnit unit) {
+        return unit.convert(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    boolean parse(final String text) {
+        return set(parseMillis(text.trim(), unit));
+    }
+
+    @Override
+    boolean reset() {
+        return set(defaultMillis);
+    }
+
+    private boolean set(final long millis) {
+        final boolean changed = millis != this.millis;
+        this.millis = millis;
+        return changed;
+    }
+
+    static long parseMillis(final String text, final TimeUnit unit) {
+        final Matcher simple = SIMPLE.matcher(text);
+        if (simple.matches()) {
+            final long amount = parseAmount(simple.group(1));
+            final String suffix = simple.group(2);
+            if (suffix == null) {
+                return unit.toMillis(amount);
+            }
+            switch (Character.toLowerCase(suffix.charAt(suffix.length() - 1))) {
+                case 's':
+                    return suffix.length() == 2 ? amount : TimeUnit.SECONDS.toMillis(amount);
+                case 'm':
+                    return TimeUnit.MINUTES.toMillis(amount);
+                case 'h':
+                    return TimeUnit.HOURS.toMillis(amount);
+                default:
+                    return TimeUnit.DAYS.toMillis(amount);
+            }
+        }
+
+        final Matcher iso = ISO_8601.matcher(text);
+        // Bare "P" and "PT" are not durations
+        final String upperCase = text.toUpperCase(Locale.ROOT);
+        if (iso.matches() && !upperCase.endsWith("P") && !upperCase.endsWith("T")) {
+            long result = TimeUnit.DAYS.toMillis(parseAmount(iso.group(1)))
+                    + TimeUnit.HOURS.toMillis(parseAmount(iso.group(2)))
+                    + TimeUnit.MINUTES.toMillis(parseAmount(iso.group(3)))
+                    + TimeUnit.SECONDS.toMillis(parseAmount(iso.group(4)));
+            if (iso.group(5) != null) {
+                final String fraction = (iso.group(5) + "00").substring(0, 3);
+                result += Long.parseLong(fraction);
+            }
+            return result;
+        }
+
+        throw new IllegalArgumentException("value must be a duration like 30s or PT30S");
+    }
+
+    private static long parseAmount(final String amount) {
+        // NumberFormatException on overflow is an IllegalArgumentException
+        return amount != null ? Long.parseLong(amount) : 0L;
+    }
+
+}
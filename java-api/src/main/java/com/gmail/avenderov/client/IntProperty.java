@@ -0,0 +1,41 @@
+package com.gmail.avenderov.client;
+
+/**
+ * Property parsed as a decimal {@code int}.
+ *
+ * @author Alexey Venderov
+ */
+public final class IntProperty extends TypedProperty {
+
+    private final int defaultValue;
+
+    private volatile int value;
+
+    IntProperty(final String name, final String key, final int defaultValue) {
+        super(name, key);
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    public int get() {
+        return value;
+    }
+
+    @Override
+    boolean parse(final String text) {
+        // NumberFormatException is an IllegalArgumentException
+        return set(Integer.parseInt(text.trim()));
+    }
+
+    @Override
+    boolean reset() {
+        return set(defaultValue);
+    }
+
+    private boolean set(final int value) {
+        final boolean changed = value != this.value;
+        this.value = value;
+        return changed;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.gmail.avenderov.client;
+
+/**
+ * Property parsed as a decimal {@code long}.
+ *
+ * @author Alexey Venderov
+ */
+public final class LongProperty extends TypedProperty {
+
+    private final long defaultValue;
+
+    private volatile long value;
+
+    LongProperty(final String name, final String key, final long defaultValue) {
+        super(name, key);
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    @Override
+    boolean parse(final String text) {
+        // NumberFormatException is an IllegalArgumentException
+        return set(Long.parseLong(text.trim()));
+    }
+
+    @Override
+    boolean reset() {
+        return set(defaultValue);
+    }
+
+    private boolean set(final long value) {
+        final boolean changed = value != this.value;
+        this.value = value;
+        return changed;
+    }
+
+}
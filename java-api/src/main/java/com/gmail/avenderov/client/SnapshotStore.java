@@ -0,0 +1,75 @@
+package com.gmail.avenderov.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Keeps the last good snapshot on local disk. Snapshot is written into a temporary file first and then renamed, so
+ * a crash during save never leaves a partially written snapshot behind.
+ *
+ * @author Alexey Venderov
+ */
+public class SnapshotStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private final File file;
+
+    private final ObjectMapper objectMapper;
+
+    public SnapshotStore(final File file, final ObjectMapper objectMapper) {
+        if (file == null || objectMapper == null) {
+            throw new IllegalArgumentException("file and objectMapper must not be null");
+        }
+
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Loads snapshot from disk.
+     *
+     * @return saved snapshot or {@code null} if there is no saved snapshot or it can't be read
+     */
+    public ConfigSnapshot load() {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(file, ConfigSnapshot.class);
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to load config snapshot from '{}'", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves snapshot to disk replacing previously saved one.
+     *
+     * @param snapshot snapshot to save
+     * @throws IOException if snapshot can't be written
+     */
+    public void save(final ConfigSnapshot snapshot) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory " + directory);
+        }
+        final File temporaryFile = new File(directory, file.getName() + ".tmp");
+        objectMapper.writeValue(temporaryFile, snapshot);
+        if (!temporaryFile.renameTo(file)) {
+            // Rename doesn't replace existing file on some platforms
+            if (!file.delete() || !temporaryFile.renameTo(file)) {
+                throw new IOException("Failed to replace config snapshot " + file);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.gmail.avenderov.client;
+
+import com.gmail.avenderov.client.model.ResolvedConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Property of a subscribed config bound to its config name and key, that keeps its value already parsed. Value is
+ * parsed and validated only when the config is replaced by another revision and the property text has changed, so
+ * reads return a field without parsing or allocation. Property that is missing takes its default value, invalid text
+ * is logged and ignored, so the last valid value stays.
+ * <p/>
+ * Instances are created by {@link BanjoClient} and updated by its refresh thread.
+ *
+ * @author Alexey Venderov
+ */
+public abstract class TypedProperty {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TypedProperty.class);
+
+    /**
+     * Listener of changes of the parsed value.
+     */
+    public interface Listener {
+
+        /**
+         * Called by the refresh thread when the parsed value of the property has changed.
+         *
+         * @param property property with the new value
+         */
+        void onChange(TypedProperty property);
+
+    }
+
+    private final String name;
+
+    private final String key;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    // Guarded by this, config and text the value was last updated from
+    private ResolvedConfig config;
+
+    private String text;
+
+    TypedProperty(final String name, final String key) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+
+        this.name = name;
+        this.key = key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void addListener(final Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Parses the text and stores parsed value.
+     *
+     * @param text property text
+     * @return whether stored value has changed
+     * @throws IllegalArgumentException if text is not a valid value
+     */
+    abstract boolean parse(String text);
+
+    /**
+     * Stores default value.
+     *
+     * @return whether stored value has changed
+     */
+    abstract boolean reset();
+
+    /**
+     * Updates value from the config of the new snapshot.
+     *
+     * @param config config or {@code null} if there is no such config in the snapshot
+     */
+    final void update(final ResolvedConfig config) {
+        final boolean changed;
+        synchronized (this) {
+            // Configs that haven't changed are kept by the snapshot as they are
+            if (config == this.config) {
+                return;
+            }
+            this.config = config;
+            final String text = config != null ? config.getProperties().get(key) : null;
+            if (text == null ? this.text == null : text.equals(this.text)) {
+                return;
+            }
+            this.text = text;
+            if (text == null) {
+                changed = reset();
+            } else {
+                try {
+                    changed = parse(text);
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.warn("Invalid value '{}' of property '{}' of config '{}' is ignored: {}",
+                            text, key, name, e.getMessage());
+                    return;
+                }
+            }
+        }
+
+        if (changed) {
+            for (final Listener listener : listeners) {
+                try {
+                    listener.onChange(this);
+                } catch (final RuntimeException e) {
+                    LOGGER.error("Listener of property '{}' of config '{}' failed", key, name, e);
+                }
+            }
+        }
+    }
+
+}
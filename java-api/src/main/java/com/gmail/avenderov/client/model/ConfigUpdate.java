@@ -0,0 +1,161 @@
+package com.gmail.avenderov.client.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Change that brings a resolved config held by the client to its current state, as it is returned by the sync
+ * endpoint of the REST API. Delta contains only properties that were added, changed or removed since the revisions
+ * the client holds, snapshot contains all properties.
+ *
+ * @author Alexey Venderov
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConfigUpdate {
+
+    public enum Type {
+
+        SNAPSHOT, DELTA, REMOVED
+
+    }
+
+    private final String name;
+
+    private final Type type;
+
+    private final Map<String, Integer> revisions;
+
+    private final String entityTag;
+
+    private final Map<String, String> properties;
+
+    private final Map<String, String> set;
+
+    private final Set<String> unset;
+
+    @JsonCreator
+    public ConfigUpdate(@JsonProperty("name") final String name,
+                        @JsonProperty("type") final Type type,
+                        @JsonProperty("revisions") final Map<String, Integer> revisions,
+                        @JsonProperty("entityTag") final String entityTag,
+                        @JsonProperty("properties") final Map<String, String> properties,
+                        @JsonProperty("set") final Map<String, String> set,
+                        @JsonProperty("unset") final Collection<String> unset) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("type must not be null");
+        }
+        if (type != Type.REMOVED && (revisions == null || !revisions.containsKey(name))) {
+            throw new IllegalArgumentException("revisions must contain revision of the config itself");
+        }
+        if (type == Type.SNAPSHOT && properties == null) {
+            throw new IllegalArgumentException("properties of snapshot must not be null");
+        }
+        if (type == Type.DELTA && (set == null || unset == null)) {
+            throw new IllegalArgumentException("set and unset of delta must not be null");
+        }
+
+        this.name = name;
+        this.type = type;
+        this.revisions = type != Type.REMOVED ?
+                Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(revisions)) : null;
+        this.entityTag = type != Type.REMOVED ? entityTag : null;
+        this.properties = type == Type.SNAPSHOT ?
+                Collections.unmodifiableMap(new LinkedHashMap<String, String>(properties)) : null;
+        this.set = type == Type.DELTA ? Collections.unmodifiableMap(new LinkedHashMap<String, String>(set)) : null;
+        this.unset = type == Type.DELTA ? Collections.unmodifiableSet(new LinkedHashSet<String>(unset)) : null;
+    }
+
+    public static ConfigUpdate snapshot(final String name, final Map<String, Integer> revisions,
+                                        final String entityTag, final Map<String, String> properties) {
+        return new ConfigUpdate(name, Type.SNAPSHOT, revisions, entityTag, properties, null, null);
+    }
+
+    public static ConfigUpdate delta(final String name, final Map<String, Integer> revisions, final String entityTag,
+                                     final Map<String, String> set, final Collection<String> unset) {
+        return new ConfigUpdate(name, Type.DELTA, revisions, entityTag, null, set, unset);
+    }
+
+    public static ConfigUpdate removed(final String name) {
+        return new ConfigUpdate(name, Type.REMOVED, null, null, null, null, null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns current revisions of the config and its ancestors, {@code null} if config was removed.
+     */
+    public Map<String, Integer> getRevisions() {
+        return revisions;
+    }
+
+    /**
+     * Returns entity tag the config would be served with by the properties endpoint, if the server provided it.
+     */
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * Returns all properties of the config, {@code null} unless this update is a snapshot.
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns properties to add or replace, {@code null} unless this update is a delta.
+     */
+    public Map<String, String> getSet() {
+        return set;
+    }
+
+    /**
+     * Returns keys of properties to remove, {@code null} unless this update is a delta.
+     */
+    public Set<String> getUnset() {
+        return unset;
+    }
+
+    /**
+     * Applies update to the config held by the client.
+     *
+     * @param config held config, {@code null} if client doesn't have it
+     * @return updated config or {@code null} if config was removed
+     * @throws IllegalArgumentException if this update is a delta and there is no config it can be applied to
+     */
+    public ResolvedConfig applyTo(final ResolvedConfig config) {
+        switch (type) {
+            case SNAPSHOT:
+                return new ResolvedConfig(name, revisions, properties);
+            case DELTA:
+                if (config == null || !name.equals(config.getName())) {
+                    throw new IllegalArgumentException(String.format("Delta of '%1$s' config can only be applied " +
+                            "to the previous revision of the same config", name));
+                }
+                final Map<String, String> updated = new LinkedHashMap<String, String>(config.getProperties());
+                updated.keySet().removeAll(unset);
+                updated.putAll(set);
+                return new ResolvedConfig(name, revisions, updated);
+            default:
+                return null;
+        }
+    }
+
+}
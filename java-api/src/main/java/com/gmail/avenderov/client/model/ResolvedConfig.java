@@ -0,0 +1,57 @@
+package com.gmail.avenderov.client.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Config with properties of all its ancestors merged in, as it is returned by the REST API.
+ *
+ * @author Alexey Venderov
+ */
+public class ResolvedConfig {
+
+    private final String name;
+
+    private final Map<String, Integer> revisions;
+
+    private final Map<String, String> properties;
+
+    @JsonCreator
+    public ResolvedConfig(@JsonProperty("name") final String name,
+                          @JsonProperty("revisions") final Map<String, Integer> revisions,
+                          @JsonProperty("properties") final Map<String, String> properties) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        if (revisions == null || !revisions.containsKey(name)) {
+            throw new IllegalArgumentException("revisions must contain revision of the config itself");
+        }
+        if (properties == null) {
+            throw new IllegalArgumentException("properties must not be null");
+        }
+
+        this.name = name;
+        this.revisions = Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(revisions));
+        this.properties = Collections.unmodifiableMap(new LinkedHashMap<String, String>(properties));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns revisions of the config and its ancestors that properties were resolved from.
+     */
+    public Map<String, Integer> getRevisions() {
+        return revisions;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.gmail.avenderov.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class BanjoClientTest {
+
+    private static final String ENTITY_TAG = "\"abc\"";
+
+    private static final String BODY =
+            "{\"name\":\"test\",\"revisions\":{\"test\":1},\"properties\":{\"key1\":\"value1\"}}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    private final AtomicInteger fullResponses = new AtomicInteger();
+
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/properties/", new HttpHandler() {
+
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                if (!exchange.getRequestURI().getPath().equals("/properties/test")) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if (ENTITY_TAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModifiedResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    fullResponses.incrementAndGet();
+                    final byte[] body = BODY.getBytes("UTF-8");
+                    exchange.getResponseHeaders().set("ETag", ENTITY_TAG);
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    final OutputStream outputStream = exchange.getResponseBody();
+                    outputStream.write(body);
+                    outputStream.close();
+                }
+                exchange.close();
+            }
+
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRefreshUsesConditionalRequests() {
+        final BanjoClient client = newClient(new File(temporaryFolder.getRoot(), "snapshot.json"));
+
+        client.refresh();
+        assertThat("Property was not fetched", client.getProperty("test", "key1"), is("value1"));
+        assertThat("Missing config should be unknown", client.getConfig("missing"), is(nullValue()));
+
+        client.refresh();
+        assertThat("Wrong number of full responses", fullResponses.get(), is(1));
+        assertThat("Wrong number of not modified responses", notModifiedResponses.get(), is(1));
+        assertThat("Property should be kept", client.getProperty("test", "key1"), is("value1"));
+    }
+
+    @Test
+    public void testRefreshAppliesDeltas() {
+        final AtomicInteger syncRequests = new AtomicInteger();
+        server.createContext("/sync", new HttpHandler() {
+
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String body = syncRequests.incrementAndGet() == 1 ?
+                        "[{\"name\":\"test\",\"type\":\"SNAPSHOT\",\"revisions\":{\"test\":1}," +
+                                "\"entityTag\":\"\\\"abc\\\"\",\"properties\":{\"key1\":\"value1\"," +
+                                "\"key2\":\"value2\"}}]" :
+                        "[{\"name\":\"test\",\"type\":\"DELTA\",\"revisions\":{\"test\":2}," +
+                                "\"set\":{\"key3\":\"value3\"},\"unset\":[\"key2\"]}]";
+                final byte[] bytes = body.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                final OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(bytes);
+                outputStream.close();
+                exchange.close();
+            }
+
+        });
+        final BanjoClient client = newClient(new File(temporaryFolder.getRoot(), "snapshot.json"));
+
+        client.refresh();
+        assertThat("Property was not synced", client.getProperty("test", "key2"), is("value2"));
+        assertThat("Wrong entity tag", client.getSnapshot().getEntityTag("test"), is(ENTITY_TAG));
+
+        client.refresh();
+        assertThat("Wrong number of sync requests", syncRequests.get(), is(2));
+        assertThat("Property should be kept", client.getProperty("test", "key1"), is("value1"));
+        assertThat("Property should be removed", client.getProperty("test", "key2"), is(nullValue()));
+        assertThat("Property should be added", client.getProperty("test", "key3"), is("value3"));
+        assertThat("Wrong revisions", client.getConfig("test").getRevisions().get("test"), is(2));
+        assertThat("Configs should not be polled one by one", fullResponses.get() + notModifiedResponses.get(),
+                is(0));
+    }
+
+    @Test
+    public void testSnapshotIsLoadedFromDiskWhenServiceIsDown() {
+        final File snapshotFile = new File(temporaryFolder.getRoot(), "snapshot.json");
+        newClient(snapshotFile).refresh();
+        server.stop(0);
+
+        final BanjoClient client = newClient(snapshotFile);
+        try {
+            client.start();
+            assertThat("Property should be loaded from disk", client.getProperty("test", "key1"), is("value1"));
+            client.refresh();
+            assertThat("Property should survive failed refresh", client.getProperty("test", "key1"),
+                    is("value1"));
+        } finally {
+            client.close();
+        }
+    }
+
+    private BanjoClient newClient(final File snapshotFile) {
+        return BanjoClient.builder(URI.create("http://localhost:" + server.getAddress().getPort()))
+                .subscribe("test", "missing").snapshotFile(snapshotFile)
+                .refreshInterval(1, TimeUnit.HOURS).timeout(1, TimeUnit.SECONDS).build();
+    }
+
+}
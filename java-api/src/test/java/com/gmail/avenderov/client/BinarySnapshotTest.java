@@ -0,0 +1,83 @@
+package com.gmail.avenderov.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class BinarySnapshotTest {
+
+    private static final String CYRILLIC_KEY = "\u043a\u043b\u044e\u0447";
+
+    private static final String CYRILLIC_VALUE = "\u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final Map<String, String> properties = new LinkedHashMap<String, String>();
+        properties.put("key2", "value");
+        properties.put(CYRILLIC_KEY, CYRILLIC_VALUE);
+        properties.put("key1", "value");
+        final File file = new File(temporaryFolder.getRoot(), "snapshot.bin");
+        new BinarySnapshotWriter().add("config2", 3, properties).add("config1", 1, Collections.singletonMap("key1",
+                "value")).add("empty", 1, Collections.<String, String>emptyMap()).write(file);
+
+        final BinarySnapshot snapshot = BinarySnapshot.open(file);
+        assertThat("Wrong number of configs", snapshot.size(), is(3));
+        assertThat("Wrong revision", snapshot.getRevision("config2"), is(3));
+        assertThat("Wrong property", snapshot.getProperty("config2", CYRILLIC_KEY), is(CYRILLIC_VALUE));
+        assertThat("Wrong property", snapshot.getProperty("config1", "key1"), is("value"));
+        assertThat("Properties should be sorted by key", snapshot.getProperties("config2").keySet(),
+                contains("key1", "key2", CYRILLIC_KEY));
+        assertThat("Empty config should be found", snapshot.getProperties("empty").entrySet(), hasSize(0));
+        assertThat("Missing property should not be found", snapshot.getProperty("config1", "key2"),
+                is(nullValue()));
+        assertThat("Missing config should not be found", snapshot.containsConfig("config3"), is(false));
+        assertThat("Missing config should not be found", snapshot.getRevision("config3"), is(nullValue()));
+    }
+
+    @Test
+    public void testEqualStringsAreStoredOnce() throws IOException {
+        final File file = new File(temporaryFolder.getRoot(), "snapshot.bin");
+        final BinarySnapshotWriter writer = new BinarySnapshotWriter();
+        for (int i = 0; i < 100; i++) {
+            writer.add("config" + i, 1, Collections.singletonMap("key",
+                    "some rather long shared value"));
+        }
+        writer.write(file);
+
+        // Header, index, properties, unique names and two shared strings
+        assertThat("Shared strings should not be duplicated", file.length(),
+                lessThan(16L + 100 * 16 + 100 * 8 + 100 * 12 + 64));
+        assertThat("Wrong property", BinarySnapshot.open(file).getProperty("config42", "key"),
+                is("some rather long shared value"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFileIsRejected() throws IOException {
+        final File file = temporaryFolder.newFile("snapshot.bin");
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write("not a snapshot at all".getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+
+        BinarySnapshot.open(file);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.gmail.avenderov.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmail.avenderov.client.model.ResolvedConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class SnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        final SnapshotStore snapshotStore = new SnapshotStore(new File(temporaryFolder.getRoot(), "snapshot.json"),
+                new ObjectMapper());
+        assertThat("Missing snapshot should not be loaded", snapshotStore.load(), is(nullValue()));
+
+        final ResolvedConfig config = new ResolvedConfig("test", Collections.singletonMap("test", 1),
+                Collections.singletonMap("key1", "value1"));
+        snapshotStore.save(new ConfigSnapshot(Collections.singletonMap("test", config),
+                Collections.singletonMap("test", "\"abc\"")));
+        snapshotStore.save(new ConfigSnapshot(Collections.singletonMap("test", config),
+                Collections.singletonMap("test", "\"def\"")));
+
+        final ConfigSnapshot loaded = snapshotStore.load();
+        assertThat("Snapshot was not loaded", loaded, is(notNullValue()));
+        assertThat("Wrong property", loaded.getConfig("test").getProperties(), hasEntry("key1", "value1"));
+        assertThat("Wrong entity tag", loaded.getEntityTag("test"), is("\"def\""));
+    }
+
+    @Test
+    public void testCorruptedSnapshotIsIgnored() throws IOException {
+        final File file = temporaryFolder.newFile("snapshot.json");
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write("{\"configs\":".getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+
+        assertThat("Corrupted snapshot should not be loaded",
+                new SnapshotStore(file, new ObjectMapper()).load(), is(nullValue()));
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.gmail.avenderov.client;
+
+import com.gmail.avenderov.client.model.ResolvedConfig;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class TypedPropertyTest {
+
+    @Test
+    public void testValueFollowsConfig() {
+        final IntProperty property = new IntProperty("test", "key", 10);
+        assertThat("Default value should be used for unknown config", property.get(), is(10));
+
+        property.update(config(1, "20"));
+        assertThat("Value was not parsed", property.get(), is(20));
+
+        property.update(config(2, "invalid"));
+        assertThat("Invalid value should be ignored", property.get(), is(20));
+
+        property.update(new ResolvedConfig("test", Collections.singletonMap("test", 3),
+                Collections.<String, String>emptyMap()));
+        assertThat("Default value should be used for missing property", property.get(), is(10));
+    }
+
+    @Test
+    public void testListenersAreNotifiedOfChangedValuesOnly() {
+        final BooleanProperty property = new BooleanProperty("test", "key", false);
+        final AtomicInteger changes = new AtomicInteger();
+        property.addListener(new TypedProperty.Listener() {
+
+            @Override
+            public void onChange(final TypedProperty changed) {
+                changes.incrementAndGet();
+            }
+
+        });
+
+        property.update(config(1, "true"));
+        property.update(config(2, "TRUE"));
+        property.update(config(3, "yes"));
+        assertThat("Wrong number of changes", changes.get(), is(1));
+        assertThat("Wrong value", property.get(), is(true));
+
+        property.update(null);
+        assertThat("Wrong number of changes", changes.get(), is(2));
+        assertThat("Default value should be used for removed config", property.get(), is(false));
+    }
+
+    @Test
+    public void testDurationFormats() {
+        assertThat("Wrong milliseconds", DurationProperty.parseMillis("1500ms", TimeUnit.SECONDS), is(1500L));
+        assertThat("Wrong seconds", DurationProperty.parseMillis("30s", TimeUnit.SECONDS), is(30000L));
+        assertThat("Wrong minutes", DurationProperty.parseMillis("2m", TimeUnit.SECONDS), is(120000L));
+        assertThat("Wrong hours", DurationProperty.parseMillis("1H", TimeUnit.SECONDS), is(3600000L));
+        assertThat("Wrong default unit", DurationProperty.parseMillis("5", TimeUnit.SECONDS), is(5000L));
+        assertThat("Wrong ISO-8601 duration", DurationProperty.parseMillis("PT1M30S", TimeUnit.SECONDS),
+                is(90000L));
+        assertThat("Wrong ISO-8601 fraction", DurationProperty.parseMillis("PT0.25S", TimeUnit.SECONDS), is(250L));
+        assertThat("Wrong ISO-8601 days", DurationProperty.parseMillis("P1D", TimeUnit.SECONDS), is(86400000L));
+
+        for (final String invalid : new String[]{"", "-5s", "5 weeks", "PT", "P", "PT1.5M"}) {
+            try {
+                DurationProperty.parseMillis(invalid, TimeUnit.SECONDS);
+                throw new AssertionError("Invalid duration '" + invalid + "' was parsed");
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        final DurationProperty property = new DurationProperty("test", "key", 1, TimeUnit.MINUTES);
+        assertThat("Wrong default value", property.getMillis(), is(60000L));
+        property.update(config(1, "90s"));
+        assertThat("Wrong value in seconds", property.get(TimeUnit.SECONDS), is(90L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPropertyOfUnsubscribedConfigIsRejected() {
+        BanjoClient.builder(URI.create("http://localhost/")).subscribe("test").build()
+                .longProperty("other", "key", 1L);
+    }
+
+    private static ResolvedConfig config(final int revision, final String value) {
+        return new ResolvedConfig("test", Collections.singletonMap("test", revision),
+                Collections.singletonMap("key", value));
+    }
+
+}
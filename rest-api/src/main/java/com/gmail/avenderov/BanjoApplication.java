@@ -0,0 +1,84 @@
+package com.gmail.avenderov;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.gmail.avenderov.api.repository.AsyncEffectiveConfigRepository;
+import com.gmail.avenderov.api.repository.AsyncPropertyConfigRepository;
+import com.gmail.avenderov.api.repository.BlobConfigRepository;
+import com.gmail.avenderov.async.AdmissionController;
+import com.gmail.avenderov.cache.CacheWarmer;
+import com.gmail.avenderov.cache.CachingPropertyConfigRepository;
+import com.gmail.avenderov.metrics.RequestMetricsFilter;
+import com.gmail.avenderov.mongo.export.PropertyConfigExporter;
+import com.gmail.avenderov.mongo.export.PropertyConfigImporter;
+import com.gmail.avenderov.resources.CompressionFeature;
+import com.gmail.avenderov.resources.Properties;
+import com.gmail.avenderov.sync.ConfigSynchronizer;
+import com.gmail.avenderov.watch.WatchRegistry;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * Jersey application that exposes beans of the Spring context to the resources.
+ *
+ * @author Alexey Venderov
+ */
+public class BanjoApplication extends ResourceConfig {
+
+    private static final String CONTEXT_LOCATION = "META-INF/spring/rest-api-context.xml";
+
+    public BanjoApplication() {
+        final ConfigurableApplicationContext applicationContext = new ClassPathXmlApplicationContext(CONTEXT_LOCATION);
+
+        packages(Properties.class.getPackage().getName());
+        register(JacksonJsonProvider.class);
+        // Responses are compressed when client accepts it
+        register(CompressionFeature.class);
+        register(new RequestMetricsFilter(applicationContext.getBean(MetricRegistry.class)));
+        register(new AbstractBinder() {
+
+            @Override
+            protected void configure() {
+                bind(applicationContext.getBean(AsyncPropertyConfigRepository.class))
+                        .to(AsyncPropertyConfigRepository.class);
+                bind(applicationContext.getBean(AsyncEffectiveConfigRepository.class))
+                        .to(AsyncEffectiveConfigRepository.class);
+                bind(applicationContext.getBean(WatchRegistry.class)).to(WatchRegistry.class);
+                bind(applicationContext.getBean(MetricRegistry.class)).to(MetricRegistry.class);
+                bind(applicationContext.getBean(PropertyConfigExporter.class)).to(PropertyConfigExporter.class);
+                bind(applicationContext.getBean(PropertyConfigImporter.class)).to(PropertyConfigImporter.class);
+                bind(applicationContext.getBean(ConfigSynchronizer.class)).to(ConfigSynchronizer.class);
+                bind(applicationContext.getBean(CacheWarmer.class)).to(CacheWarmer.class);
+                bind(applicationContext.getBean(AdmissionController.class)).to(AdmissionController.class);
+                bind(applicationContext.getBean("repositoryExecutor", ListeningExecutorService.class))
+                        .to(ListeningExecutorService.class);
+                bind(applicationContext.getBean("propertyConfigRepository", CachingPropertyConfigRepository.class))
+                        .to(CachingPropertyConfigRepository.class);
+                bind(applicationContext.getBean(BlobConfigRepository.class)).to(BlobConfigRepository.class);
+            }
+
+        });
+        register(new ContainerLifecycleListener() {
+
+            @Override
+            public void onStartup(final Container container) {
+            }
+
+            @Override
+            public void onReload(final Container container) {
+            }
+
+            @Override
+            public void onShutdown(final Container container) {
+                applicationContext.close();
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.gmail.avenderov.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.gmail.avenderov.metrics.Metrics.OperationMetrics;
+import com.google.common.io.CountingOutputStream;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records latency, number of requests and number of server errors per resource method, e.g.
+ * {@code com.gmail.avenderov.resources.Properties.getConfig}. Requests that didn't match any resource method are
+ * recorded as {@code com.gmail.avenderov.resources.unmatched}. Latency of suspended requests covers the whole time
+ * until they are resumed. Size of response entities before compression is recorded as {@code responseSize}
+ * histogram of the method, e.g. {@code com.gmail.avenderov.resources.Properties.getConfig.responseSize}.
+ *
+ * @author Alexey Venderov
+ */
+@PreMatching
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String START_PROPERTY = RequestMetricsFilter.class.getName() + ".start";
+
+    private static final String METRICS_PROPERTY = RequestMetricsFilter.class.getName() + ".metrics";
+
+    private final MetricRegistry registry;
+
+    private final ConcurrentMap<Method, MethodMetrics> methodMetrics = new ConcurrentHashMap<Method, MethodMetrics>();
+
+    private final MethodMetrics unmatchedMetrics;
+
+    public RequestMetricsFilter(final MetricRegistry registry) {
+        checkNotNull(registry, "registry must not be null");
+        this.registry = registry;
+        this.unmatchedMetrics = new MethodMetrics(registry, "com.gmail.avenderov.resources.unmatched");
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+        final Long start = (Long) requestContext.getProperty(START_PROPERTY);
+        if (start == null) {
+            return;
+        }
+        final ResourceMethod resourceMethod =
+                ((ExtendedUriInfo) requestContext.getUriInfo()).getMatchedResourceMethod();
+        final MethodMetrics metrics = resourceMethod != null ?
+                getMetrics(resourceMethod.getInvocable().getHandlingMethod()) : unmatchedMetrics;
+        metrics.requests.update(start,
+                responseContext.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR);
+        if (responseContext.hasEntity()) {
+            requestContext.setProperty(METRICS_PROPERTY, metrics);
+        }
+    }
+
+    /**
+     * Counts bytes of the entity as it is written. Interceptor runs after the encoders, that have higher priority,
+     * so the size is not affected by compression.
+     */
+    @Override
+    public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+        final MethodMetrics metrics = (MethodMetrics) context.getProperty(METRICS_PROPERTY);
+        if (metrics == null) {
+            context.proceed();
+            return;
+        }
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(context.getOutputStream());
+        context.setOutputStream(countingOutputStream);
+        try {
+            context.proceed();
+        } finally {
+            metrics.responseSize.update(countingOutputStream.getCount());
+        }
+    }
+
+    private MethodMetrics getMetrics(final Method method) {
+        final MethodMetrics metrics = methodMetrics.get(method);
+        if (metrics != null) {
+            return metrics;
+        }
+        final MethodMetrics newMetrics = new MethodMetrics(registry,
+                MetricRegistry.name(method.getDeclaringClass(), method.getName()));
+        final MethodMetrics existingMetrics = methodMetrics.putIfAbsent(method, newMetrics);
+
+        return existingMetrics != null ? existingMetrics : newMetrics;
+    }
+
+    private static final class MethodMetrics {
+
+        private final OperationMetrics requests;
+
+        private final Histogram responseSize;
+
+        private MethodMetrics(final MetricRegistry registry, final String name) {
+            this.requests = new OperationMetrics(registry, name);
+            this.responseSize = Metrics.histogram(registry, MetricRegistry.name(name, "responseSize"));
+        }
+
+    }
+
+}
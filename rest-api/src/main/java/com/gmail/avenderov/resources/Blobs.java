@@ -0,0 +1,191 @@
+package com.gmail.avenderov.resources;
+
+import com.gmail.avenderov.api.Config;
+import com.gmail.avenderov.api.repository.BlobConfigRepository;
+import com.gmail.avenderov.mongo.data.BlobConfig;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Configs with large text or binary content. Content is streamed from the database as it is sent, responses carry
+ * {@code Content-Length} and single byte ranges are supported. Clients that accept gzip encoding get the content as
+ * it is stored, without decompression. Responses are not compressed by {@link CompressionFeature}, which would break
+ * {@code Content-Length} and ranges, so {@code Vary} header is set here. Content of a replaced revision is removed
+ * right away, so a response that is being sent when the config is replaced is cut short. Client that retries gets
+ * the new tag and, with {@code If-Range}, the whole new content rather than a range of it.
+ *
+ * @author Alexey Venderov
+ */
+@Path("blobs")
+@OwnContentEncoding
+public class Blobs {
+
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    private static final String IF_RANGE = "If-Range";
+
+    private static final String RANGE = "Range";
+
+    private static final String GZIP = "gzip";
+
+    private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
+    private final BlobConfigRepository blobConfigRepository;
+
+    @Inject
+    public Blobs(final BlobConfigRepository blobConfigRepository) {
+        checkNotNull(blobConfigRepository, "blobConfigRepository must not be null");
+        this.blobConfigRepository = blobConfigRepository;
+    }
+
+    @PUT
+    @Path("/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response putBlob(@PathParam("name") final String name, @Context final HttpHeaders headers,
+                            final InputStream content) throws IOException {
+        final MediaType mediaType = headers.getMediaType();
+        final Config.Type type = mediaType != null && "text".equals(mediaType.getType()) ?
+                Config.Type.LARGE_TEXT : Config.Type.BINARY;
+        final BlobConfig blobConfig;
+        try {
+            blobConfig = blobConfigRepository.save(name, type, content);
+        } catch (final IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+
+        final Map<String, Object> metadata = ImmutableMap.<String, Object>builder()
+                .put("name", blobConfig.getName())
+                .put("revision", blobConfig.getRevision())
+                .put("type", blobConfig.getConfigType().name())
+                .put("length", blobConfig.getLength())
+                .put("compressedLength", blobConfig.getCompressedLength())
+                .build();
+
+        return Response.ok(metadata).tag(entityTag(blobConfig, false)).build();
+    }
+
+    @GET
+    @Path("/{name}")
+    public Response getBlob(@PathParam("name") final String name, @HeaderParam(RANGE) final String range,
+                            @HeaderParam(IF_RANGE) final String ifRange,
+                            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding,
+                            @Context final Request request) {
+        final Optional<BlobConfig> optionalBlobConfig = blobConfigRepository.findConfig(name);
+        if (!optionalBlobConfig.isPresent()) {
+            throw new NotFoundException(format("Config '%1$s' doesn't exist", name));
+        }
+        final BlobConfig blobConfig = optionalBlobConfig.get();
+
+        // Ranges refer to the content as it is, so compressed content is sent only for full requests
+        final boolean compressed = range == null && acceptsGzip(acceptEncoding);
+        final EntityTag entityTag = entityTag(blobConfig, compressed);
+        final Response.ResponseBuilder notModified =
+                request.evaluatePreconditions(blobConfig.getLastModifiedAt(), entityTag);
+        if (notModified != null) {
+            return notModified.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+
+        final Response.ResponseBuilder builder;
+        if (compressed) {
+            builder = content(blobConfig.getCompressedContent(), blobConfig.getCompressedLength())
+                    .header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        } else {
+            // Whole content is sent if it has changed since the client got the beginning of it
+            final Optional<ByteRange> byteRange = ifRange == null || ifRange.equals(entityTag.toString()) ?
+                    ByteRange.parse(range, blobConfig.getLength()) : Optional.<ByteRange>absent();
+            if (!byteRange.isPresent()) {
+                builder = content(blobConfig.getContent(), blobConfig.getLength());
+            } else if (!byteRange.get().isSatisfiable()) {
+                return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(CONTENT_RANGE, byteRange.get().toContentRange()).build();
+            } else {
+                builder = content(blobConfig.getContent().slice(byteRange.get().getFirst(),
+                        byteRange.get().getLength()), byteRange.get().getLength())
+                        .status(Response.Status.PARTIAL_CONTENT)
+                        .header(CONTENT_RANGE, byteRange.get().toContentRange());
+            }
+        }
+
+        // Representation depends on Accept-Encoding whether it is compressed or not
+        return builder.type(blobConfig.getConfigType().getDescription()).tag(entityTag)
+                .lastModified(blobConfig.getLastModifiedAt()).header(ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    }
+
+    @DELETE
+    @Path("/{name}")
+    public Response deleteBlob(@PathParam("name") final String name) {
+        if (!blobConfigRepository.remove(name)) {
+            throw new NotFoundException(format("Config '%1$s' doesn't exist", name));
+        }
+
+        return Response.noContent().build();
+    }
+
+    private static Response.ResponseBuilder content(final ByteSource content, final long length) {
+        return Response.ok(new StreamingOutput() {
+
+            @Override
+            public void write(final OutputStream outputStream) throws IOException {
+                content.copyTo(outputStream);
+            }
+
+        }).header(HttpHeaders.CONTENT_LENGTH, length);
+    }
+
+    /**
+     * Tag depends on the content, so configs that were saved again with the same content keep their tags. Compressed
+     * representation is tagged apart from the plain one.
+     */
+    private static EntityTag entityTag(final BlobConfig blobConfig, final boolean compressed) {
+        final EntityTag entityTag = new EntityTag(blobConfig.getMd5());
+
+        return compressed ? EntityTags.forEncoding(entityTag, GZIP) : entityTag;
+    }
+
+    private static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (final String coding : Splitter.on(',').trimResults().omitEmptyStrings().split(acceptEncoding)) {
+            final int parameters = coding.indexOf(';');
+            final String name = parameters < 0 ? coding : coding.substring(0, parameters).trim();
+            if (GZIP.equalsIgnoreCase(name)) {
+                // Coding with zero quality is not acceptable
+                return parameters < 0 || !coding.substring(parameters + 1).replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+
+        return false;
+    }
+
+}
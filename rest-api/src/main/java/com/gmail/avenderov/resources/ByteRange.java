@@ -0,0 +1,108 @@
+package com.gmail.avenderov.resources;
+
+import com.google.common.base.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Single byte range of a {@code Range} request header.
+ *
+ * @author Alexey Venderov
+ */
+public final class ByteRange {
+
+    private static final String UNIT = "bytes=";
+
+    private final long first;
+
+    private final long last;
+
+    private final long total;
+
+    private ByteRange(final long first, final long last, final long total) {
+        this.first = first;
+        this.last = last;
+        this.total = total;
+    }
+
+    /**
+     * Parses {@code Range} header against content of the given length. Headers with several ranges are not
+     * supported and are ignored like invalid ones, which makes the whole content to be served.
+     *
+     * @param header value of {@code Range} header
+     * @param total  length of the content
+     * @return range with the last position limited to the content length or {@link Optional#absent()} if header is
+     * invalid
+     */
+    public static Optional<ByteRange> parse(final String header, final long total) {
+        if (header == null || !header.startsWith(UNIT)) {
+            return Optional.absent();
+        }
+        final String spec = header.substring(UNIT.length()).trim();
+        final int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return Optional.absent();
+        }
+
+        try {
+            if (dash == 0) {
+                // Suffix range, stands for the last bytes of the content
+                final long suffixLength = parsePosition(spec.substring(1));
+                return Optional.of(new ByteRange(suffixLength == 0 ? total : Math.max(0, total - suffixLength),
+                        total - 1, total));
+            }
+            final long first = parsePosition(spec.substring(0, dash));
+            final String lastSpec = spec.substring(dash + 1);
+            if (lastSpec.isEmpty()) {
+                return Optional.of(new ByteRange(first, total - 1, total));
+            }
+            final long last = parsePosition(lastSpec);
+            if (last < first) {
+                return Optional.absent();
+            }
+
+            return Optional.of(new ByteRange(first, Math.min(last, total - 1), total));
+        } catch (final NumberFormatException e) {
+            return Optional.absent();
+        }
+    }
+
+    private static long parsePosition(final String position) {
+        final long result = Long.parseLong(position);
+        if (result < 0 || position.charAt(0) == '+') {
+            throw new NumberFormatException(format("Invalid position '%1$s'", position));
+        }
+
+        return result;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * Number of bytes in the range.
+     */
+    public long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * Range is not satisfiable if it starts after the end of the content.
+     */
+    public boolean isSatisfiable() {
+        return first < total;
+    }
+
+    /**
+     * Returns value of {@code Content-Range} header of the response.
+     */
+    public String toContentRange() {
+        return isSatisfiable() ? format("bytes %1$d-%2$d/%3$d", first, last, total) : format("bytes */%1$d", total);
+    }
+
+}
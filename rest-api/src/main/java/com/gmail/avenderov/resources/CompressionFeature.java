@@ -0,0 +1,29 @@
+package com.gmail.avenderov.resources;
+
+import org.glassfish.jersey.message.DeflateEncoder;
+import org.glassfish.jersey.message.GZipEncoder;
+
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+
+/**
+ * Compresses responses of resource methods when client accepts it. {@link CompressionFilter} and encoders are bound to
+ * every resource method except methods of resources marked with {@link OwnContentEncoding}, which would otherwise get
+ * already compressed content compressed again or plain content marked as compressed.
+ *
+ * @author Alexey Venderov
+ */
+public class CompressionFeature implements DynamicFeature {
+
+    @Override
+    public void configure(final ResourceInfo resourceInfo, final FeatureContext context) {
+        if (resourceInfo.getResourceClass().isAnnotationPresent(OwnContentEncoding.class)) {
+            return;
+        }
+        context.register(CompressionFilter.class);
+        context.register(GZipEncoder.class);
+        context.register(DeflateEncoder.class);
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.gmail.avenderov.resources;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Chooses encoding of the response entity by {@code Accept-Encoding} header of the request and sets
+ * {@code Content-Encoding} header, which makes the encoder of the chosen encoding compress the entity. Works like
+ * Jersey's {@code EncodingFilter}, which can't be bound to resource methods, since it needs field injection.
+ * <p/>
+ * Encoded representation gets its own entity tag, see {@link EntityTags#forEncoding(EntityTag, String)}. Resources
+ * evaluate preconditions against tags of plain representations, so {@code If-None-Match} tags of the negotiated
+ * encoding are turned into plain tags before the resource method is invoked and tags of other encodings are dropped.
+ *
+ * @author Alexey Venderov
+ */
+public class CompressionFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String WILDCARD = "*";
+
+    private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    // Encodings of the registered encoders in the order of preference
+    private static final List<String> ENCODINGS = ImmutableList.of("gzip", "deflate");
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        final String ifNoneMatch = requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return;
+        }
+        final String encoding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            return;
+        }
+
+        final String plainTags = plainTags(ifNoneMatch, encoding);
+        if (plainTags == null) {
+            requestContext.getHeaders().remove(HttpHeaders.IF_NONE_MATCH);
+        } else {
+            requestContext.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, plainTags);
+        }
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+        final boolean notModified = responseContext.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode();
+        if (!responseContext.hasEntity() && !notModified) {
+            return;
+        }
+        final List<String> vary = responseContext.getStringHeaders().get(HttpHeaders.VARY);
+        if (vary == null || !vary.contains(HttpHeaders.ACCEPT_ENCODING)) {
+            responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (responseContext.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return;
+        }
+
+        final String encoding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            return;
+        }
+        if (!notModified) {
+            responseContext.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        // Not modified response carries the tag of the representation that would have been sent
+        final EntityTag entityTag = responseContext.getEntityTag();
+        if (entityTag != null) {
+            responseContext.getHeaders().putSingle(HttpHeaders.ETAG, EntityTags.forEncoding(entityTag, encoding));
+        }
+    }
+
+    /**
+     * Turns tags of the given encoding into tags of plain representations, tags of other encodings and plain tags
+     * can't match the encoded representation and are dropped. Wildcard and tags that can't be parsed are kept.
+     *
+     * @param ifNoneMatch value of {@code If-None-Match} header
+     * @param encoding    negotiated encoding
+     * @return value of {@code If-None-Match} header to evaluate or {@code null} if no tag is left
+     */
+    static String plainTags(final String ifNoneMatch, final String encoding) {
+        final List<String> result = new ArrayList<String>();
+        for (final String tag : LIST_SPLITTER.split(ifNoneMatch)) {
+            if (WILDCARD.equals(tag)) {
+                result.add(tag);
+                continue;
+            }
+            final EntityTag entityTag;
+            try {
+                entityTag = EntityTag.valueOf(tag);
+            } catch (final IllegalArgumentException e) {
+                result.add(tag);
+                continue;
+            }
+            final Optional<EntityTag> plainTag = EntityTags.withoutEncoding(entityTag, encoding);
+            if (plainTag.isPresent()) {
+                result.add(plainTag.get().toString());
+            }
+        }
+
+        return result.isEmpty() ? null : Joiner.on(", ").join(result);
+    }
+
+    /**
+     * Chooses supported encoding with the highest quality, the more preferred one if qualities are equal. Codings with
+     * invalid quality are ignored.
+     *
+     * @param acceptEncoding value of {@code Accept-Encoding} header, may be {@code null}
+     * @return chosen encoding or {@code null} if entity should be sent as it is
+     */
+    static String negotiate(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        final Map<String, Float> qualities = new HashMap<String, Float>();
+        for (final String coding : LIST_SPLITTER.split(acceptEncoding)) {
+            final int parameters = coding.indexOf(';');
+            final String name = (parameters < 0 ? coding : coding.substring(0, parameters).trim())
+                    .toLowerCase(Locale.ENGLISH);
+            try {
+                qualities.put(name, parameters < 0 ? 1.0f : quality(coding.substring(parameters + 1)));
+            } catch (final NumberFormatException e) {
+                // Coding is ignored
+            }
+        }
+
+        String result = null;
+        float resultQuality = 0.0f;
+        for (final String encoding : ENCODINGS) {
+            Float quality = qualities.get(encoding);
+            if (quality == null) {
+                quality = qualities.get(WILDCARD);
+            }
+            if (quality != null && quality > resultQuality) {
+                result = encoding;
+                resultQuality = quality;
+            }
+        }
+
+        return result;
+    }
+
+    private static float quality(final String parameters) {
+        for (final String parameter : Splitter.on(';').trimResults().omitEmptyStrings().split(parameters)) {
+            final String normalized = parameter.replace(" ", "");
+            if (normalized.startsWith("q=")) {
+                final float quality = Float.parseFloat(normalized.substring(2));
+                if (quality < 0.0f || quality > 1.0f) {
+                    throw new NumberFormatException("Quality must be between 0 and 1");
+                }
+                return quality;
+            }
+        }
+
+        return 1.0f;
+    }
+
+}
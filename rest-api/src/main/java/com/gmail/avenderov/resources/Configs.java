@@ -0,0 +1,76 @@
+package com.gmail.avenderov.resources;
+
+import com.gmail.avenderov.mongo.export.PropertyConfigExporter;
+import com.gmail.avenderov.mongo.export.PropertyConfigImporter;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bulk export and import of configs as gzip-compressed NDJSON. Both directions are streamed, export response is
+ * sent in chunks as configs are read from the database.
+ *
+ * @author Alexey Venderov
+ */
+@Path("configs")
+public class Configs {
+
+    public static final String APPLICATION_GZIP = "application/gzip";
+
+    private final PropertyConfigExporter exporter;
+
+    private final PropertyConfigImporter importer;
+
+    @Inject
+    public Configs(final PropertyConfigExporter exporter, final PropertyConfigImporter importer) {
+        checkNotNull(exporter, "exporter must not be null");
+        checkNotNull(importer, "importer must not be null");
+        this.exporter = exporter;
+        this.importer = importer;
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(APPLICATION_GZIP)
+    public Response exportConfigs() {
+        return Response.ok(new StreamingOutput() {
+
+            @Override
+            public void write(final OutputStream outputStream) throws IOException {
+                exporter.export(outputStream);
+            }
+
+        }).header("Content-Disposition", "attachment; filename=\"configs.ndjson.gz\"").build();
+    }
+
+    @POST
+    @Path("/import")
+    @Consumes(APPLICATION_GZIP)
+    @Produces(MediaType.APPLICATION_JSON)
+    public PropertyConfigImporter.Result importConfigs(final InputStream inputStream) throws IOException {
+        try {
+            return importer.importConfigs(inputStream);
+        } catch (final IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        } catch (final DataIntegrityViolationException e) {
+            // Batches inserted before the failure are kept, repeated import skips them
+            throw new ClientErrorException(e.getMessage(), Response.Status.CONFLICT, e);
+        }
+    }
+
+}
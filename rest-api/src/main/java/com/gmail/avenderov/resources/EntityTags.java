@@ -0,0 +1,72 @@
+package com.gmail.avenderov.resources;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import javax.ws.rs.core.EntityTag;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * @author Alexey Venderov
+ */
+public final class EntityTags {
+
+    private static final String ENCODING_SEPARATOR = "-";
+
+    private EntityTags() {
+    }
+
+    /**
+     * Builds strong entity tag of a resolved config. Tag depends only on config name and revisions of the config and
+     * its ancestors, so it can be computed without loading properties.
+     *
+     * @param name      config name
+     * @param revisions  revisions of the config and its ancestors
+     * @return strong entity tag
+     */
+    public static EntityTag forConfig(final String name, final Map<String, Integer> revisions) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher().putString(name, Charsets.UTF_8);
+        // Revisions are sorted, so that tag doesn't depend on iteration order of the map
+        final SortedMap<String, Integer> sortedRevisions = new TreeMap<String, Integer>(revisions);
+        for (final Map.Entry<String, Integer> revision : sortedRevisions.entrySet()) {
+            hasher.putChar('\u0000').putString(revision.getKey(), Charsets.UTF_8).putInt(revision.getValue());
+        }
+
+        return new EntityTag(hasher.hash().toString());
+    }
+
+    /**
+     * Builds entity tag of the representation encoded with the given content coding. Representations with different
+     * codings differ byte by byte, so their strong tags must not match.
+     *
+     * @param entityTag tag of the representation without content coding
+     * @param encoding  content coding, e.g. {@code gzip}
+     * @return entity tag of the encoded representation
+     */
+    public static EntityTag forEncoding(final EntityTag entityTag, final String encoding) {
+        return new EntityTag(entityTag.getValue() + ENCODING_SEPARATOR + encoding, entityTag.isWeak());
+    }
+
+    /**
+     * Reverses {@link #forEncoding(EntityTag, String)}.
+     *
+     * @param entityTag tag of the encoded representation
+     * @param encoding  content coding, e.g. {@code gzip}
+     * @return tag of the representation without content coding or {@link Optional#absent()} if the tag is not of the
+     * given coding
+     */
+    public static Optional<EntityTag> withoutEncoding(final EntityTag entityTag, final String encoding) {
+        final String suffix = ENCODING_SEPARATOR + encoding;
+        final String value = entityTag.getValue();
+        if (!value.endsWith(suffix)) {
+            return Optional.absent();
+        }
+
+        return Optional.of(new EntityTag(value.substring(0, value.length() - suffix.length()), entityTag.isWeak()));
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.gmail.avenderov.resources;
+
+import com.gmail.avenderov.cache.CacheWarmer;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Probes of the instance state. Instance is ready to serve traffic once the cache warm-up has finished, whether it
+ * has filled the whole cache or not.
+ *
+ * @author Alexey Venderov
+ */
+@Path("health")
+@Produces(MediaType.TEXT_PLAIN)
+public class Health {
+
+    private final CacheWarmer cacheWarmer;
+
+    @Inject
+    public Health(final CacheWarmer cacheWarmer) {
+        checkNotNull(cacheWarmer, "cacheWarmer must not be null");
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    @GET
+    @Path("live")
+    public String getLiveness() {
+        return "OK";
+    }
+
+    @GET
+    @Path("ready")
+    public Response getReadiness() {
+        final CacheWarmer.State state = cacheWarmer.getState();
+        return Response.status(cacheWarmer.isFinished() ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE)
+                .entity(state.name()).build();
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.gmail.avenderov.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.json.MetricsModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Current values of all metrics. Rates are per second, durations are in milliseconds.
+ *
+ * @author Alexey Venderov
+ */
+@Path("metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class Metrics {
+
+    private static final ObjectWriter WRITER = new ObjectMapper()
+            .registerModule(new MetricsModule(TimeUnit.SECONDS, TimeUnit.MILLISECONDS, false)).writer();
+
+    private final MetricRegistry registry;
+
+    @Inject
+    public Metrics(final MetricRegistry registry) {
+        checkNotNull(registry, "registry must not be null");
+        this.registry = registry;
+    }
+
+    @GET
+    public StreamingOutput getMetrics() {
+        return new StreamingOutput() {
+
+            @Override
+            public void write(final OutputStream outputStream) throws IOException {
+                WRITER.writeValue(outputStream, registry);
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.gmail.avenderov.resources;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks resources that choose {@code Content-Encoding} of their responses themselves. Responses of these resources
+ * are neither compressed nor marked by {@link CompressionFeature}.
+ *
+ * @author Alexey Venderov
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface OwnContentEncoding {
+}
@@ -1,22 +1,286 @@
 package com.gmail.avenderov.resources;
 
+import com.codahale.metrics.MetricRegistry;
+import com.gmail.avenderov.api.repository.AsyncEffectiveConfigRepository;
+import com.gmail.avenderov.api.repository.AsyncPropertyConfigRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmail.avenderov.async.AdmissionController;
+import com.gmail.avenderov.cache.CachingPropertyConfigRepository;
+import com.gmail.avenderov.client.model.ResolvedConfig;
+import com.gmail.avenderov.mongo.data.EffectiveConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.gmail.avenderov.mongo.data.PropertyConfigResolver;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.MediaType;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * User: avenderov
+ * <p/>
+ * Lookups pass {@link AdmissionController}, clients are told apart by the {@code X-Client-Id} header or the first
+ * {@code X-Forwarded-For} address. Lookups that are not admitted are answered from the last known hierarchy of the
+ * config with a {@code Warning} header, if there is one, otherwise with {@code 503} and {@code Retry-After}.
  */
 @Path("properties")
 @Produces(MediaType.APPLICATION_JSON)
 public class Properties {
 
+    /**
+     * Maximum number of configs that can be requested at once.
+     */
+    public static final int MAX_NAMES = 100;
+
+    private static final Splitter NAME_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private static final String UNKNOWN_CLIENT = "unknown";
+
+    private static final String WARNING_HEADER = "Warning";
+
+    private static final String STALE_WARNING = "110 banjo \"Response is stale\"";
+
+    private static final String STALE_METER = name(Properties.class, "stale");
+
+    private static final Splitter FORWARDED_FOR_SPLITTER = Splitter.on(',').trimResults();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AsyncPropertyConfigRepository propertyConfigRepository;
+
+    private final AsyncEffectiveConfigRepository effectiveConfigRepository;
+
+    private final AdmissionController admissionController;
+
+    private final CachingPropertyConfigRepository cache;
+
+    private final MetricRegistry registry;
+
+    @Inject
+    public Properties(final AsyncPropertyConfigRepository propertyConfigRepository,
+                      final AsyncEffectiveConfigRepository effectiveConfigRepository,
+                      final AdmissionController admissionController, final CachingPropertyConfigRepository cache,
+                      final MetricRegistry registry) {
+        checkNotNull(propertyConfigRepository, "propertyConfigRepository must not be null");
+        checkNotNull(effectiveConfigRepository, "effectiveConfigRepository must not be null");
+        checkNotNull(admissionController, "admissionController must not be null");
+        checkNotNull(cache, "cache must not be null");
+        checkNotNull(registry, "registry must not be null");
+        this.propertyConfigRepository = propertyConfigRepository;
+        this.effectiveConfigRepository = effectiveConfigRepository;
+        this.admissionController = admissionController;
+        this.cache = cache;
+        this.registry = registry;
+    }
+
+    /**
+     * Request thread is released as soon as the lookup is submitted, response is resumed by the thread that
+     * completes it. Conditional requests are evaluated against the same hierarchy the response would be built from,
+     * properties are not resolved if the client's tag matches.
+     */
     @GET
     @Path("/{name}")
-    public String getConfig(@PathParam("name") final String name) {
-        return "test";
+    public void getConfig(@PathParam("name") final String name, @Context final Request request,
+                          @Context final HttpHeaders headers, @Suspended final AsyncResponse asyncResponse) {
+        findConfig(name, request, headers, asyncResponse);
+    }
+
+    /**
+     * Returns single property resolved through the inheritance chain as plain text. Response has the same entity tag
+     * as the whole config.
+     */
+    @GET
+    @Path("/{name}/{key}")
+    @Produces(MediaType.TEXT_PLAIN)
+    public void getProperty(@PathParam("name") final String name, @PathParam("key") final String key,
+                            @Context final Request request, @Context final HttpHeaders headers,
+                            @Suspended final AsyncResponse asyncResponse) {
+        Futures.addCallback(findConfigWithParents(name, headers),
+                new ResumingCallback<Map<String, PropertyConfig>>(asyncResponse) {
+
+                    @Override
+                    protected Object handle(final Map<String, PropertyConfig> hierarchy) {
+                        return propertyResponse(name, key, request, hierarchy);
+                    }
+
+                    @Override
+                    protected Object handleRejection(final RejectedExecutionException e) {
+                        final Map<String, PropertyConfig> hierarchy = cache.findLastKnownConfigWithParents(name);
+                        return hierarchy.isEmpty() ? null : stale(propertyResponse(name, key, request, hierarchy));
+                    }
+
+                });
+    }
+
+    /**
+     * Returns resolved configs with the given comma separated names in one response, configs are read in one lookup
+     * and written one by one. Configs that don't exist are omitted.
+     */
+    @GET
+    public void getConfigs(@QueryParam("names") final String names, @Context final HttpHeaders headers,
+                           @Suspended final AsyncResponse asyncResponse) {
+        final Set<String> nameSet = Sets.newLinkedHashSet(NAME_SPLITTER.split(Strings.nullToEmpty(names)));
+        if (nameSet.isEmpty()) {
+            throw new BadRequestException("At least one config name has to be specified");
+        }
+        if (nameSet.size() > MAX_NAMES) {
+            throw new BadRequestException(String.format("At most %1$d configs can be requested at once",
+                    MAX_NAMES));
+        }
+
+        // Effective configs are not cached, so there is nothing stale to serve when the lookup is rejected
+        Futures.addCallback(admit(headers, new Callable<ListenableFuture<Map<String, EffectiveConfig>>>() {
+
+                    @Override
+                    public ListenableFuture<Map<String, EffectiveConfig>> call() {
+                        return effectiveConfigRepository.findEffectiveConfigs(nameSet);
+                    }
+
+                }),
+                new ResumingCallback<Map<String, EffectiveConfig>>(asyncResponse) {
+
+                    @Override
+                    protected Object handle(final Map<String, EffectiveConfig> effectiveConfigs) {
+                        return new StreamingOutput() {
+
+                            @Override
+                            public void write(final OutputStream outputStream) throws IOException {
+                                final JsonGenerator generator = MAPPER.getFactory().createGenerator(outputStream);
+                                generator.writeStartArray();
+                                for (final String name : nameSet) {
+                                    final EffectiveConfig effectiveConfig = effectiveConfigs.get(name);
+                                    if (effectiveConfig != null) {
+                                        generator.writeObject(new ResolvedConfig(name,
+                                                effectiveConfig.getRevisions(), effectiveConfig.getContent()));
+                                    }
+                                }
+                                generator.writeEndArray();
+                                generator.flush();
+                            }
+
+                        };
+                    }
+
+                });
+    }
+
+    private void findConfig(final String name, final Request request, final HttpHeaders headers,
+                            final AsyncResponse asyncResponse) {
+        Futures.addCallback(findConfigWithParents(name, headers),
+                new ResumingCallback<Map<String, PropertyConfig>>(asyncResponse) {
+
+                    @Override
+                    protected Object handle(final Map<String, PropertyConfig> hierarchy) {
+                        return configResponse(name, request, hierarchy);
+                    }
+
+                    @Override
+                    protected Object handleRejection(final RejectedExecutionException e) {
+                        return findStaleConfig(name, request);
+                    }
+
+                });
+    }
+
+    private ListenableFuture<Map<String, PropertyConfig>> findConfigWithParents(final String name,
+                                                                               final HttpHeaders headers) {
+        return admit(headers, new Callable<ListenableFuture<Map<String, PropertyConfig>>>() {
+
+            @Override
+            public ListenableFuture<Map<String, PropertyConfig>> call() {
+                return propertyConfigRepository.findConfigWithParents(name);
+            }
+
+        });
+    }
+
+    private <T> ListenableFuture<T> admit(final HttpHeaders headers, final Callable<ListenableFuture<T>> call) {
+        return admissionController.submit(clientOf(headers), call);
+    }
+
+    /**
+     * Tells the client apart for {@link AdmissionController}.
+     */
+    static String clientOf(final HttpHeaders headers) {
+        String client = headers.getHeaderString(CLIENT_ID_HEADER);
+        if (Strings.isNullOrEmpty(client)) {
+            final String forwardedFor = headers.getHeaderString(FORWARDED_FOR_HEADER);
+            client = forwardedFor != null ? FORWARDED_FOR_SPLITTER.split(forwardedFor).iterator().next() : null;
+        }
+
+        return Strings.isNullOrEmpty(client) ? UNKNOWN_CLIENT : client;
+    }
+
+    private Response findStaleConfig(final String name, final Request request) {
+        final Map<String, PropertyConfig> hierarchy = cache.findLastKnownConfigWithParents(name);
+        return hierarchy.isEmpty() ? null : stale(configResponse(name, request, hierarchy));
+    }
+
+    private Response stale(final Response response) {
+        registry.meter(STALE_METER).mark();
+        return Response.fromResponse(response).header(WARNING_HEADER, STALE_WARNING).build();
+    }
+
+    private static Response configResponse(final String name, final Request request,
+                                           final Map<String, PropertyConfig> hierarchy) {
+        if (hierarchy.isEmpty()) {
+            throw new NotFoundException(String.format("Config '%1$s' doesn't exist", name));
+        }
+        final Map<String, Integer> revisions = PropertyConfigResolver.revisions(hierarchy);
+        final EntityTag entityTag = EntityTags.forConfig(name, revisions);
+        final Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+
+        return Response.ok(new ResolvedConfig(name, revisions, PropertyConfigResolver.resolve(hierarchy)))
+                .tag(entityTag).build();
+    }
+
+    private static Response propertyResponse(final String name, final String key, final Request request,
+                                             final Map<String, PropertyConfig> hierarchy) {
+        if (hierarchy.isEmpty()) {
+            throw new NotFoundException(String.format("Config '%1$s' doesn't exist", name));
+        }
+        final EntityTag entityTag = EntityTags.forConfig(name, PropertyConfigResolver.revisions(hierarchy));
+        final Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        final Optional<String> value = PropertyConfigResolver.resolve(hierarchy, key);
+        if (!value.isPresent()) {
+            throw new NotFoundException(String.format("Property '%1$s' is not defined in '%2$s' config", key,
+                    name));
+        }
+
+        return Response.ok(value.get()).tag(entityTag).build();
     }
 
 }
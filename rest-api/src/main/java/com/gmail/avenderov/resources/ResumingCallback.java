@@ -0,0 +1,75 @@
+package com.gmail.avenderov.resources;
+
+import com.gmail.avenderov.async.AdmissionRejectedException;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resumes suspended response with the result of a repository call. Failures are resumed as exceptions, so they are
+ * mapped to responses just like exceptions thrown by synchronous resource methods.
+ *
+ * @author Alexey Venderov
+ */
+abstract class ResumingCallback<V> implements FutureCallback<V> {
+
+    private static final long RETRY_AFTER_SECONDS = 1L;
+
+    private final AsyncResponse asyncResponse;
+
+    ResumingCallback(final AsyncResponse asyncResponse) {
+        this.asyncResponse = asyncResponse;
+    }
+
+    /**
+     * Handles result of the call. Returned object is used as response entity, {@code null} means that response has
+     * already been resumed or the call was chained with another one.
+     */
+    protected abstract Object handle(V result);
+
+    /**
+     * Handles rejection of the call by an overloaded service. Returned object is used as response entity,
+     * {@code null} means that request is rejected with {@code 503 Service Unavailable}.
+     */
+    protected Object handleRejection(final RejectedExecutionException e) {
+        return null;
+    }
+
+    @Override
+    public void onSuccess(final V result) {
+        final Object response;
+        try {
+            response = handle(result);
+        } catch (final RuntimeException e) {
+            onFailure(e);
+            return;
+        }
+        if (response != null) {
+            asyncResponse.resume(response);
+        }
+    }
+
+    @Override
+    public void onFailure(final Throwable t) {
+        if (t instanceof RejectedExecutionException) {
+            final Object response;
+            try {
+                response = handleRejection((RejectedExecutionException) t);
+            } catch (final RuntimeException e) {
+                asyncResponse.resume(e);
+                return;
+            }
+            if (response != null) {
+                asyncResponse.resume(response);
+            } else {
+                asyncResponse.resume(new ServiceUnavailableException(t instanceof AdmissionRejectedException ?
+                        ((AdmissionRejectedException) t).getRetryAfterSeconds() : RETRY_AFTER_SECONDS, t));
+            }
+        } else {
+            asyncResponse.resume(t);
+        }
+    }
+
+}
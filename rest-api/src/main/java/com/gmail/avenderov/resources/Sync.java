@@ -0,0 +1,119 @@
+package com.gmail.avenderov.resources;
+
+import com.gmail.avenderov.async.AdmissionController;
+import com.gmail.avenderov.async.AsyncExecutors;
+import com.gmail.avenderov.client.model.ConfigUpdate;
+import com.gmail.avenderov.sync.ConfigSynchronizer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Brings all configs held by a client up to date in one request. Request maps config names to revisions of the
+ * config and its ancestors the client holds, response contains updates of changed configs only.
+ * <p/>
+ * Sync passes {@link AdmissionController} like lookups of {@link Properties} do and runs on the repository executor,
+ * request thread is released as soon as it is submitted. Syncs that are not admitted are rejected with {@code 503}.
+ *
+ * @author Alexey Venderov
+ */
+@Path("sync")
+public class Sync {
+
+    private final ConfigSynchronizer configSynchronizer;
+
+    private final AdmissionController admissionController;
+
+    private final ListeningExecutorService executor;
+
+    @Inject
+    public Sync(final ConfigSynchronizer configSynchronizer, final AdmissionController admissionController,
+                final ListeningExecutorService executor) {
+        checkNotNull(configSynchronizer, "configSynchronizer must not be null");
+        checkNotNull(admissionController, "admissionController must not be null");
+        checkNotNull(executor, "executor must not be null");
+        this.configSynchronizer = configSynchronizer;
+        this.admissionController = admissionController;
+        this.executor = executor;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void sync(final Map<String, Map<String, Integer>> heldRevisions, @Context final HttpHeaders headers,
+                     @Suspended final AsyncResponse asyncResponse) {
+        if (heldRevisions == null || heldRevisions.isEmpty()) {
+            throw new BadRequestException("At least one config name has to be specified");
+        }
+        if (heldRevisions.size() > Properties.MAX_NAMES) {
+            throw new BadRequestException(String.format("At most %1$d configs can be synced at once",
+                    Properties.MAX_NAMES));
+        }
+
+        Futures.addCallback(admissionController.submit(Properties.clientOf(headers),
+                new Callable<ListenableFuture<List<ConfigUpdate>>>() {
+
+                    @Override
+                    public ListenableFuture<List<ConfigUpdate>> call() {
+                        return AsyncExecutors.submit(executor, new Callable<List<ConfigUpdate>>() {
+
+                            @Override
+                            public List<ConfigUpdate> call() {
+                                try {
+                                    return configSynchronizer.sync(heldRevisions);
+                                } catch (final IllegalArgumentException e) {
+                                    throw new BadRequestException(e.getMessage(), e);
+                                }
+                            }
+
+                        });
+                    }
+
+                }),
+                new ResumingCallback<List<ConfigUpdate>>(asyncResponse) {
+
+                    @Override
+                    protected Object handle(final List<ConfigUpdate> updates) {
+                        return new GenericEntity<List<ConfigUpdate>>(tag(updates)) {
+                        };
+                    }
+
+                });
+    }
+
+    /**
+     * Client keeps entity tags, so that it can switch to conditional requests. Tags are of plain representations,
+     * compressed responses are tagged by {@link CompressionFilter}.
+     */
+    private static List<ConfigUpdate> tag(final List<ConfigUpdate> updates) {
+        final List<ConfigUpdate> taggedUpdates = new ArrayList<ConfigUpdate>(updates.size());
+        for (final ConfigUpdate update : updates) {
+            taggedUpdates.add(update.getType() == ConfigUpdate.Type.REMOVED ? update :
+                    new ConfigUpdate(update.getName(), update.getType(), update.getRevisions(),
+                            EntityTags.forConfig(update.getName(), update.getRevisions()).toString(),
+                            update.getProperties(), update.getSet(), update.getUnset()));
+        }
+
+        return taggedUpdates;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.gmail.avenderov.resources;
+
+import com.gmail.avenderov.watch.WatchRegistry;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Long polling endpoint for config changes.
+ *
+ * @author Alexey Venderov
+ */
+@Path("watch")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class Watch {
+
+    private static final int MAX_TIMEOUT_SECONDS = 300;
+
+    private final WatchRegistry watchRegistry;
+
+    @Inject
+    public Watch(final WatchRegistry watchRegistry) {
+        checkNotNull(watchRegistry, "watchRegistry must not be null");
+        this.watchRegistry = watchRegistry;
+    }
+
+    /**
+     * Waits until one of the configs changes. Request body maps config names to the last seen revisions, zero
+     * revision waits for the config to be created. Response maps changed configs to their new revisions, if nothing
+     * has changed before timeout response has no content.
+     */
+    @POST
+    public void watch(final Map<String, Integer> revisions,
+                      @QueryParam("timeout") @DefaultValue("30") final int timeoutSeconds,
+                      @Suspended final AsyncResponse asyncResponse) {
+        if (revisions == null || revisions.isEmpty()) {
+            throw new BadRequestException("At least one config has to be watched");
+        }
+        for (final Map.Entry<String, Integer> revision : revisions.entrySet()) {
+            if (revision.getValue() == null || revision.getValue() < 0) {
+                throw new BadRequestException(String.format("Wrong revision of '%1$s' config", revision.getKey()));
+            }
+        }
+        if (timeoutSeconds <= 0 || timeoutSeconds > MAX_TIMEOUT_SECONDS) {
+            throw new BadRequestException(String.format("timeout must be between 1 and %1$d seconds",
+                    MAX_TIMEOUT_SECONDS));
+        }
+
+        watchRegistry.watch(revisions, timeoutSeconds, TimeUnit.SECONDS, asyncResponse);
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.gmail.avenderov.watch;
+
+import com.gmail.avenderov.api.ChangeListener;
+import com.gmail.avenderov.api.repository.PropertyConfigRepository;
+import com.gmail.avenderov.mongo.data.PropertyConfig;
+import com.google.common.collect.ImmutableMap;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps suspended watch requests until one of the watched configs changes or request times out. Requests are parked
+ * as {@link AsyncResponse}s, no thread is blocked while waiting.
+ *
+ * @author Alexey Venderov
+ */
+public class WatchRegistry implements ChangeListener {
+
+    private final PropertyConfigRepository propertyConfigRepository;
+
+    private final Map<String, Set<Watcher>> watchers = new HashMap<String, Set<Watcher>>();
+
+    /**
+     * @param propertyConfigRepository repository used to check current revisions, it must not serve stale configs
+     */
+    public WatchRegistry(final PropertyConfigRepository propertyConfigRepository) {
+        checkNotNull(propertyConfigRepository, "propertyConfigRepository must not be null");
+        this.propertyConfigRepository = propertyConfigRepository;
+    }
+
+    /**
+     * Resumes response with the map of changed configs to their new revisions as soon as any of the watched configs
+     * has revision greater than the last seen one. Response is resumed with no content after timeout.
+     *
+     * @param revisions     last seen revisions of the watched configs, zero if config has not been seen yet
+     * @param timeout       how long to wait for a change
+     * @param timeUnit      time unit of the timeout
+     * @param asyncResponse suspended response
+     */
+    public void watch(final Map<String, Integer> revisions, final long timeout, final TimeUnit timeUnit,
+                      final AsyncResponse asyncResponse) {
+        checkArgument(revisions != null && !revisions.isEmpty(), "revisions must not be empty");
+        checkNotNull(asyncResponse, "asyncResponse must not be null");
+
+        final Watcher watcher = new Watcher(ImmutableMap.copyOf(revisions), asyncResponse);
+        asyncResponse.setTimeoutHandler(new TimeoutHandler() {
+
+            @Override
+            public void handleTimeout(final AsyncResponse asyncResponse) {
+                if (watcher.complete()) {
+                    asyncResponse.resume(Response.noContent().build());
+                }
+            }
+
+        });
+        asyncResponse.setTimeout(timeout, timeUnit);
+        register(watcher);
+
+        // Changes made before registration are not delivered by the change log
+        final Map<String, PropertyConfig> configs;
+        try {
+            configs = propertyConfigRepository.findConfigs(revisions.keySet());
+        } catch (final RuntimeException e) {
+            if (watcher.complete()) {
+                asyncResponse.resume(e);
+            }
+            return;
+        }
+        final Map<String, Integer> changes = new HashMap<String, Integer>();
+        for (final Map.Entry<String, Integer> revision : revisions.entrySet()) {
+            final PropertyConfig propertyConfig = configs.get(revision.getKey());
+            if (propertyConfig != null && propertyConfig.getRevision() > revision.getValue()) {
+                changes.put(propertyConfig.getName(), propertyConfig.getRevision());
+            }
+        }
+        if (!changes.isEmpty()) {
+            resume(watcher, changes);
+        }
+    }
+
+    @Override
+    public void onChange(final String name, final int revision) {
+        final List<Watcher> changed = new ArrayList<Watcher>();
+        synchronized (watchers) {
+            final Set<Watcher> nameWatchers = watchers.get(name);
+            if (nameWatchers != null) {
+                for (final Watcher watcher : nameWatchers) {
+                    if (revision > watcher.revisions.get(name)) {
+                        changed.add(watcher);
+                    }
+                }
+            }
+        }
+        for (final Watcher watcher : changed) {
+            resume(watcher, Collections.singletonMap(name, revision));
+        }
+    }
+
+    /**
+     * Returns number of currently suspended watch requests.
+     */
+    public int getWatcherCount() {
+        final Set<Watcher> uniqueWatchers = new HashSet<Watcher>();
+        synchronized (watchers) {
+            for (final Set<Watcher> nameWatchers : watchers.values()) {
+                uniqueWatchers.addAll(nameWatchers);
+            }
+        }
+        return uniqueWatchers.size();
+    }
+
+    private void resume(final Watcher watcher, final Map<String, Integer> changes) {
+        if (watcher.complete()) {
+            watcher.asyncResponse.resume(changes);
+        }
+    }
+
+    private void register(final Watcher watcher) {
+        synchronized (watchers) {
+            for (final String name : watcher.revisions.keySet()) {
+                Set<Watcher> nameWatchers = watchers.get(name);
+                if (nameWatchers == null) {
+                    nameWatchers = new HashSet<Watcher>();
+                    watchers.put(name, nameWatchers);
+                }
+                nameWatchers.add(watcher);
+            }
+        }
+    }
+
+    private void unregister(final Watcher watcher) {
+        synchronized (watchers) {
+            for (final String name : watcher.revisions.keySet()) {
+                final Set<Watcher> nameWatchers = watchers.get(name);
+                if (nameWatchers != null && nameWatchers.remove(watcher) && nameWatchers.isEmpty()) {
+                    watchers.remove(name);
+                }
+            }
+        }
+    }
+
+    private class Watcher {
+
+        private final Map<String, Integer> revisions;
+
+        private final AsyncResponse asyncResponse;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Watcher(final Map<String, Integer> revisions, final AsyncResponse asyncResponse) {
+            this.revisions = revisions;
+            this.asyncResponse = asyncResponse;
+        }
+
+        /**
+         * Marks watcher as completed and unregisters it.
+         *
+         * @return {@code true} if watcher was completed by this call
+         */
+        private boolean complete() {
+            if (completed.compareAndSet(false, true)) {
+                unregister(this);
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
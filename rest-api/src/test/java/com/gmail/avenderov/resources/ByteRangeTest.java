@@ -0,0 +1,53 @@
+package com.gmail.avenderov.resources;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class ByteRangeTest {
+
+    @Test
+    public void testRangesAreLimitedToContent() {
+        assertRange("bytes=0-99", 1000, "bytes 0-99/1000");
+        assertRange("bytes=500-", 1000, "bytes 500-999/1000");
+        assertRange("bytes=900-2000", 1000, "bytes 900-999/1000");
+        assertRange("bytes=-100", 1000, "bytes 900-999/1000");
+        assertRange("bytes=-2000", 1000, "bytes 0-999/1000");
+
+        final ByteRange byteRange = ByteRange.parse("bytes=10-19", 1000).get();
+        assertThat("Wrong first position", byteRange.getFirst(), is(10L));
+        assertThat("Wrong length", byteRange.getLength(), is(10L));
+    }
+
+    @Test
+    public void testRangesBeyondContentAreNotSatisfiable() {
+        for (final String header : new String[]{"bytes=1000-", "bytes=1000-1001", "bytes=-0"}) {
+            final ByteRange byteRange = ByteRange.parse(header, 1000).get();
+            assertThat("Range should not be satisfiable", byteRange.isSatisfiable(), is(false));
+            assertThat("Wrong content range", byteRange.toContentRange(), is("bytes */1000"));
+        }
+        assertThat("Range of empty content should not be satisfiable",
+                ByteRange.parse("bytes=-10", 0).get().isSatisfiable(), is(false));
+    }
+
+    @Test
+    public void testInvalidAndMultipleRangesAreIgnored() {
+        for (final String header : new String[]{null, "", "items=0-1", "bytes=", "bytes=-", "bytes=5-1",
+                "bytes=a-b", "bytes=+1-2", "bytes=0-1,5-6"}) {
+            assertThat(String.format("Range '%1$s' should be ignored", header), ByteRange.parse(header, 1000),
+                    is(equalTo(Optional.<ByteRange>absent())));
+        }
+    }
+
+    private static void assertRange(final String header, final long total, final String contentRange) {
+        final Optional<ByteRange> byteRange = ByteRange.parse(header, total);
+        assertThat(String.format("Range '%1$s' was not parsed", header), byteRange.isPresent(), is(true));
+        assertThat("Wrong content range", byteRange.get().toContentRange(), is(contentRange));
+    }
+
+}
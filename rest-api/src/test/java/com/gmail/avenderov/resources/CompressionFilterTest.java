@@ -0,0 +1,48 @@
+package com.gmail.avenderov.resources;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class CompressionFilterTest {
+
+    @Test
+    public void testEncodingWithHighestQualityIsChosen() {
+        assertThat("Wrong encoding", CompressionFilter.negotiate("gzip, deflate"), is("gzip"));
+        assertThat("Wrong encoding", CompressionFilter.negotiate("deflate"), is("deflate"));
+        assertThat("Wrong encoding", CompressionFilter.negotiate("gzip;q=0.5, deflate"), is("deflate"));
+        assertThat("Wrong encoding", CompressionFilter.negotiate("GZIP ; q=0.8, br"), is("gzip"));
+        assertThat("Wrong encoding", CompressionFilter.negotiate("*"), is("gzip"));
+        assertThat("Wrong encoding", CompressionFilter.negotiate("gzip;q=0, *"), is("deflate"));
+    }
+
+    @Test
+    public void testEntityIsNotEncodedWithoutAcceptableEncoding() {
+        for (final String header : new String[]{null, "", "identity", "br", "gzip;q=0", "gzip;q=0.0, deflate;q=0",
+                "gzip;q=2", "gzip;q=abc"}) {
+            assertThat(String.format("Encoding should not be chosen for '%1$s'", header),
+                    CompressionFilter.negotiate(header), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void testTagsOfNegotiatedEncodingAreTurnedIntoPlainTags() {
+        assertThat("Wrong tags", CompressionFilter.plainTags("\"abc-gzip\"", "gzip"), is("\"abc\""));
+        assertThat("Wrong tags", CompressionFilter.plainTags("\"abc-gzip\", \"def-deflate\", \"ghi\", W/\"jkl-gzip\"",
+                "gzip"), is("\"abc\", W/\"jkl\""));
+        assertThat("Wildcard should be kept", CompressionFilter.plainTags("*", "deflate"), is("*"));
+    }
+
+    @Test
+    public void testNoTagIsLeftIfNoneMatchesEncoding() {
+        assertThat("Plain tag should not match encoded representation",
+                CompressionFilter.plainTags("\"abc\"", "gzip"), is(nullValue()));
+        assertThat("Tag of other encoding should not match", CompressionFilter.plainTags("\"abc-gzip\"", "deflate"),
+                is(nullValue()));
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.gmail.avenderov.resources;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import javax.ws.rs.core.EntityTag;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Alexey Venderov
+ */
+public class EntityTagsTest {
+
+    @Test
+    public void testTagDoesNotDependOnOrderOfRevisions() {
+        final EntityTag entityTag = EntityTags.forConfig("config", ImmutableMap.of("config", 1, "parent", 2));
+
+        assertThat("Tag should be strong", entityTag.isWeak(), is(false));
+        assertThat("Tag should not depend on order of revisions", entityTag,
+                is(equalTo(EntityTags.forConfig("config", ImmutableMap.of("parent", 2, "config", 1)))));
+    }
+
+    @Test
+    public void testTagChangesWithRevision() {
+        assertThat("Tag should change with revision of ancestor",
+                EntityTags.forConfig("config", ImmutableMap.of("config", 1, "parent", 2)),
+                is(not(equalTo(EntityTags.forConfig("config", ImmutableMap.of("config", 1, "parent", 3))))));
+        assertThat("Tag should change with config name",
+                EntityTags.forConfig("config", ImmutableMap.of("config", 1)),
+                is(not(equalTo(EntityTags.forConfig("other", ImmutableMap.of("config", 1))))));
+    }
+
+    @Test
+    public void testEncodedRepresentationHasOwnTag() {
+        final EntityTag entityTag = EntityTags.forConfig("config", ImmutableMap.of("config", 1));
+        final EntityTag gzipEntityTag = EntityTags.forEncoding(entityTag, "gzip");
+
+        assertThat("Encoded representation should have its own tag", gzipEntityTag, is(not(equalTo(entityTag))));
+        assertThat("Tag should differ by encoding", gzipEntityTag,
+                is(not(equalTo(EntityTags.forEncoding(entityTag, "deflate")))));
+        assertThat("Plain tag should be restored", EntityTags.withoutEncoding(gzipEntityTag, "gzip").get(),
+                is(equalTo(entityTag)));
+        assertThat("Tag of other encoding should not be restored",
+                EntityTags.withoutEncoding(gzipEntityTag, "deflate").isPresent(), is(false));
+    }
+
+}